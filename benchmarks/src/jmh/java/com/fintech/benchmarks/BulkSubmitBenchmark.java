@@ -0,0 +1,141 @@
+package com.fintech.benchmarks;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fintech.mapping.MappingGeneratorApplication;
+import com.fintech.mapping.messaging.BulkSubmitter;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Enqueue rate of /submit-bulk: msg/s for an upload of UPLOAD messages put on the
+ * validation queue by {@link BulkSubmitter} (target: 50k msg/s with the default
+ * chunk-size of 1000)
+ *
+ * The upload is prepared in memory, so the score covers reading the messages (NDJSON
+ * or zip), sending and committing them, not the HTTP transfer. Listeners are not
+ * started, so validation does not compete for the CPU; the queue is drained after
+ * each upload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BulkSubmitBenchmark {
+    
+    private static final int UPLOAD = 10_000;
+    private static final long RECEIVE_TIMEOUT_MS = 10_000;
+    
+    @Param({"ndjson", "zip"})
+    public String format;
+    
+    @Param({"100", "1000"})
+    public int chunkSize;
+    
+    private ConfigurableApplicationContext context;
+    private BulkSubmitter submitter;
+    private Connection connection;
+    private MessageConsumer drain;
+    private byte[] upload;
+    private int submitted;
+    
+    @Setup
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(MappingGeneratorApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "logging.level.com.fintech.mapping=WARN",
+                "spring.jms.listener.auto-startup=false",
+                "app.jms.bulk.chunk-size=" + chunkSize)
+            .run();
+        submitter = context.getBean(BulkSubmitter.class);
+        String queue = context.getEnvironment().getRequiredProperty("app.validation.queue-name");
+        
+        connection = context.getBean(ConnectionFactory.class).createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        drain = session.createConsumer(session.createQueue(queue));
+        connection.start();
+        
+        String xml = Payloads.pain001("cbpr", 1);
+        upload = "zip".equals(format) ? zip(xml) : ndjson(xml);
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        context.close();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(UPLOAD)
+    public BulkSubmitter.BulkResult submit() throws IOException {
+        ByteArrayInputStream body = new ByteArrayInputStream(upload);
+        BulkSubmitter.BulkResult result = submitter.submit(
+            "zip".equals(format) ? submitter.zip(body) : submitter.ndjson(body));
+        if (result.submitted() != UPLOAD) {
+            throw new IllegalStateException("Submitted " + result.submitted() + " of " + UPLOAD
+                + " (" + result.error() + ")");
+        }
+        submitted = result.submitted();
+        return result;
+    }
+    
+    /**
+     * Empty the validation queue so the broker does not page or block producers
+     */
+    @TearDown(Level.Invocation)
+    public void drainQueue() throws Exception {
+        for (int i = 0; i < submitted; i++) {
+            if (drain.receive(RECEIVE_TIMEOUT_MS) == null) {
+                throw new IllegalStateException("Drained " + i + " of " + submitted + " messages");
+            }
+        }
+        submitted = 0;
+    }
+    
+    private static byte[] ndjson(String xml) {
+        String line = "\"" + new String(JsonStringEncoder.getInstance().quoteAsString(xml)) + "\"\n";
+        return line.repeat(UPLOAD).getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] zip(String xml) throws IOException {
+        byte[] entry = xml.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < UPLOAD; i++) {
+                zip.putNextEntry(new ZipEntry("msg-" + i + ".xml"));
+                zip.write(entry);
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+}
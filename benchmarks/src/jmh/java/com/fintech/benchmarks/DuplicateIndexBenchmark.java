@@ -0,0 +1,80 @@
+package com.fintech.benchmarks;
+
+import com.fintech.mapping.service.RecentIdIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duplicate index lookups and inserts at the configured size (2 million IDs, 48 MB)
+ *
+ * The index is filled to {@code fill} of its capacity with random 128-bit keys (as
+ * UETRs are); "containsNew" probes keys that are not there (the common case),
+ * "containsSeen" keys that are, "addThenExpire" keeps inserting while the window
+ * moves on, so the bucket sweeps are part of the cost.
+ *
+ * ./gradlew :benchmarks:jmh -Pjmh.includes=DuplicateIndex
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class DuplicateIndexBenchmark {
+    
+    private static final int MAX_IDS = 2_000_000;
+    private static final Duration WINDOW = Duration.ofHours(24);
+    private static final int BUCKETS = 8;
+    
+    @Param({"0.5", "0.95"})
+    public double fill;
+    
+    private RecentIdIndex index;
+    private long[] seen;
+    private SplittableRandom random;
+    private long now;
+    
+    @Setup
+    public void setUp() {
+        index = new RecentIdIndex(MAX_IDS, WINDOW, BUCKETS);
+        random = new SplittableRandom(42);
+        int count = (int) (MAX_IDS * fill);
+        seen = new long[2 * count];
+        for (int i = 0; i < count; i++) {
+            seen[2 * i] = random.nextLong();
+            seen[2 * i + 1] = random.nextLong();
+            index.add(seen[2 * i], seen[2 * i + 1], now);
+        }
+    }
+    
+    @Benchmark
+    public boolean containsNew() {
+        return index.contains(random.nextLong(), random.nextLong(), now);
+    }
+    
+    @Benchmark
+    public boolean containsSeen() {
+        int i = random.nextInt(seen.length / 2);
+        return index.contains(seen[2 * i], seen[2 * i + 1], now);
+    }
+    
+    @Benchmark
+    public boolean addThenExpire() {
+        // A full window every MAX_IDS inserts: one bucket sweep per MAX_IDS / BUCKETS
+        now += WINDOW.toMillis() / MAX_IDS + 1;
+        return index.add(random.nextLong(), random.nextLong(), now);
+    }
+}
@@ -0,0 +1,140 @@
+package com.fintech.benchmarks;
+
+import com.fintech.mapping.MappingGeneratorApplication;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of the "durable" profile (file journal) against the default in-memory broker
+ *
+ * - roundTrip: latency of one message (send to the validation queue, wait for its
+ *   result); every durable send waits for its own journal sync
+ * - burst: msg/s for BURST messages sent in one transaction (as /submit-bulk does),
+ *   then their results received; the journal syncs once per commit, and the result
+ *   publisher's transacted batches share syncs too, so this shows the batched cost
+ *
+ * Durable runs journal into a fresh temporary directory, deleted afterwards.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DurabilityBenchmark {
+    
+    private static final int BURST = 1_000;
+    private static final long RECEIVE_TIMEOUT_MS = 60_000;
+    
+    @Param({"in-memory", "durable-nio", "durable-mapped"})
+    public String broker;
+    
+    private ConfigurableApplicationContext context;
+    private Path dataDirectory;
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+    private Session burstSession;
+    private MessageProducer burstProducer;
+    private MessageConsumer consumer;
+    private String xml;
+    
+    @Setup
+    public void setUp() throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(MappingGeneratorApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties("logging.level.com.fintech.mapping=WARN");
+        if (broker.startsWith("durable-")) {
+            dataDirectory = Files.createTempDirectory("artemis-durability");
+            builder.profiles("durable").properties(
+                "spring.artemis.embedded.data-directory=" + dataDirectory,
+                "app.artemis.journal.type=" + broker.substring("durable-".length()).toUpperCase());
+        }
+        context = builder.run();
+        String queue = context.getEnvironment().getRequiredProperty("app.validation.queue-name");
+        String resultQueue = context.getEnvironment().getRequiredProperty("app.validation.result-queue-name");
+        
+        connection = context.getBean(ConnectionFactory.class).createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = session.createProducer(session.createQueue(queue));
+        consumer = session.createConsumer(session.createQueue(resultQueue));
+        burstSession = connection.createSession(true, Session.SESSION_TRANSACTED);
+        burstProducer = burstSession.createProducer(burstSession.createQueue(queue));
+        connection.start();
+        
+        xml = Payloads.pain001("cbpr", 1);
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        context.close();
+        if (dataDirectory != null) {
+            delete(dataDirectory);
+        }
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Message roundTrip() throws Exception {
+        producer.send(session.createTextMessage(xml));
+        return receiveResult();
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BURST)
+    public Message burst() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            burstProducer.send(burstSession.createTextMessage(xml));
+        }
+        burstSession.commit();
+        Message last = null;
+        for (int i = 0; i < BURST; i++) {
+            last = receiveResult();
+        }
+        return last;
+    }
+    
+    private Message receiveResult() throws Exception {
+        Message result = consumer.receive(RECEIVE_TIMEOUT_MS);
+        if (result == null) {
+            throw new IllegalStateException("No validation result within " + RECEIVE_TIMEOUT_MS + " ms");
+        }
+        return result;
+    }
+    
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
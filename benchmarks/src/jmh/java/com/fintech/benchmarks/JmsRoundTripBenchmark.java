@@ -0,0 +1,91 @@
+package com.fintech.benchmarks;
+
+import com.fintech.mapping.MappingGeneratorApplication;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end latency of one message: send to the validation queue on the embedded
+ * Artemis broker, wait for its result on pain001.validation.results
+ *
+ * One message is in flight at a time, so the score includes the listener hand-off
+ * and the result publisher's linger time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JmsRoundTripBenchmark {
+    
+    private static final long RECEIVE_TIMEOUT_MS = 60_000;
+    
+    @Param({"cbpr", "iso"})
+    public String sample;
+    
+    @Param({"1", "100", "10000"})
+    public int txCount;
+    
+    private ConfigurableApplicationContext context;
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+    private MessageConsumer consumer;
+    private String xml;
+    
+    @Setup
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(MappingGeneratorApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties("logging.level.com.fintech.mapping=WARN")
+            .run();
+        String queue = context.getEnvironment().getRequiredProperty("app.validation.queue-name");
+        String resultQueue = context.getEnvironment().getRequiredProperty("app.validation.result-queue-name");
+        
+        connection = context.getBean(ConnectionFactory.class).createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = session.createProducer(session.createQueue(queue));
+        consumer = session.createConsumer(session.createQueue(resultQueue));
+        connection.start();
+        
+        xml = Payloads.pain001(sample, txCount);
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        context.close();
+    }
+    
+    @Benchmark
+    public Message roundTrip() throws Exception {
+        producer.send(session.createTextMessage(xml));
+        Message result = consumer.receive(RECEIVE_TIMEOUT_MS);
+        if (result == null) {
+            throw new IllegalStateException("No validation result within " + RECEIVE_TIMEOUT_MS + " ms");
+        }
+        return result;
+    }
+}
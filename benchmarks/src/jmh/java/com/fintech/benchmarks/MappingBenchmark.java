@@ -0,0 +1,69 @@
+package com.fintech.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fintech.mapping.model.MappingDefinition;
+import com.fintech.mapping.transform.MappingCompiler;
+import com.fintech.mapping.transform.MappingPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * pain.001 to pacs.008 mapping with the shipped definition, on the same payloads as
+ * {@link ValidationBenchmark} (compare with its validate score)
+ *
+ * The plan is compiled once in setup; each call is one streaming read/write pass.
+ * Only the Document of the CBPR+ sample is mapped (the service locates it the same way).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+    
+    private static final String DEFINITION = "/mappings/pain001-to-pacs008.json";
+    
+    @Param({"cbpr", "iso"})
+    public String sample;
+    
+    @Param({"1", "100", "10000"})
+    public int txCount;
+    
+    private MappingPlan plan;
+    private byte[] xmlBytes;
+    
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = MappingBenchmark.class.getResourceAsStream(DEFINITION)) {
+            plan = MappingCompiler.compile(new ObjectMapper().readValue(in, MappingDefinition.class));
+        }
+        String xml = Payloads.pain001(sample, txCount);
+        int document = xml.indexOf("<Document");
+        xmlBytes = xml.substring(document).getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Benchmark
+    public int transform() throws XMLStreamException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream(xmlBytes.length + 1024);
+        plan.transform(new ByteArrayInputStream(xmlBytes), target);
+        return target.size();
+    }
+}
@@ -0,0 +1,96 @@
+package com.fintech.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds benchmark payloads of a given size from the sample messages in schemas/iso20022
+ *
+ * The first PmtInf of the sample is kept and its first CdtTrfTxInf is repeated
+ * txCount times with unique InstrId/EndToEndId/UETR values; NbOfTxs and CtrlSum
+ * are updated to match. Other PmtInf blocks are dropped.
+ */
+final class Payloads {
+    
+    static final String SAMPLES_PROPERTY = "benchmarks.samples";
+    
+    private static final String TX_START = "<CdtTrfTxInf>";
+    private static final String TX_END = "</CdtTrfTxInf>";
+    private static final String PMT_INF_END = "</PmtInf>";
+    
+    private static final Pattern BARE_AMPERSAND = Pattern.compile("&(?![a-zA-Z]+;|#\\d+;|#x[0-9a-fA-F]+;)");
+    private static final Pattern NB_OF_TXS = Pattern.compile("<NbOfTxs>[^<]*</NbOfTxs>");
+    private static final Pattern CTRL_SUM = Pattern.compile("<CtrlSum>[^<]*</CtrlSum>");
+    private static final Pattern INSTD_AMT = Pattern.compile("<InstdAmt[^>]*>([^<]*)</InstdAmt>");
+    private static final Pattern INSTR_ID = Pattern.compile("<InstrId>[^<]*</InstrId>");
+    private static final Pattern END_TO_END_ID = Pattern.compile("<EndToEndId>[^<]*</EndToEndId>");
+    private static final Pattern UETR = Pattern.compile("<UETR>([0-9a-f-]{24})[0-9a-f]{12}</UETR>");
+    
+    private Payloads() {
+    }
+    
+    /**
+     * @param sample   "cbpr" or "iso" (sample_&lt;sample&gt;_pain.001.001.09.xml)
+     * @param txCount  number of credit transfer transactions in the generated message
+     */
+    static String pain001(String sample, int txCount) {
+        return expand(read(sample), txCount);
+    }
+    
+    static String read(String sample) {
+        String dir = System.getProperty(SAMPLES_PROPERTY, "schemas/iso20022");
+        Path path = Path.of(dir, "sample_" + sample + "_pain.001.001.09.xml");
+        try {
+            // The ISO sample contains an unescaped '&' ("GmbH & Co. KG"); escape it so the payload is well-formed
+            return BARE_AMPERSAND.matcher(Files.readString(path)).replaceAll("&amp;");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read sample " + path, e);
+        }
+    }
+    
+    static String expand(String xml, int txCount) {
+        int firstTx = xml.indexOf(TX_START);
+        int pmtInfEnd = firstTx < 0 ? -1 : xml.indexOf(PMT_INF_END, firstTx);
+        if (pmtInfEnd < 0) {
+            throw new IllegalArgumentException("Sample has no PmtInf/CdtTrfTxInf");
+        }
+        int lastTxEnd = xml.lastIndexOf(TX_END, pmtInfEnd) + TX_END.length();
+        int lastPmtInfEnd = xml.lastIndexOf(PMT_INF_END) + PMT_INF_END.length();
+        
+        String transaction = xml.substring(firstTx, xml.indexOf(TX_END, firstTx) + TX_END.length());
+        Matcher amount = INSTD_AMT.matcher(transaction);
+        BigDecimal ctrlSum = amount.find()
+            ? new BigDecimal(amount.group(1)).multiply(BigDecimal.valueOf(txCount))
+            : null;
+        
+        StringBuilder transactions = new StringBuilder(transaction.length() * txCount + 64);
+        for (int i = 1; i <= txCount; i++) {
+            if (i > 1) {
+                transactions.append("\n");
+            }
+            transactions.append(uniqueTransaction(transaction, i));
+        }
+        
+        String head = xml.substring(0, firstTx);
+        String pmtInfTail = xml.substring(lastTxEnd, pmtInfEnd + PMT_INF_END.length());
+        String tail = xml.substring(lastPmtInfEnd);
+        
+        String result = head + transactions + pmtInfTail + tail;
+        result = NB_OF_TXS.matcher(result).replaceAll("<NbOfTxs>" + txCount + "</NbOfTxs>");
+        if (ctrlSum != null) {
+            result = CTRL_SUM.matcher(result).replaceAll("<CtrlSum>" + ctrlSum.toPlainString() + "</CtrlSum>");
+        }
+        return result;
+    }
+    
+    private static String uniqueTransaction(String transaction, int index) {
+        String tx = INSTR_ID.matcher(transaction).replaceFirst("<InstrId>INSTR-BENCH-" + index + "</InstrId>");
+        tx = END_TO_END_ID.matcher(tx).replaceFirst("<EndToEndId>E2E-BENCH-" + index + "</EndToEndId>");
+        return UETR.matcher(tx).replaceFirst("<UETR>$1" + String.format("%012x", index) + "</UETR>");
+    }
+}
@@ -0,0 +1,57 @@
+package com.fintech.benchmarks;
+
+import com.fintech.mapping.model.SchemaType;
+import com.fintech.mapping.service.SchemaDetectionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schema detection (CBPR+ vs ISO) on generated pain.001 payloads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaDetectionBenchmark {
+    
+    @Param({"cbpr", "iso"})
+    public String sample;
+    
+    @Param({"1", "100", "10000"})
+    public int txCount;
+    
+    private SchemaDetectionService detectionService;
+    private String xml;
+    private byte[] xmlBytes;
+    
+    @Setup
+    public void setUp() {
+        detectionService = new SchemaDetectionService();
+        xml = Payloads.pain001(sample, txCount);
+        xmlBytes = xml.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Benchmark
+    public SchemaType detectFromString() {
+        return detectionService.detectSchemaType(xml);
+    }
+    
+    @Benchmark
+    public SchemaType detectFromBytes() {
+        return detectionService.detectSchemaType(xmlBytes);
+    }
+}
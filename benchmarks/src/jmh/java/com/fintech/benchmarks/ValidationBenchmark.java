@@ -0,0 +1,99 @@
+package com.fintech.benchmarks;
+
+import com.fintech.mapping.messaging.BrokerQueues;
+import com.fintech.mapping.metrics.ValidationMetrics;
+import com.fintech.mapping.model.SchemaType;
+import com.fintech.mapping.model.ValidationResult;
+import com.fintech.mapping.service.LogSampler;
+import com.fintech.mapping.service.SchemaDetectionService;
+import com.fintech.mapping.service.SchemaRegistry;
+import com.fintech.mapping.service.ValidationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XSD validation with automatic detection and against a fixed schema
+ *
+ * Only the validation services and their metrics (on a SimpleMeterRegistry) are
+ * started (no broker, no web server). The sample
+ * messages carry a few known XSD violations, so this also measures error collection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+    
+    @Param({"cbpr", "iso"})
+    public String sample;
+    
+    @Param({"1", "100", "10000"})
+    public int txCount;
+    
+    private ConfigurableApplicationContext context;
+    private ValidationService validationService;
+    private SchemaType schemaType;
+    private String xml;
+    
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(ValidationContext.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "logging.level.com.fintech.mapping=WARN",
+                "app.schemas.cbpr-path=classpath:schemas/CBPR_pain.001.001.09.xsd",
+                "app.schemas.iso-path=classpath:schemas/pain.001.001.09.xsd.xml")
+            .run();
+        validationService = context.getBean(ValidationService.class);
+        schemaType = "cbpr".equals(sample) ? SchemaType.CBPR_PLUS : SchemaType.ISO_STANDARD;
+        xml = Payloads.pain001(sample, txCount);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public ValidationResult validate() {
+        return validationService.validate(xml);
+    }
+    
+    @Benchmark
+    public ValidationResult validateAgainstSpecificSchema() {
+        return validationService.validateAgainstSpecificSchema(xml, schemaType);
+    }
+    
+    @Configuration
+    @Import({ValidationService.class, SchemaDetectionService.class, SchemaRegistry.class,
+             ValidationMetrics.class, BrokerQueues.class, LogSampler.class})
+    static class ValidationContext {
+        
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
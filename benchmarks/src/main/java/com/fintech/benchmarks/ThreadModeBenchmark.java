@@ -0,0 +1,205 @@
+package com.fintech.benchmarks;
+
+import com.fintech.mapping.MappingGeneratorApplication;
+import com.fintech.mapping.messaging.ResultMessages;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end benchmark of platform-thread vs virtual-thread mode
+ *
+ * For each mode the application is started in-process, then messages are POSTed to
+ * /api/pain001/submit with a fixed number in flight (default 1024). Latency is measured
+ * from submission until the matching result arrives on the results queue, so it covers
+ * Tomcat, the validation queue, the listener and result publishing.
+ *
+ * Usage: ThreadModeBenchmark <sample.xml> [messages] [inFlight]
+ */
+public class ThreadModeBenchmark {
+    
+    private static final String SAMPLE_MSG_ID = "CORP2025101600001";
+    
+    public static void main(String[] args) throws Exception {
+        String template = Files.readString(Path.of(args[0]));
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int inFlight = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        if (!template.contains(SAMPLE_MSG_ID)) {
+            throw new IllegalArgumentException("Sample must contain MsgId " + SAMPLE_MSG_ID);
+        }
+        
+        List<RunResult> results = new ArrayList<>();
+        results.add(run("platform", false, template, messages, inFlight));
+        results.add(run("virtual", true, template, messages, inFlight));
+        
+        System.out.printf("%n%-10s %10s %12s %10s %10s %10s %8s%n",
+            "mode", "messages", "msg/s", "p50 ms", "p99 ms", "max ms", "failed");
+        for (RunResult r : results) {
+            System.out.printf("%-10s %10d %12.0f %10.2f %10.2f %10.2f %8d%n",
+                r.mode, r.messages, r.throughput, r.p50Ms, r.p99Ms, r.maxMs, r.failed);
+        }
+    }
+    
+    private static RunResult run(String mode, boolean virtual, String template, int messages, int inFlight)
+            throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(MappingGeneratorApplication.class)
+            .properties(
+                "server.port=0",
+                "logging.level.com.fintech.mapping=WARN",
+                "server.tomcat.max-connections=" + Math.max(8192, inFlight * 2));
+        if (virtual) {
+            builder.profiles("virtual-threads");
+        }
+        
+        try (ConfigurableApplicationContext context = builder.run()) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String resultQueue = context.getEnvironment().getRequiredProperty("app.validation.result-queue-name");
+            ConnectionFactory connectionFactory = context.getBean(ConnectionFactory.class);
+            
+            Driver driver = new Driver(port, connectionFactory, resultQueue, template, inFlight);
+            try {
+                // Warm-up (JIT, pools, connections), not measured
+                driver.send(mode + "W", Math.min(messages, 2_000));
+                return driver.send(mode, messages).named(mode);
+            } finally {
+                driver.close();
+            }
+        }
+    }
+    
+    /**
+     * Keeps a fixed number of submissions in flight and matches results by MsgId
+     */
+    private static final class Driver implements AutoCloseable {
+        
+        private final URI submitUri;
+        private final String template;
+        private final Semaphore window;
+        private final HttpClient http;
+        private final Connection connection;
+        private final Map<String, Long> submittedAt = new ConcurrentHashMap<>();
+        
+        private volatile long[] latencies;
+        private volatile CountDownLatch completed;
+        private final AtomicInteger recorded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        
+        Driver(int port, ConnectionFactory connectionFactory, String resultQueue, String template, int inFlight)
+                throws Exception {
+            this.submitUri = URI.create("http://localhost:" + port + "/api/pain001/submit");
+            this.template = template;
+            this.window = new Semaphore(inFlight);
+            this.http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+            
+            this.connection = connectionFactory.createConnection();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(session.createQueue(resultQueue));
+            consumer.setMessageListener(message -> {
+                try {
+                    String messageId = message.getStringProperty(ResultMessages.MESSAGE_ID);
+                    if (messageId != null) {
+                        complete(messageId, true);
+                    }
+                } catch (Exception e) {
+                    // ignore malformed result
+                }
+            });
+            connection.start();
+        }
+        
+        RunResult send(String prefix, int count) throws InterruptedException {
+            latencies = new long[count];
+            recorded.set(0);
+            failed.set(0);
+            completed = new CountDownLatch(count);
+            
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                window.acquire();
+                String msgId = prefix + i;
+                String body = template.replace(SAMPLE_MSG_ID, msgId);
+                submittedAt.put(msgId, System.nanoTime());
+                
+                HttpRequest request = HttpRequest.newBuilder(submitUri)
+                    .header("Content-Type", "application/xml")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+                http.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null || response.statusCode() != 200) {
+                            complete(msgId, false);
+                        }
+                    });
+            }
+            if (!completed.await(10, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Timed out waiting for results");
+            }
+            long elapsed = System.nanoTime() - start;
+            
+            long[] sorted = Arrays.copyOf(latencies, recorded.get());
+            Arrays.sort(sorted);
+            return new RunResult(null, count, count / (elapsed / 1e9),
+                percentileMs(sorted, 0.50), percentileMs(sorted, 0.99),
+                sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0, failed.get());
+        }
+        
+        private void complete(String msgId, boolean success) {
+            Long t0 = submittedAt.remove(msgId);
+            if (t0 == null) {
+                return;
+            }
+            if (success) {
+                int slot = recorded.getAndIncrement();
+                if (slot < latencies.length) {
+                    latencies[slot] = System.nanoTime() - t0;
+                }
+            } else {
+                failed.incrementAndGet();
+            }
+            window.release();
+            completed.countDown();
+        }
+        
+        private static double percentileMs(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+        
+        @Override
+        public void close() throws Exception {
+            connection.close();
+        }
+    }
+    
+    private record RunResult(String mode, int messages, double throughput,
+                             double p50Ms, double p99Ms, double maxMs, int failed) {
+        RunResult named(String name) {
+            return new RunResult(name, messages, throughput, p50Ms, p99Ms, maxMs, failed);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.fintech.mapping.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.activemq.artemis.core.server.JournalType;
+import org.apache.activemq.artemis.core.settings.impl.AddressFullMessagePolicy;
+import org.apache.activemq.artemis.core.settings.impl.AddressSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jms.artemis.ArtemisConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Journal and paging settings of the embedded Artemis broker
+ *
+ * - Journal (only with spring.artemis.embedded.persistent=true, profile "durable"):
+ *   NIO or MAPPED (memory-mapped) files; writes are buffered and synced to disk once
+ *   per buffer-timeout, so concurrent sends share one fsync instead of paying one each
+ * - Paging: once an address holds more than max-size-bytes in memory, further messages
+ *   are written to page files (policy PAGE) instead of growing the heap; set per
+ *   validation, results and DLQ address
+ * - Flow control: with policy BLOCK a full address stops handing out producer credits,
+ *   so senders wait (producer-window-size, see JmsConfig) and broker memory stays bounded
+ *   even without a journal to page to
+ */
+@Configuration
+@Slf4j
+public class ArtemisBrokerConfig {
+    
+    @Bean
+    public ArtemisConfigurationCustomizer artemisBrokerTuning(
+            @Value("${spring.artemis.embedded.persistent:false}") boolean persistent,
+            @Value("${app.artemis.journal.type:NIO}") JournalType journalType,
+            @Value("${app.artemis.journal.file-size:10485760}") int fileSize,
+            @Value("${app.artemis.journal.min-files:2}") int minFiles,
+            @Value("${app.artemis.journal.pool-files:10}") int poolFiles,
+            @Value("${app.artemis.journal.buffer-size:501760}") int bufferSize,
+            @Value("${app.artemis.journal.buffer-timeout-ns:3333333}") int bufferTimeoutNs,
+            @Value("${app.artemis.journal.sync-transactional:true}") boolean syncTransactional,
+            @Value("${app.artemis.journal.sync-non-transactional:true}") boolean syncNonTransactional,
+            @Value("${app.artemis.journal.datasync:true}") boolean datasync,
+            @Value("${app.artemis.paging.policy:PAGE}") AddressFullMessagePolicy policy,
+            @Value("${app.artemis.paging.validation-policy:${app.artemis.paging.policy:PAGE}}")
+            AddressFullMessagePolicy validationPolicy,
+            @Value("${app.artemis.paging.page-size-bytes:10485760}") int pageSizeBytes,
+            @Value("${app.artemis.paging.validation-max-size-bytes:-1}") long validationMaxSize,
+            @Value("${app.artemis.paging.results-max-size-bytes:-1}") long resultsMaxSize,
+            @Value("${app.artemis.paging.dlq-max-size-bytes:-1}") long dlqMaxSize,
+            @Value("${app.validation.queue-name}") String validationQueue,
+            @Value("${app.validation.result-queue-name}") String resultQueue,
+            @Value("${app.validation.dlq-name}") String dlq) {
+        
+        return configuration -> {
+            if (persistent) {
+                configuration.setJournalType(journalType);
+                configuration.setJournalFileSize(fileSize);
+                configuration.setJournalMinFiles(minFiles);
+                configuration.setJournalPoolFiles(poolFiles);
+                configuration.setJournalSyncTransactional(syncTransactional);
+                configuration.setJournalSyncNonTransactional(syncNonTransactional);
+                configuration.setJournalDatasync(datasync);
+                // The MAPPED journal takes its buffer settings from the NIO ones
+                configuration.setJournalBufferSize_NIO(bufferSize);
+                configuration.setJournalBufferTimeout_NIO(bufferTimeoutNs);
+                configuration.setJournalBufferSize_AIO(bufferSize);
+                configuration.setJournalBufferTimeout_AIO(bufferTimeoutNs);
+                log.info("Artemis journal: type={}, file-size={}, buffer-size={}, buffer-timeout={}ns, sync-tx={}, sync-non-tx={}, dir={}",
+                    journalType, fileSize, bufferSize, bufferTimeoutNs, syncTransactional, syncNonTransactional,
+                    configuration.getJournalLocation());
+            }
+            
+            addPaging(configuration, validationQueue, validationMaxSize, pageSizeBytes, validationPolicy);
+            addPaging(configuration, resultQueue, resultsMaxSize, pageSizeBytes, policy);
+            addPaging(configuration, dlq, dlqMaxSize, pageSizeBytes, policy);
+        };
+    }
+    
+    /**
+     * Page (or apply the configured policy) once the address holds maxSizeBytes; -1 = unbounded
+     */
+    private static void addPaging(org.apache.activemq.artemis.core.config.Configuration configuration,
+                                  String address, long maxSizeBytes, int pageSizeBytes,
+                                  AddressFullMessagePolicy policy) {
+        if (maxSizeBytes < 0) {
+            return;
+        }
+        AddressSettings settings = new AddressSettings()
+            .setMaxSizeBytes(maxSizeBytes)
+            .setPageSizeBytes(pageSizeBytes)
+            .setAddressFullMessagePolicy(policy);
+        configuration.addAddressSetting(address, settings);
+        log.info("Artemis address {}: max-size-bytes={}, page-size-bytes={}, policy={}",
+            address, maxSizeBytes, pageSizeBytes, policy);
+    }
+}
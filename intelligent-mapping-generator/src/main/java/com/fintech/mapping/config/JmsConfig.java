@@ -0,0 +1,163 @@
+package com.fintech.mapping.config;
+
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.util.StringUtils;
+
+/**
+ * JMS listener container and Artemis client tuning for the validation and mapping consumers
+ * 
+ * - Concurrency: min-max consumers on the validation queue (defaults to 1-cores)
+ * - Prefetch: Artemis consumerWindowSize (bytes buffered client-side per consumer)
+ * - Acknowledgement: transacted (default) commits the consumed message together with
+ *   what the listener published (see BatchingJmsPublisher); dups-ok lets Artemis
+ *   acknowledge in batches instead, without that guarantee. The mapping queue is
+ *   always transacted
+ * - Large messages: bodies above min-large-message-size are streamed in chunks
+ * - Producer flow control: a producer sends at most producer-window-size bytes ahead of
+ *   the credits the broker grants, so a blocked address (see ArtemisBrokerConfig) stops it
+ * - Threads: with spring.threads.virtual.enabled (profile "virtual-threads") listener
+ *   invocations run on virtual threads, like Tomcat request handling
+ */
+@Configuration
+@Slf4j
+public class JmsConfig {
+    
+    public static final String VALIDATION_LISTENER_FACTORY = "validationListenerContainerFactory";
+    public static final String MAPPING_LISTENER_FACTORY = "mappingListenerContainerFactory";
+    
+    @Value("${app.jms.listener.concurrency:}")
+    private String concurrency;
+    
+    @Value("${app.jms.listener.acknowledge-mode:transacted}")
+    private String acknowledgeMode;
+    
+    @Value("${app.mapping.concurrency:}")
+    private String mappingConcurrency;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    
+    @Value("${spring.artemis.embedded.persistent:false}")
+    private boolean persistent;
+    
+    /**
+     * Listener container factory used by the pain.001 consumer
+     */
+    @Bean(name = VALIDATION_LISTENER_FACTORY)
+    public DefaultJmsListenerContainerFactory validationListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            DefaultJmsListenerContainerFactoryConfigurer configurer) {
+        
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        String consumers = concurrency(factory, concurrency);
+        
+        switch (acknowledgeMode.toLowerCase()) {
+            case "transacted" -> factory.setSessionTransacted(true);
+            case "client" -> factory.setSessionAcknowledgeMode(Session.CLIENT_ACKNOWLEDGE);
+            case "auto" -> factory.setSessionAcknowledgeMode(Session.AUTO_ACKNOWLEDGE);
+            case "dups-ok" -> factory.setSessionAcknowledgeMode(Session.DUPS_OK_ACKNOWLEDGE);
+            default -> throw new IllegalArgumentException("Unsupported app.jms.listener.acknowledge-mode: " + acknowledgeMode);
+        }
+        
+        if (persistent && !"transacted".equalsIgnoreCase(acknowledgeMode)) {
+            log.warn("Persistent broker with acknowledge-mode={}: messages are acknowledged before "
+                + "their results are published, and those still buffered are lost on a crash", acknowledgeMode);
+        }
+        
+        useVirtualThreads(factory);
+        
+        log.info("Validation listener: concurrency={}, acknowledge-mode={}, virtual-threads={}",
+            consumers, acknowledgeMode, virtualThreads);
+        return factory;
+    }
+    
+    /**
+     * Listener container factory used by the pacs.008 mapping consumer
+     * 
+     * Always transacted, whatever app.jms.listener.acknowledge-mode says: the pacs.008
+     * messages of a pain.001 (one per transaction when split) and its DLQ entry are
+     * sent in the listener transaction and commit with it, so a failure redelivers the
+     * pain.001 instead of leaving part of its pacs.008 messages published.
+     */
+    @Bean(name = MAPPING_LISTENER_FACTORY)
+    public DefaultJmsListenerContainerFactory mappingListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            DefaultJmsListenerContainerFactoryConfigurer configurer) {
+        
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        String consumers = concurrency(factory, mappingConcurrency);
+        factory.setSessionTransacted(true);
+        useVirtualThreads(factory);
+        
+        log.info("Mapping listener: concurrency={}, transacted, virtual-threads={}", consumers, virtualThreads);
+        return factory;
+    }
+    
+    /**
+     * Set the min-max consumers (defaults to 1-cores)
+     */
+    private static String concurrency(DefaultJmsListenerContainerFactory factory, String configured) {
+        String consumers = StringUtils.hasText(configured)
+            ? configured
+            : "1-" + Runtime.getRuntime().availableProcessors();
+        factory.setConcurrency(consumers);
+        return consumers;
+    }
+    
+    private void useVirtualThreads(DefaultJmsListenerContainerFactory factory) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("jms-vt-");
+            executor.setVirtualThreads(true);
+            factory.setTaskExecutor(executor);
+        }
+    }
+    
+    /**
+     * Apply prefetch/ack batching settings to the Artemis connection factory
+     * before the first connection is created
+     */
+    @Bean
+    public static BeanPostProcessor artemisClientTuning(
+            @Value("${app.jms.client.consumer-window-size:1048576}") int consumerWindowSize,
+            @Value("${app.jms.client.dups-ok-batch-size:1048576}") int dupsOkBatchSize,
+            @Value("${app.jms.client.ack-batch-size:1048576}") int ackBatchSize,
+            @Value("${app.jms.client.min-large-message-size:102400}") int minLargeMessageSize,
+            @Value("${app.jms.client.producer-window-size:65536}") int producerWindowSize) {
+        
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                ActiveMQConnectionFactory artemis = null;
+                if (bean instanceof ActiveMQConnectionFactory direct) {
+                    artemis = direct;
+                } else if (bean instanceof CachingConnectionFactory caching
+                        && caching.getTargetConnectionFactory() instanceof ActiveMQConnectionFactory target) {
+                    artemis = target;
+                }
+                if (artemis != null) {
+                    artemis.setConsumerWindowSize(consumerWindowSize);
+                    artemis.setDupsOKBatchSize(dupsOkBatchSize);
+                    artemis.setAckBatchSize(ackBatchSize);
+                    artemis.setMinLargeMessageSize(minLargeMessageSize);
+                    artemis.setProducerWindowSize(producerWindowSize);
+                    log.info("Artemis client tuned on '{}': consumerWindowSize={}, dupsOKBatchSize={}, ackBatchSize={}, minLargeMessageSize={}, producerWindowSize={}",
+                        beanName, consumerWindowSize, dupsOkBatchSize, ackBatchSize, minLargeMessageSize, producerWindowSize);
+                }
+                return bean;
+            }
+        };
+    }
+}
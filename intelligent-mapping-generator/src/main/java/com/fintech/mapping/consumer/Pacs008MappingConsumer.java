@@ -0,0 +1,118 @@
+package com.fintech.mapping.consumer;
+
+import com.fintech.mapping.config.JmsConfig;
+import com.fintech.mapping.messaging.BatchingJmsPublisher;
+import com.fintech.mapping.messaging.ResultMessages;
+import com.fintech.mapping.metrics.ValidationMetrics;
+import com.fintech.mapping.pipeline.Pipeline;
+import com.fintech.mapping.pipeline.PipelineContext;
+import com.fintech.mapping.pipeline.PipelineFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.TextMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps validated pain.001 messages to pacs.008 (queue stage after {@link Pain001MessageConsumer})
+ *
+ * Messages arrive on the mapping queue with the ID of the mapping to apply and run
+ * through the queue's pipeline (app.mapping.pipeline, by default just the map stage).
+ * The pacs.008 goes to the output queue as a BytesMessage with the same correlation ID,
+ * through the {@link BatchingJmsPublisher}. A message that cannot be mapped goes to
+ * the mapping DLQ with its original payload (see {@link ResultMessages#failedMappingMessage}),
+ * as does one that fails in another pipeline stage, or is not a text message (no body).
+ *
+ * A mapping with splitRecords fans a bulk pain.001 out into one pacs.008 per
+ * transaction (CBPR+ pacs.008 carries exactly one). The source is read once; each
+ * pacs.008 is published as soon as its transaction has been read, carrying its
+ * 1-based recordNumber, so only one transaction is held at a time.
+ *
+ * The listener is always transacted ({@link JmsConfig#MAPPING_LISTENER_FACTORY}): the
+ * pacs.008 messages are sent in its transaction and commit together with the consumed
+ * pain.001, so a failed publish or a crash redelivers the pain.001 with none of its
+ * pacs.008 messages out. When a split stops at a record that cannot be mapped, the
+ * messages before it commit with the DLQ entry, which says how many there were.
+ */
+@Component
+@ConditionalOnProperty(name = "app.mapping.enabled", havingValue = "true")
+@Slf4j
+public class Pacs008MappingConsumer {
+    
+    @Autowired
+    private PipelineFactory pipelineFactory;
+    
+    @Autowired
+    private BatchingJmsPublisher publisher;
+    
+    @Autowired
+    private ResultMessages resultMessages;
+    
+    @Autowired
+    private ValidationMetrics metrics;
+    
+    @Value("${app.mapping.queue-name}")
+    private String queueName;
+    
+    @Value("${app.mapping.dlq-name}")
+    private String dlqName;
+    
+    @Value("${app.mapping.pipeline:map}")
+    private String pipelineStages;
+    
+    private Pipeline pipeline;
+    
+    @PostConstruct
+    public void init() {
+        pipeline = pipelineFactory.build(queueName, pipelineStages);
+    }
+    
+    @JmsListener(destination = "${app.mapping.queue-name}",
+                 containerFactory = JmsConfig.MAPPING_LISTENER_FACTORY)
+    public void consume(Message message) throws JMSException {
+        String correlationId = message.getJMSCorrelationID() != null
+            ? message.getJMSCorrelationID()
+            : message.getJMSMessageID();
+        
+        try (MDC.MDCCloseable ignored = MDC.putCloseable("correlationId", correlationId)) {
+            String mappingId = message.getStringProperty(ResultMessages.MAPPING_ID);
+            if (!(message instanceof TextMessage textMessage)) {
+                log.error("❌ Unsupported message type on mapping queue: {}", message.getClass().getName());
+                publishToDeadLetterQueue(null, mappingId, 0,
+                    new IllegalArgumentException("Unsupported message type " + message.getClass().getName()),
+                    correlationId);
+                return;
+            }
+            PipelineContext context = new PipelineContext(textMessage.getText(), correlationId);
+            context.setMappingId(mappingId);
+            try {
+                pipeline.run(context);
+            } catch (JmsException e) {
+                // Publishing failed: fail the listener so the message is redelivered
+                throw e;
+            } catch (Exception e) {
+                log.error("❌ Fatal error processing message on mapping queue: {}", e.getMessage(), e);
+                context.failed();
+                publishToDeadLetterQueue(context.getPayload(), context.getMappingId(), context.getRecordsPublished(),
+                    e, correlationId);
+            }
+        }
+    }
+    
+    /**
+     * Send a message that could not be mapped to the mapping DLQ, in the listener's transaction
+     */
+    private void publishToDeadLetterQueue(String payload, String mappingId, int recordsPublished, Exception cause,
+                                          String correlationId) {
+        metrics.recordDeadLetter("mapping-failed");
+        publisher.publish(dlqName, session -> resultMessages.failedMappingMessage(session,
+            payload, mappingId, recordsPublished, cause, correlationId));
+    }
+}
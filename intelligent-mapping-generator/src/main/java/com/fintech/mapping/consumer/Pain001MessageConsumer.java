@@ -1,16 +1,65 @@
 package com.fintech.mapping.consumer;
 
+import com.fintech.mapping.config.JmsConfig;
+import com.fintech.mapping.messaging.BatchingJmsPublisher;
+import com.fintech.mapping.messaging.LargeMessages;
+import com.fintech.mapping.messaging.ResultMessages;
+import com.fintech.mapping.messaging.SpooledBody;
+import com.fintech.mapping.metrics.ValidationMetrics;
+import com.fintech.mapping.model.MappingDefinition;
 import com.fintech.mapping.model.ValidationResult;
+import com.fintech.mapping.service.MappingService;
+import com.fintech.mapping.pipeline.Pipeline;
+import com.fintech.mapping.pipeline.PipelineContext;
+import com.fintech.mapping.pipeline.PipelineFactory;
 import com.fintech.mapping.service.ValidationService;
+import jakarta.annotation.PostConstruct;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.TextMessage;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.UncategorizedJmsException;
 import org.springframework.jms.annotation.JmsListener;
-import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
 /**
  * JMS Consumer that listens for pain.001 messages and validates them
+ * 
+ * Runs on the concurrent listener container from {@link JmsConfig}; results and
+ * DLQ entries go out through the {@link BatchingJmsPublisher} (in the listener's
+ * transaction by default), built by {@link ResultMessages} (streamed JSON/Smile
+ * results, DLQ entries carrying the original payload with the failure in message
+ * properties). A failed publish fails the listener, so the message is redelivered.
+ * 
+ * Text messages run through the queue's in-process pipeline (app.validation.pipeline,
+ * e.g. sanitize, validate, map; see {@link PipelineFactory}), which must include the
+ * validate stage. Bytes messages (large bulk files sent via /submit-stream) are
+ * validated straight from the Artemis large-message stream, without a pipeline, and
+ * copied to disk on the way for the DLQ. Other message types go to the DLQ without a body.
+ * 
+ * Request-reply: the result carries the request's JMSCorrelationID (its JMSMessageID
+ * when it has none) and goes to the request's JMSReplyTo when set, otherwise to the
+ * results queue.
+ * 
+ * With app.mapping.enabled and no map stage in the pipeline, valid text messages of
+ * the source format of app.mapping.queue-mapping-id (pain.001) are forwarded to the
+ * mapping queue, where {@link Pacs008MappingConsumer} maps them (by default one
+ * pacs.008 per transaction); validation and mapping scale separately. A map stage
+ * maps them in process instead, without the extra queue hop. A message stopped by a
+ * dedup stage (a repeated MsgId or UETR) is answered, marked duplicate, but not forwarded.
+ * 
+ * The correlation ID is put in the logging MDC while a message is processed; the
+ * per-message lines themselves are written (or sampled) by the {@link ValidationService}.
  */
 @Component
 @Slf4j
@@ -20,7 +69,25 @@ public class Pain001MessageConsumer {
     private ValidationService validationService;
     
     @Autowired
-    private JmsTemplate jmsTemplate;
+    private BatchingJmsPublisher publisher;
+    
+    @Autowired
+    private ResultMessages resultMessages;
+    
+    @Autowired
+    private ValidationMetrics metrics;
+    
+    @Autowired
+    private MappingService mappingService;
+    
+    @Autowired
+    private PipelineFactory pipelineFactory;
+    
+    @Value("${app.validation.queue-name}")
+    private String queueName;
+    
+    @Value("${app.validation.pipeline:validate}")
+    private String pipelineStages;
     
     @Value("${app.validation.result-queue-name}")
     private String resultQueueName;
@@ -28,91 +95,163 @@ public class Pain001MessageConsumer {
     @Value("${app.validation.dlq-name}")
     private String dlqName;
     
+    @Value("${app.validation.spool-dir:${java.io.tmpdir}}")
+    private String spoolDir;
+    
+    @Value("${app.mapping.enabled:false}")
+    private boolean mappingEnabled;
+    
+    @Value("${app.mapping.queue-name}")
+    private String mappingQueueName;
+    
+    @Value("${app.mapping.queue-mapping-id}")
+    private String queueMappingId;
+    
+    private Pipeline pipeline;
+    
+    @PostConstruct
+    public void init() {
+        pipeline = pipelineFactory.build(queueName, pipelineStages);
+        if (!pipeline.contains(Pipeline.VALIDATE)) {
+            throw new IllegalStateException("app.validation.pipeline must include the validate stage: " + pipelineStages);
+        }
+    }
+    
     /**
      * Listen for pain.001 messages from the validation queue
      */
-    @JmsListener(destination = "${app.validation.queue-name}")
-    public void consumePain001Message(String xmlMessage) {
-        log.info("=" .repeat(80));
-        log.info("📨 Received pain.001 message for validation");
-        log.info("=" .repeat(80));
+    @JmsListener(destination = "${app.validation.queue-name}",
+                 containerFactory = JmsConfig.VALIDATION_LISTENER_FACTORY)
+    public void consumePain001Message(Message message) throws JMSException {
+        String correlationId = message.getJMSCorrelationID() != null
+            ? message.getJMSCorrelationID()
+            : message.getJMSMessageID();
+        Destination replyTo = message.getJMSReplyTo();
         
+        try (MDC.MDCCloseable ignored = MDC.putCloseable("correlationId", correlationId)) {
+            if (message instanceof BytesMessage bytesMessage) {
+                consumePain001Stream(bytesMessage, correlationId, replyTo);
+            } else if (message instanceof TextMessage textMessage) {
+                consumePain001Message(textMessage.getText(), correlationId, replyTo);
+            } else {
+                log.error("❌ Unsupported message type on validation queue: {}", message.getClass().getName());
+                // No body to keep: the DLQ entry records the failure only
+                publishToDeadLetterQueue(null, null, correlationId);
+            }
+        }
+    }
+    
+    /**
+     * Run a pain.001 message delivered as text through the pipeline
+     */
+    private void consumePain001Message(String xmlMessage, String correlationId, Destination replyTo) {
+        // Sanitize, validate, map... as configured
+        PipelineContext context = new PipelineContext(xmlMessage, correlationId);
         try {
-            // Validate the message
-            ValidationResult result = validationService.validate(xmlMessage);
-            
-            // Log the result summary
-            log.info("\n" + result.getSummary());
+            pipeline.run(context);
+            ValidationResult result = context.getResult();
             
             // Publish result to result queue
-            publishValidationResult(result);
+            publishValidationResult(result, correlationId, replyTo);
             
             // If invalid, also send to DLQ with the original message
             if (!result.isValid()) {
-                publishToDeadLetterQueue(xmlMessage, result);
+                context.failed();
+                publishToDeadLetterQueue(xmlMessage, result, correlationId);
+            } else if (mappingEnabled && !pipeline.contains(Pipeline.MAP) && context.getStoppedBy() == null) {
+                forwardForMapping(context.text(), result, correlationId);
             }
             
+        } catch (JmsException e) {
+            // Publishing failed: fail the listener so the message is redelivered
+            context.failed();
+            throw e;
         } catch (Exception e) {
             log.error("❌ Fatal error processing message: {}", e.getMessage(), e);
-            publishToDeadLetterQueue(xmlMessage, null);
+            context.failed();
+            publishToDeadLetterQueue(xmlMessage, null, correlationId);
         }
-        
-        log.info("=" .repeat(80));
     }
     
     /**
-     * Publish validation result to result queue
+     * Validate a pain.001 bulk file delivered as a (large) bytes message without
+     * loading it into memory
+     *
+     * The body is copied to a file in app.validation.spool-dir as it is read, so an
+     * invalid message still reaches the DLQ whole.
      */
-    private void publishValidationResult(ValidationResult result) {
-        try {
-            String resultMessage = formatResultAsJson(result);
-            jmsTemplate.convertAndSend(resultQueueName, resultMessage);
-            log.debug("✓ Published validation result to: {}", resultQueueName);
-        } catch (Exception e) {
-            log.error("Failed to publish validation result: {}", e.getMessage());
+    private void consumePain001Stream(BytesMessage message, String correlationId, Destination replyTo) {
+        try (SpooledBody spool = new SpooledBody(Path.of(spoolDir))) {
+            InputStream body = spool.copying(LargeMessages.bodyOf(message));
+            try {
+                ValidationResult result = validationService.validate(body);
+                
+                publishValidationResult(result, correlationId, replyTo);
+                
+                if (!result.isValid()) {
+                    publishToDeadLetterQueue(spool, body, result, correlationId);
+                }
+                
+            } catch (JmsException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("❌ Fatal error processing streamed message: {}", e.getMessage(), e);
+                publishToDeadLetterQueue(spool, body, null, correlationId);
+            }
+        } catch (IOException e) {
+            // No room to keep the body: fail the listener rather than lose the message
+            throw new UncategorizedJmsException("Cannot spool streamed message: " + e.getMessage(), e);
         }
     }
     
     /**
-     * Send invalid messages to Dead Letter Queue
+     * Publish validation result to the reply destination, or the result queue
      */
-    private void publishToDeadLetterQueue(String xmlMessage, ValidationResult result) {
-        try {
-            String dlqMessage = String.format(
-                "--- INVALID MESSAGE ---\n%s\n\n--- VALIDATION RESULT ---\n%s",
-                xmlMessage,
-                result != null ? result.getSummary() : "Processing failed"
-            );
-            jmsTemplate.convertAndSend(dlqName, dlqMessage);
-            log.warn("⚠️  Message sent to DLQ: {}", dlqName);
-        } catch (Exception e) {
-            log.error("Failed to send message to DLQ: {}", e.getMessage());
+    private void publishValidationResult(ValidationResult result, String correlationId, Destination replyTo) {
+        if (replyTo != null) {
+            publisher.publish(replyTo, session -> resultMessages.resultMessage(session, result, correlationId));
+        } else {
+            publisher.publish(resultQueueName, session -> resultMessages.resultMessage(session, result, correlationId));
         }
     }
     
     /**
-     * Format validation result as JSON-like string
-     * (In production, use proper JSON serialization)
+     * Queue a valid message for mapping when it is of the queue mapping's source format
      */
-    private String formatResultAsJson(ValidationResult result) {
-        return String.format("""
-            {
-              "valid": %s,
-              "detectedSchema": "%s",
-              "validatedAgainst": "%s",
-              "messageId": "%s",
-              "errorCount": %d,
-              "processingTimeMs": %d,
-              "validatedAt": "%s"
-            }
-            """,
-            result.isValid(),
-            result.getDetectedSchemaType(),
-            result.getValidatedAgainstSchema(),
-            result.getMessageId(),
-            result.getErrors() != null ? result.getErrors().size() : 0,
-            result.getProcessingTimeMs(),
-            result.getValidatedAt()
-        );
+    private void forwardForMapping(String xmlMessage, ValidationResult result, String correlationId) {
+        MappingDefinition mapping = mappingService.getDefinition(queueMappingId);
+        if (mapping == null || !mapping.getSourceFormat().equals(result.getMessageType())) {
+            return;
+        }
+        publisher.publish(mappingQueueName, session -> {
+            TextMessage message = session.createTextMessage(xmlMessage);
+            message.setJMSCorrelationID(correlationId);
+            message.setStringProperty(ResultMessages.MAPPING_ID, mapping.getMappingId());
+            return message;
+        });
+    }
+    
+    /**
+     * Send invalid messages to Dead Letter Queue
+     */
+    private void publishToDeadLetterQueue(String xmlMessage, ValidationResult result, String correlationId) {
+        metrics.recordDeadLetter(result != null ? "invalid" : "failed");
+        publisher.publish(dlqName, session -> resultMessages.deadLetterMessage(session, xmlMessage, result, correlationId));
+        log.debug("⚠️  Message queued for DLQ: {}", dlqName);
+    }
+    
+    /**
+     * Send an invalid streamed message to the Dead Letter Queue, its body read back
+     * from the spool (the rest of the stream is copied first)
+     */
+    private void publishToDeadLetterQueue(SpooledBody spool, InputStream body, ValidationResult result,
+                                          String correlationId) throws IOException {
+        spool.readRemaining(body);
+        metrics.recordDeadLetter(result != null ? "invalid" : "failed");
+        try (InputStream payload = spool.open()) {
+            publisher.publishNow(dlqName,
+                session -> resultMessages.deadLetterMessage(session, payload, result, correlationId));
+        }
+        log.debug("⚠️  Streamed message queued for DLQ: {}", dlqName);
     }
 }
@@ -0,0 +1,138 @@
+package com.fintech.mapping.controller;
+
+import com.fintech.mapping.model.FieldMapping;
+import com.fintech.mapping.model.MappingDefinition;
+import com.fintech.mapping.service.MappingService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.xml.stream.XMLStreamException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * REST Controller for message mappings (pain.001 to pacs.008)
+ *
+ * /generate-mapping registers a field mapping, or returns the one shipped for the
+ * formats when no fields are given; /transform maps a message in-process with a
+ * compiled mapping.
+ */
+@RestController
+@Slf4j
+public class MappingGeneratorController {
+    
+    @Autowired
+    private MappingService mappingService;
+    
+    @Value("${app.mapping.default-id:pain001-to-pacs008}")
+    private String defaultMappingId;
+    
+    /**
+     * Compile and register a mapping between two message definitions
+     *
+     * Without fields, the registered mapping for the two formats is returned (404 when
+     * there is none). A definition that does not compile is answered with 400.
+     *
+     * Example:
+     * curl -X POST http://localhost:8081/generate-mapping \
+     *   -H "Content-Type: application/json" \
+     *   -d '{"sourceFormat": "pain.001.001.09", "targetFormat": "pacs.008.001.08", "mappingType": "PAYMENT_INITIATION"}'
+     */
+    @PostMapping(value = "/generate-mapping",
+                 consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<GenerateMappingResponse> generateMapping(@RequestBody GenerateMappingRequest request) {
+        if (request.sourceFormat() == null || request.targetFormat() == null) {
+            return ResponseEntity.badRequest().body(GenerateMappingResponse.failed("sourceFormat and targetFormat are required"));
+        }
+        
+        if (request.fields() == null || request.fields().isEmpty()) {
+            MappingDefinition existing = mappingService.find(request.sourceFormat(), request.targetFormat());
+            return existing != null
+                ? ResponseEntity.ok(GenerateMappingResponse.generated(existing))
+                : ResponseEntity.notFound().build();
+        }
+        
+        MappingDefinition definition = MappingDefinition.builder()
+            .mappingId("map-" + UUID.randomUUID().toString().substring(0, 8))
+            .sourceFormat(request.sourceFormat())
+            .targetFormat(request.targetFormat())
+            .mappingType(request.mappingType())
+            .recordSource(request.recordSource())
+            .recordTarget(request.recordTarget())
+            .fields(request.fields())
+            .build();
+        try {
+            mappingService.register(definition);
+            log.info("Mapping '{}' registered ({} -> {})", definition.getMappingId(),
+                definition.getSourceFormat(), definition.getTargetFormat());
+            return ResponseEntity.ok(GenerateMappingResponse.generated(definition));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(GenerateMappingResponse.failed(e.getMessage()));
+        }
+    }
+    
+    /**
+     * Registered mappings
+     */
+    @GetMapping(value = "/mappings", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<MappingDefinition>> mappings() {
+        return ResponseEntity.ok(mappingService.getDefinitions());
+    }
+    
+    /**
+     * Map one message (plain Document or CBPR+ envelope) and return the target message
+     *
+     * 400 when the message is not well-formed or the mapping does not exist.
+     *
+     * Example:
+     * curl -X POST http://localhost:8081/transform \
+     *   -H "Content-Type: application/xml" \
+     *   --data-binary @sample_cbpr_pain.001.001.09.xml
+     */
+    @PostMapping(value = "/transform",
+                 consumes = MediaType.APPLICATION_XML_VALUE,
+                 produces = MediaType.APPLICATION_XML_VALUE)
+    public ResponseEntity<byte[]> transform(@RequestBody byte[] xmlMessage,
+                                            @RequestParam(required = false) String mappingId) {
+        String id = mappingId != null ? mappingId : defaultMappingId;
+        try {
+            return ResponseEntity.ok(mappingService.transform(id, xmlMessage));
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            log.debug("Message not mapped with '{}': {}", id, e.getMessage());
+            return ResponseEntity.badRequest()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    // Request/Response DTOs
+    record GenerateMappingRequest(
+        String sourceFormat,
+        String targetFormat,
+        String mappingType,
+        String recordSource,
+        String recordTarget,
+        List<FieldMapping> fields
+    ) {}
+    
+    record GenerateMappingResponse(
+        String mappingId,
+        String status,
+        String message,
+        List<FieldMapping> fields
+    ) {
+        static GenerateMappingResponse generated(MappingDefinition definition) {
+            return new GenerateMappingResponse(definition.getMappingId(), "GENERATED", null, definition.getFields());
+        }
+        
+        static GenerateMappingResponse failed(String message) {
+            return new GenerateMappingResponse(null, "FAILED", message, null);
+        }
+    }
+}
@@ -1,16 +1,55 @@
 package com.fintech.mapping.controller;
 
+import com.fintech.mapping.messaging.BulkSubmitter;
+import com.fintech.mapping.messaging.LargeMessages;
+import com.fintech.mapping.messaging.QueueAdmission;
+import com.fintech.mapping.messaging.ValidationClient;
+import com.fintech.mapping.model.ValidationResult;
+import com.fintech.mapping.service.SchemaRegistry;
+import com.fintech.mapping.service.ValidationResultCache;
+import com.fintech.mapping.service.ValidationService;
+import com.fintech.mapping.service.XmlPool;
+import jakarta.annotation.PostConstruct;
+import jakarta.jms.BytesMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * REST Controller for testing pain.001 validation
- * Provides endpoints to submit messages to the queue
+ * Provides endpoints to submit messages to the queue, and /validate to validate
+ * one synchronously
+ * 
+ * Queued submissions carry a JMSCorrelationID, returned to the caller, which the
+ * result message repeats; /submit-and-wait waits for that result instead.
+ * 
+ * While the validation queue is above its high watermark (see {@link QueueAdmission})
+ * the submit endpoints answer 503 with Retry-After instead of queueing more. A batch
+ * is admitted only if the whole of it fits under the watermark; a bulk upload is
+ * checked again before every chunk and stops with 503 once the queue is full.
  */
 @RestController
 @RequestMapping("/api/pain001")
@@ -20,9 +59,71 @@ public class Pain001TestController {
     @Autowired
     private JmsTemplate jmsTemplate;
     
+    @Autowired
+    private ValidationService validationService;
+    
+    @Autowired
+    private SchemaRegistry schemaRegistry;
+    
+    @Autowired
+    private ValidationClient validationClient;
+    
+    @Autowired
+    private BulkSubmitter bulkSubmitter;
+    
+    @Autowired
+    private QueueAdmission queueAdmission;
+    
     @Value("${app.validation.queue-name}")
     private String validationQueueName;
     
+    @Value("${app.validation.sync.max-concurrent:0}")
+    private int syncMaxConcurrent;
+    
+    @Value("${app.validation.sync.acquire-timeout-ms:0}")
+    private long syncAcquireTimeoutMs;
+    
+    // Admission limit of /validate (requests beyond it get 429)
+    private Semaphore syncPermits;
+    private final LongAdder syncRejected = new LongAdder();
+    
+    @PostConstruct
+    public void init() {
+        int permits = syncMaxConcurrent > 0 ? syncMaxConcurrent : Runtime.getRuntime().availableProcessors();
+        syncPermits = new Semaphore(permits);
+        log.info("/validate concurrency limit: {} (acquire timeout {} ms)", permits, syncAcquireTimeoutMs);
+    }
+    
+    /**
+     * Validate a pain.001 (or other registered) message in-process and return the full result
+     * 
+     * No queue is involved, so the answer comes back in the time of one validation. At
+     * most app.validation.sync.max-concurrent requests validate at once; a request that
+     * finds no free slot within acquire-timeout-ms is shed with 429 instead of queueing.
+     * 
+     * Example:
+     * curl -X POST http://localhost:8081/api/pain001/validate \
+     *   -H "Content-Type: application/xml" \
+     *   --data-binary @sample_iso_pain.001.001.09.xml
+     */
+    @PostMapping(value = "/validate",
+                 consumes = MediaType.APPLICATION_XML_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ValidationResult> validatePain001(@RequestBody byte[] xmlMessage) throws InterruptedException {
+        if (!syncPermits.tryAcquire(syncAcquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+            syncRejected.increment();
+            log.debug("/validate at its concurrency limit, request rejected ({} so far)", syncRejected.sum());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+        }
+        try {
+            return ResponseEntity.ok(validationService.validate(xmlMessage));
+        } finally {
+            syncPermits.release();
+        }
+    }
+    
     /**
      * Submit pain.001 XML message to validation queue
      * 
@@ -35,19 +136,23 @@ public class Pain001TestController {
                  consumes = MediaType.APPLICATION_XML_VALUE,
                  produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<SubmitResponse> submitPain001(@RequestBody String xmlMessage) {
-        log.info("Received pain.001 submission request (size: {} bytes)", xmlMessage.length());
+        log.debug("Received pain.001 submission request (size: {} bytes)", xmlMessage.length());
+        if (!queueAdmission.admit()) {
+            return queueFull();
+        }
         
         try {
             // Send message to validation queue
-            jmsTemplate.convertAndSend(validationQueueName, xmlMessage);
+            String correlationId = send(xmlMessage);
             
-            log.info("✓ Message submitted to queue: {}", validationQueueName);
+            log.debug("✓ Message submitted to queue: {} ({})", validationQueueName, correlationId);
             
             return ResponseEntity.ok(new SubmitResponse(
                 true,
                 "Message submitted successfully to validation queue",
                 validationQueueName,
-                xmlMessage.length()
+                xmlMessage.length(),
+                correlationId
             ));
             
         } catch (Exception e) {
@@ -57,29 +162,92 @@ public class Pain001TestController {
                 false,
                 "Failed to submit message: " + e.getMessage(),
                 null,
-                0
+                0,
+                null
+            ));
+        }
+    }
+    
+    /**
+     * Stream a (possibly very large) pain.001 bulk file to the validation queue
+     * 
+     * The request body is never buffered: it is piped into an Artemis large message
+     * chunk by chunk, and the consumer validates it as a stream on the other side.
+     * 
+     * Example:
+     * curl -X POST http://localhost:8081/api/pain001/submit-stream \
+     *   -H "Content-Type: application/octet-stream" \
+     *   --data-binary @bulk_pain.001.xml
+     */
+    @PostMapping(value = "/submit-stream",
+                 consumes = {MediaType.APPLICATION_XML_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE},
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SubmitResponse> submitPain001Stream(InputStream body) {
+        log.info("Received streamed pain.001 submission request");
+        if (!queueAdmission.admit()) {
+            return queueFull();
+        }
+        
+        CountingInputStream counting = new CountingInputStream(body);
+        String correlationId = UUID.randomUUID().toString();
+        try {
+            jmsTemplate.send(validationQueueName, session -> {
+                BytesMessage message = LargeMessages.streamingMessage(session, counting);
+                message.setJMSCorrelationID(correlationId);
+                return message;
+            });
+            
+            log.info("✓ Streamed message submitted to queue: {} ({} bytes)", validationQueueName, counting.count);
+            
+            return ResponseEntity.ok(new SubmitResponse(
+                true,
+                "Message streamed successfully to validation queue",
+                validationQueueName,
+                (int) Math.min(counting.count, Integer.MAX_VALUE),
+                correlationId
+            ));
+            
+        } catch (Exception e) {
+            log.error("Failed to stream message: {}", e.getMessage(), e);
+            
+            return ResponseEntity.internalServerError().body(new SubmitResponse(
+                false,
+                "Failed to stream message: " + e.getMessage(),
+                null,
+                0,
+                null
             ));
         }
     }
     
     /**
-     * Submit multiple messages for testing
+     * Submit multiple messages for testing (see /submit-bulk for large uploads)
      */
     @PostMapping(value = "/submit-batch",
                  consumes = MediaType.APPLICATION_JSON_VALUE,
                  produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<BatchSubmitResponse> submitBatch(@RequestBody BatchSubmitRequest request) {
-        log.info("Received batch submission request ({} messages)", request.messages().size());
+        int size = request.messages().size();
+        log.info("Received batch submission request ({} messages)", size);
+        if (queueAdmission.getHighWatermark() > 0 && size > queueAdmission.getHighWatermark()) {
+            // Would never fit: retrying cannot help
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        if (!queueAdmission.admit(size)) {
+            return queueFull();
+        }
         
         int successCount = 0;
         int failureCount = 0;
+        List<String> correlationIds = new ArrayList<>(request.messages().size());
         
         for (String xmlMessage : request.messages()) {
             try {
-                jmsTemplate.convertAndSend(validationQueueName, xmlMessage);
+                correlationIds.add(send(xmlMessage));
                 successCount++;
             } catch (Exception e) {
                 log.error("Failed to submit message in batch: {}", e.getMessage());
+                correlationIds.add(null);
                 failureCount++;
             }
         }
@@ -89,10 +257,148 @@ public class Pain001TestController {
         return ResponseEntity.ok(new BatchSubmitResponse(
             successCount,
             failureCount,
-            request.messages().size()
+            request.messages().size(),
+            correlationIds
         ));
     }
     
+    /**
+     * Stream newline-delimited JSON (one JSON string per message) onto the validation
+     * queue in transacted chunks, without reading the whole upload first
+     * 
+     * Example:
+     * curl -X POST http://localhost:8081/api/pain001/submit-bulk \
+     *   -H "Content-Type: application/x-ndjson" \
+     *   --data-binary @messages.ndjson
+     */
+    @PostMapping(value = "/submit-bulk",
+                 consumes = MediaType.APPLICATION_NDJSON_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkSubmitter.BulkResult> submitBulkNdjson(InputStream body) throws IOException {
+        if (!queueAdmission.admit()) {
+            return queueFull();
+        }
+        return bulkResponse(bulkSubmitter.submit(bulkSubmitter.ndjson(body)));
+    }
+    
+    /**
+     * Stream the .xml entries of a zip archive onto the validation queue
+     * 
+     * Example:
+     * curl -X POST http://localhost:8081/api/pain001/submit-bulk \
+     *   -H "Content-Type: application/zip" \
+     *   --data-binary @messages.zip
+     */
+    @PostMapping(value = "/submit-bulk",
+                 consumes = "application/zip",
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkSubmitter.BulkResult> submitBulkZip(InputStream body) {
+        if (!queueAdmission.admit()) {
+            return queueFull();
+        }
+        return bulkResponse(bulkSubmitter.submit(bulkSubmitter.zip(body)));
+    }
+    
+    /**
+     * Submit uploaded files: each part is one XML message or a zip of them
+     * 
+     * Example:
+     * curl -X POST http://localhost:8081/api/pain001/submit-bulk \
+     *   -F files=@msg1.xml -F files=@msg2.xml -F files=@more.zip
+     */
+    @PostMapping(value = "/submit-bulk",
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkSubmitter.BulkResult> submitBulkFiles(@RequestParam("files") List<MultipartFile> files) {
+        if (!queueAdmission.admit()) {
+            return queueFull();
+        }
+        Iterator<MultipartFile> parts = files.iterator();
+        BulkSubmitter.MessageSource[] archive = new BulkSubmitter.MessageSource[1];
+        
+        return bulkResponse(bulkSubmitter.submit(() -> {
+            while (true) {
+                if (archive[0] != null) {
+                    String xml = archive[0].next();
+                    if (xml != null) {
+                        return xml;
+                    }
+                    archive[0] = null;
+                }
+                if (!parts.hasNext()) {
+                    return null;
+                }
+                MultipartFile part = parts.next();
+                String name = part.getOriginalFilename() != null ? part.getOriginalFilename() : "";
+                if (name.toLowerCase(Locale.ROOT).endsWith(".zip")) {
+                    archive[0] = bulkSubmitter.zip(part.getInputStream());
+                } else if (part.getSize() > bulkSubmitter.getMaxMessageBytes()) {
+                    throw new BulkSubmitter.MessageTooLargeException("File " + name
+                        + " exceeds " + bulkSubmitter.getMaxMessageBytes() + " bytes");
+                } else {
+                    return new String(part.getBytes(), StandardCharsets.UTF_8);
+                }
+            }
+        }));
+    }
+    
+    /**
+     * 503 for a submission refused by queue admission
+     */
+    private <T> ResponseEntity<T> queueFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(queueAdmission.getRetryAfterSeconds()))
+            .build();
+    }
+    
+    /**
+     * 200, or the status of why the upload stopped early with what was submitted until then
+     */
+    private ResponseEntity<BulkSubmitter.BulkResult> bulkResponse(BulkSubmitter.BulkResult result) {
+        if (result.queueFull()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(queueAdmission.getRetryAfterSeconds()))
+                .body(result);
+        }
+        if (result.error() == null) {
+            return ResponseEntity.ok(result);
+        }
+        HttpStatus status = result.tooLarge() ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(result);
+    }
+    
+    /**
+     * Submit a message to the validation queue and wait (without holding a request
+     * thread) for its result to come back on the reply queue
+     * 
+     * 504 when no result arrives within app.validation.client.timeout.
+     * 
+     * Example:
+     * curl -X POST http://localhost:8081/api/pain001/submit-and-wait \
+     *   -H "Content-Type: application/xml" \
+     *   -d @sample_iso_pain.001.001.09.xml
+     */
+    @PostMapping(value = "/submit-and-wait",
+                 consumes = MediaType.APPLICATION_XML_VALUE,
+                 produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<ValidationResult>> submitAndWait(@RequestBody String xmlMessage) {
+        if (!queueAdmission.admit()) {
+            return CompletableFuture.completedFuture(queueFull());
+        }
+        return validationClient.submit(xmlMessage)
+            .thenApply(ResponseEntity::ok)
+            .exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null
+                    ? e.getCause()
+                    : e;
+                log.error("No validation result for submitted message: {}", cause.toString());
+                HttpStatus status = cause instanceof TimeoutException
+                    ? HttpStatus.GATEWAY_TIMEOUT
+                    : HttpStatus.INTERNAL_SERVER_ERROR;
+                return ResponseEntity.status(status).build();
+            });
+    }
+    
     /**
      * Health check endpoint
      */
@@ -105,12 +411,88 @@ public class Pain001TestController {
         ));
     }
     
+    /**
+     * Parser/validator pool hit and miss counters
+     */
+    @GetMapping(value = "/pool-stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<java.util.List<XmlPool.PoolStats>> poolStats() {
+        return ResponseEntity.ok(validationService.getPoolStats());
+    }
+    
+    /**
+     * Validation result cache counters (404 when the cache is disabled)
+     */
+    @GetMapping(value = "/cache-stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ValidationResultCache.CacheStats> cacheStats() {
+        ValidationResultCache.CacheStats stats = validationService.getCacheStats();
+        return stats != null ? ResponseEntity.ok(stats) : ResponseEntity.notFound().build();
+    }
+    
+    /**
+     * Validation queue depth against the admission watermarks
+     */
+    @GetMapping(value = "/admission-stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<QueueAdmission.AdmissionStats> admissionStats() {
+        return ResponseEntity.ok(queueAdmission.getStats());
+    }
+    
+    /**
+     * Compile state and time of the XSD schemas
+     */
+    @GetMapping(value = "/schemas", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SchemasResponse> schemas() {
+        return ResponseEntity.ok(new SchemasResponse(schemaRegistry.isReady(), schemaRegistry.getStatus()));
+    }
+    
+    /**
+     * Send a message to the validation queue with a new correlation ID
+     */
+    private String send(String xmlMessage) {
+        String correlationId = UUID.randomUUID().toString();
+        jmsTemplate.convertAndSend(validationQueueName, xmlMessage, message -> {
+            message.setJMSCorrelationID(correlationId);
+            return message;
+        });
+        return correlationId;
+    }
+    
+    /**
+     * Counts the bytes read from the request body
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        
+        private long count;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+    
     // Response DTOs
     record SubmitResponse(
         boolean success,
         String message,
         String queueName,
-        int messageSizeBytes
+        int messageSizeBytes,
+        String correlationId
     ) {}
     
     record BatchSubmitRequest(
@@ -120,7 +502,13 @@ public class Pain001TestController {
     record BatchSubmitResponse(
         int successCount,
         int failureCount,
-        int totalCount
+        int totalCount,
+        java.util.List<String> correlationIds
+    ) {}
+    
+    record SchemasResponse(
+        boolean ready,
+        java.util.List<SchemaRegistry.SchemaStatus> schemas
     ) {}
     
     record HealthResponse(
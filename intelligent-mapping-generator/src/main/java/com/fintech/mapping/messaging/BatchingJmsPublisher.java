@@ -0,0 +1,349 @@
+package com.fintech.mapping.messaging;
+
+import com.fintech.mapping.metrics.ValidationMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.UncategorizedJmsException;
+import org.springframework.jms.connection.JmsResourceHolder;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessageCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes outgoing messages (validation results, DLQ entries, mapped messages)
+ *
+ * Called from a listener with a transacted session (app.jms.listener.acknowledge-mode
+ * transacted, the default), publish() sends in that session: the outgoing messages
+ * commit together with the consumption of the incoming one, or roll back with it and
+ * the incoming message is redelivered. A failed send throws, so the listener fails.
+ *
+ * Anywhere else (e.g. listeners in dups-ok mode), callers enqueue a destination +
+ * MessageCreator and return immediately. A single flusher thread drains up to
+ * batch-size entries (waiting at most linger-ms for a batch to fill), sends them
+ * through one transacted session and commits once. A batch that fails is retried,
+ * backing off up to retry-max-ms. While no session can be opened on the broker it is
+ * retried until it goes out; meanwhile the buffer fills and publish() blocks, which
+ * pushes back on the consumers. When the broker is reachable and the batch still fails
+ * after retry-attempts, its messages are sent one at a time, and a message that keeps
+ * failing on its own (e.g. its MessageCreator throws) is logged and dropped, counted
+ * as validation.publish.dropped. The incoming messages are
+ * acknowledged independently of the buffer, so messages still buffered when the
+ * process dies are lost: only the transacted mode delivers end to end.
+ *
+ * The time from publish() to send (or to the batch commit) is recorded per message
+ * as the "publish" stage. publishNow() always sends before returning, for bodies
+ * streamed from a resource the caller releases afterwards.
+ */
+@Component
+@Slf4j
+public class BatchingJmsPublisher {
+    
+    @Autowired
+    private ConnectionFactory connectionFactory;
+    
+    @Autowired
+    private ValidationMetrics metrics;
+    
+    @Value("${app.jms.publisher.batch-size:100}")
+    private int batchSize;
+    
+    @Value("${app.jms.publisher.linger-ms:5}")
+    private long lingerMs;
+    
+    @Value("${app.jms.publisher.buffer-capacity:10000}")
+    private int bufferCapacity;
+    
+    @Value("${app.jms.publisher.retry-max-ms:5000}")
+    private long retryMaxMs;
+    
+    @Value("${app.jms.publisher.retry-attempts:5}")
+    private int retryAttempts;
+    
+    private BlockingQueue<Outgoing> buffer;
+    private JmsTemplate transactedTemplate;
+    private JmsTemplate listenerTemplate;
+    private Thread flusher;
+    private volatile boolean running;
+    
+    @PostConstruct
+    public void start() {
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        
+        transactedTemplate = new JmsTemplate(connectionFactory);
+        transactedTemplate.setSessionTransacted(true);
+        // Picks up the session a transacted listener exposes on its thread
+        listenerTemplate = new JmsTemplate(connectionFactory);
+        
+        running = true;
+        flusher = new Thread(this::flushLoop, "jms-batch-publisher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Batching JMS publisher started (batch-size={}, linger-ms={}, buffer={})",
+            batchSize, lingerMs, bufferCapacity);
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+        
+        // Publish whatever is still buffered
+        List<Outgoing> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        sendAtShutdown(remaining);
+    }
+    
+    /**
+     * Send in the listener's transaction, else queue for the next batch (blocks while
+     * the buffer is full)
+     *
+     * @throws org.springframework.jms.JmsException when the send fails or the caller is
+     *         interrupted while waiting for room in the buffer
+     */
+    public void publish(String destination, MessageCreator creator) {
+        if (inListenerTransaction()) {
+            long start = System.nanoTime();
+            listenerTemplate.send(destination, creator);
+            metrics.recordStage(ValidationMetrics.Stage.PUBLISH, System.nanoTime() - start);
+        } else {
+            enqueue(new Outgoing(destination, null, creator, System.nanoTime()));
+        }
+    }
+    
+    /**
+     * Publish to a destination object, e.g. the JMSReplyTo of a request
+     */
+    public void publish(Destination destination, MessageCreator creator) {
+        if (inListenerTransaction()) {
+            long start = System.nanoTime();
+            listenerTemplate.send(destination, creator);
+            metrics.recordStage(ValidationMetrics.Stage.PUBLISH, System.nanoTime() - start);
+        } else {
+            enqueue(new Outgoing(destination.toString(), destination, creator, System.nanoTime()));
+        }
+    }
+    
+    /**
+     * Send before returning: in the listener's transaction, else in a transaction of its
+     * own. For messages whose body is streamed from something the caller releases
+     * afterwards (see {@link SpooledBody}).
+     */
+    public void publishNow(String destination, MessageCreator creator) {
+        long start = System.nanoTime();
+        if (inListenerTransaction()) {
+            listenerTemplate.send(destination, creator);
+        } else {
+            transactedTemplate.send(destination, creator);
+        }
+        metrics.recordStage(ValidationMetrics.Stage.PUBLISH, System.nanoTime() - start);
+    }
+    
+    /**
+     * Whether the current thread runs a listener whose session is transacted
+     */
+    private boolean inListenerTransaction() {
+        if (TransactionSynchronizationManager.getResource(connectionFactory) instanceof JmsResourceHolder holder) {
+            Session session = holder.getSession();
+            try {
+                return session != null && session.getTransacted();
+            } catch (JMSException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    private void enqueue(Outgoing outgoing) {
+        try {
+            buffer.put(outgoing);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncategorizedJmsException("Interrupted while queueing message for " + outgoing.name(), e);
+        }
+    }
+    
+    private void flushLoop() {
+        List<Outgoing> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Outgoing first = buffer.poll(lingerMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                
+                // Give the batch up to linger-ms to fill
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Outgoing next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                
+                sendWithRetry(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Stopping: stop() publishes the rest of the buffer
+                Thread.currentThread().interrupt();
+                sendAtShutdown(batch);
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Send a batch; if it keeps failing with the broker reachable, send its messages one
+     * at a time and drop those that still fail, so one bad message cannot hold up the rest
+     */
+    private void sendWithRetry(List<Outgoing> batch) throws InterruptedException {
+        if (sendRetrying(batch)) {
+            return;
+        }
+        if (batch.size() > 1) {
+            log.warn("⚠️  Publishing the {} messages of the failed batch one at a time", batch.size());
+            for (Outgoing outgoing : batch) {
+                if (!sendRetrying(List.of(outgoing))) {
+                    drop(outgoing);
+                }
+            }
+        } else {
+            drop(batch.get(0));
+        }
+    }
+    
+    /**
+     * Send a batch, retrying with a growing pause: without limit while the broker cannot
+     * be reached, else up to retry-attempts times
+     *
+     * @return false when the attempts ran out
+     */
+    private boolean sendRetrying(List<Outgoing> batch) throws InterruptedException {
+        long pauseMs = 10;
+        int failures = 0;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sendBatch(batch);
+                return true;
+            } catch (Exception e) {
+                boolean reachable = brokerReachable();
+                if (reachable && ++failures >= retryAttempts) {
+                    log.error("❌ Failed to publish batch of {} messages after {} attempts: {}",
+                        batch.size(), failures, e.getMessage());
+                    return false;
+                }
+                log.error("❌ Failed to publish batch of {} messages (attempt {}{}), retrying in {} ms: {}",
+                    batch.size(), attempt, reachable ? "" : ", broker unreachable", pauseMs, e.getMessage());
+                TimeUnit.MILLISECONDS.sleep(pauseMs);
+                pauseMs = Math.min(pauseMs * 2, retryMaxMs);
+            }
+        }
+    }
+    
+    /**
+     * Whether a session can be opened, i.e. a failed send lies with its messages rather
+     * than with the connection
+     */
+    private boolean brokerReachable() {
+        try {
+            transactedTemplate.execute(session -> null);
+            return true;
+        } catch (JmsException e) {
+            return false;
+        }
+    }
+    
+    private void drop(Outgoing outgoing) {
+        log.error("❌ Dropped a message for {}: it cannot be published", outgoing.name());
+        metrics.recordPublishDropped(outgoing.name());
+    }
+    
+    /**
+     * One attempt only: the broker may be stopping too
+     */
+    private void sendAtShutdown(List<Outgoing> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            sendBatch(batch);
+        } catch (Exception e) {
+            log.error("❌ {} buffered messages could not be published at shutdown: {}", batch.size(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Send a batch in one transacted session and commit once
+     *
+     * @throws org.springframework.jms.JmsException when the batch was rolled back
+     */
+    private void sendBatch(List<Outgoing> batch) {
+        transactedTemplate.execute(session -> {
+            Map<String, MessageProducer> producers = new HashMap<>();
+            try {
+                for (Outgoing outgoing : batch) {
+                    MessageProducer producer = producers.computeIfAbsent(outgoing.name(),
+                        name -> createProducer(session, outgoing));
+                    producer.send(outgoing.creator().createMessage(session));
+                }
+                session.commit();
+            } catch (JMSException | RuntimeException e) {
+                session.rollback();
+                throw e;
+            } finally {
+                for (MessageProducer producer : producers.values()) {
+                    producer.close();
+                }
+            }
+            return null;
+        }, true);
+        long committed = System.nanoTime();
+        for (Outgoing outgoing : batch) {
+            metrics.recordStage(ValidationMetrics.Stage.PUBLISH, committed - outgoing.queuedAt());
+        }
+        log.debug("✓ Published batch of {} messages", batch.size());
+    }
+    
+    private static MessageProducer createProducer(Session session, Outgoing outgoing) {
+        try {
+            Destination destination = outgoing.destination() != null
+                ? outgoing.destination()
+                : session.createQueue(outgoing.name());
+            return session.createProducer(destination);
+        } catch (JMSException e) {
+            throw new IllegalStateException("Cannot create producer for " + outgoing.name(), e);
+        }
+    }
+    
+    /**
+     * @param name        queue name, or the destination's string form
+     * @param destination the destination when not given by name
+     * @param queuedAt    System.nanoTime() of publish()
+     */
+    private record Outgoing(String name, Destination destination, MessageCreator creator, long queuedAt) {}
+}
@@ -0,0 +1,75 @@
+package com.fintech.mapping.messaging;
+
+import org.apache.activemq.artemis.api.core.SimpleString;
+import org.apache.activemq.artemis.api.core.management.QueueControl;
+import org.apache.activemq.artemis.api.core.management.ResourceNames;
+import org.apache.activemq.artemis.core.server.ActiveMQServer;
+import org.apache.activemq.artemis.core.server.Queue;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read-only view of queues on the embedded Artemis broker (depth, consumers, age)
+ *
+ * Every figure is 0 when there is no embedded broker (e.g. an external one) or the
+ * queue has not been created yet.
+ */
+@Component
+public class BrokerQueues {
+    
+    @Autowired
+    private ObjectProvider<EmbeddedActiveMQ> embeddedBroker;
+    
+    /**
+     * Messages in the queue, including those delivered but not yet acknowledged
+     */
+    public long messageCount(String queueName) {
+        Queue queue = locate(queueName);
+        return queue != null ? queue.getMessageCount() : 0;
+    }
+    
+    /**
+     * Messages delivered to consumers and not yet acknowledged
+     */
+    public long deliveringCount(String queueName) {
+        Queue queue = locate(queueName);
+        return queue != null ? queue.getDeliveringCount() : 0;
+    }
+    
+    public int consumerCount(String queueName) {
+        Queue queue = locate(queueName);
+        return queue != null ? queue.getConsumerCount() : 0;
+    }
+    
+    /**
+     * Age in milliseconds of the oldest message waiting in the queue (how far consumers lag behind)
+     */
+    public long oldestMessageAgeMs(String queueName) {
+        ActiveMQServer server = server();
+        if (server == null) {
+            return 0;
+        }
+        Object control = server.getManagementService().getResource(ResourceNames.QUEUE + queueName);
+        if (control instanceof QueueControl queueControl) {
+            try {
+                Long age = queueControl.getFirstMessageAge();
+                return age != null ? age : 0;
+            } catch (Exception e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+    
+    private Queue locate(String queueName) {
+        ActiveMQServer server = server();
+        return server != null ? server.locateQueue(SimpleString.toSimpleString(queueName)) : null;
+    }
+    
+    private ActiveMQServer server() {
+        EmbeddedActiveMQ broker = embeddedBroker.getIfAvailable();
+        return broker != null ? broker.getActiveMQServer() : null;
+    }
+}
@@ -0,0 +1,299 @@
+package com.fintech.mapping.messaging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import jakarta.annotation.PostConstruct;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Streams a bulk upload onto the validation queue
+ *
+ * Messages are read one at a time from the upload (NDJSON or a zip of XML files)
+ * and sent through a single transacted session and producer, committed every
+ * chunk-size messages. Within a transaction Artemis does not wait for the broker to
+ * confirm each send, so a chunk costs one round trip (the commit) instead of one per
+ * message. Only the message being sent is held in memory.
+ *
+ * Message n of the upload (1-based) is sent with JMSCorrelationID
+ * "&lt;correlationIdPrefix&gt;-n", the prefix being returned in the {@link BulkResult}, so
+ * results can be matched to the upload. A message (zip entry or NDJSON string) larger
+ * than max-message-bytes fails the upload before it is read into memory.
+ *
+ * A chunk that fails to send or commit is rolled back and counted as failed; the
+ * upload continues with the next chunk. An upload that cannot be read to the end
+ * (malformed, or a message too large) stops there: the chunk being filled is rolled
+ * back, the chunks committed before it stay submitted.
+ *
+ * Queue admission (see {@link QueueAdmission}) is asked again before every chunk after
+ * the first, which the caller admitted: once the validation queue is full the upload
+ * stops there, the chunks committed before stay submitted and the result says so.
+ */
+@Component
+@Slf4j
+public class BulkSubmitter {
+    
+    private static final String XML_SUFFIX = ".xml";
+    
+    @Autowired
+    private ConnectionFactory connectionFactory;
+    
+    @Autowired
+    private QueueAdmission queueAdmission;
+    
+    @Value("${app.validation.queue-name}")
+    private String validationQueueName;
+    
+    @Value("${app.jms.bulk.chunk-size:1000}")
+    private int chunkSize;
+    
+    @Value("${app.jms.bulk.max-message-bytes:16777216}")
+    private int maxMessageBytes;
+    
+    private JmsTemplate transactedTemplate;
+    private JsonFactory jsonFactory;
+    
+    @PostConstruct
+    public void init() {
+        transactedTemplate = new JmsTemplate(connectionFactory);
+        transactedTemplate.setSessionTransacted(true);
+        jsonFactory = JsonFactory.builder()
+            .streamReadConstraints(StreamReadConstraints.builder().maxStringLength(maxMessageBytes).build())
+            .build();
+        log.info("Bulk submitter: chunk-size={}, max-message-bytes={}", chunkSize, maxMessageBytes);
+    }
+    
+    /**
+     * Newline-delimited JSON: one JSON string (the XML message) per line
+     */
+    public MessageSource ndjson(InputStream body) throws IOException {
+        return new NdjsonSource(jsonFactory.createParser(body), maxMessageBytes);
+    }
+    
+    /**
+     * Every .xml entry of a zip archive (other entries are skipped)
+     */
+    public MessageSource zip(InputStream body) {
+        return new ZipSource(body, maxMessageBytes);
+    }
+    
+    /**
+     * Largest message accepted (a zip entry, an NDJSON string or an uploaded file)
+     */
+    public int getMaxMessageBytes() {
+        return maxMessageBytes;
+    }
+    
+    /**
+     * Submit the messages of a source in transacted chunks over one session
+     */
+    public BulkResult submit(MessageSource source) {
+        long start = System.nanoTime();
+        int[] counts = new int[3]; // submitted, failed, chunks
+        IOException[] error = new IOException[1];
+        boolean[] queueFull = new boolean[1];
+        String correlationIdPrefix = UUID.randomUUID().toString();
+        
+        transactedTemplate.execute(session -> {
+            MessageProducer producer = session.createProducer(session.createQueue(validationQueueName));
+            try {
+                int sequence = 0;
+                int inChunk = 0;
+                boolean chunkFailed = false;
+                String xml;
+                while ((xml = next(source, error)) != null) {
+                    if (inChunk == 0 && sequence > 0 && !queueAdmission.admit()) {
+                        queueFull[0] = true;
+                        log.warn("Validation queue full, bulk upload stopped before message {}", sequence + 1);
+                        break;
+                    }
+                    sequence++;
+                    if (!chunkFailed) {
+                        try {
+                            TextMessage message = session.createTextMessage(xml);
+                            message.setJMSCorrelationID(correlationIdPrefix + "-" + sequence);
+                            producer.send(message);
+                        } catch (JMSException e) {
+                            log.error("Bulk send failed, rolling back chunk: {}", e.getMessage());
+                            chunkFailed = true;
+                        }
+                    }
+                    if (++inChunk == chunkSize) {
+                        completeChunk(session, inChunk, chunkFailed, counts);
+                        inChunk = 0;
+                        chunkFailed = false;
+                    }
+                }
+                if (inChunk > 0) {
+                    // An upload that broke off is not submitted past the last full chunk
+                    completeChunk(session, inChunk, chunkFailed || error[0] != null, counts);
+                }
+            } finally {
+                producer.close();
+            }
+            return null;
+        }, true);
+        
+        long elapsedNanos = System.nanoTime() - start;
+        String stoppedBecause = queueFull[0]
+            ? "Validation queue full, messages from " + (counts[0] + counts[1] + 1) + " on were not submitted"
+            : error[0] != null ? error[0].getMessage() : null;
+        BulkResult result = new BulkResult(counts[0], counts[1], counts[2], elapsedNanos / 1_000_000,
+            elapsedNanos > 0 ? counts[0] * 1e9 / elapsedNanos : 0, correlationIdPrefix,
+            stoppedBecause, error[0] instanceof MessageTooLargeException, queueFull[0]);
+        log.info("Bulk submission: {} submitted, {} failed in {} chunks ({} ms, {} msg/s)",
+            result.submitted(), result.failed(), result.chunks(), result.elapsedMs(),
+            Math.round(result.messagesPerSecond()));
+        return result;
+    }
+    
+    private static String next(MessageSource source, IOException[] error) {
+        if (error[0] != null) {
+            return null;
+        }
+        try {
+            return source.next();
+        } catch (IOException | RuntimeException e) {
+            error[0] = e instanceof IOException io ? io : new IOException(e.getMessage(), e);
+            log.error("Cannot read bulk upload: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private static void completeChunk(Session session, int size, boolean failed, int[] counts) {
+        if (!failed) {
+            try {
+                session.commit();
+                counts[0] += size;
+                counts[2]++;
+                return;
+            } catch (JMSException e) {
+                log.error("Bulk commit failed for chunk of {}: {}", size, e.getMessage());
+            }
+        }
+        try {
+            session.rollback();
+        } catch (JMSException e) {
+            log.warn("Bulk rollback failed: {}", e.getMessage());
+        }
+        counts[1] += size;
+        counts[2]++;
+    }
+    
+    /**
+     * Messages of an upload, read one at a time
+     */
+    @FunctionalInterface
+    public interface MessageSource {
+        
+        /**
+         * @return the next XML message, or null at the end
+         */
+        String next() throws IOException;
+    }
+    
+    /**
+     * One JSON string per line (any whitespace between values is accepted)
+     */
+    private static final class NdjsonSource implements MessageSource {
+        
+        private final JsonParser parser;
+        private final int maxMessageBytes;
+        
+        NdjsonSource(JsonParser parser, int maxMessageBytes) {
+            this.parser = parser;
+            this.maxMessageBytes = maxMessageBytes;
+        }
+        
+        @Override
+        public String next() throws IOException {
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == null) {
+                    return null;
+                }
+                if (token != JsonToken.VALUE_STRING) {
+                    throw new IOException("Expected a JSON string per line, found " + token
+                        + " at line " + parser.currentLocation().getLineNr());
+                }
+                return parser.getText();
+            } catch (StreamConstraintsException e) {
+                throw new MessageTooLargeException("Message at line " + parser.currentLocation().getLineNr()
+                    + " exceeds " + maxMessageBytes + " characters");
+            }
+        }
+    }
+    
+    /**
+     * The .xml entries of a zip archive, decoded as UTF-8
+     */
+    private static final class ZipSource implements MessageSource {
+        
+        private final ZipInputStream zip;
+        private final int maxEntryBytes;
+        
+        ZipSource(InputStream body, int maxEntryBytes) {
+            this.zip = new ZipInputStream(body);
+            this.maxEntryBytes = maxEntryBytes;
+        }
+        
+        @Override
+        public String next() throws IOException {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory() && entry.getName().toLowerCase(Locale.ROOT).endsWith(XML_SUFFIX)) {
+                    // The declared size may be absent or wrong: count what is inflated
+                    byte[] xml = entry.getSize() <= maxEntryBytes ? zip.readNBytes(maxEntryBytes + 1) : null;
+                    if (xml == null || xml.length > maxEntryBytes) {
+                        throw new MessageTooLargeException("Zip entry " + entry.getName()
+                            + " exceeds " + maxEntryBytes + " bytes");
+                    }
+                    return new String(xml, StandardCharsets.UTF_8);
+                }
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * A message of the upload is larger than app.jms.bulk.max-message-bytes
+     */
+    public static final class MessageTooLargeException extends IOException {
+        
+        public MessageTooLargeException(String message) {
+            super(message);
+        }
+    }
+    
+    /**
+     * @param failed              messages in chunks that were rolled back
+     * @param messagesPerSecond   submitted messages per second of the whole upload
+     * @param correlationIdPrefix message n of the upload was sent with JMSCorrelationID
+     *                            "&lt;prefix&gt;-n" (n from 1)
+     * @param error               why the upload was not read to the end, or null
+     * @param tooLarge            the upload stopped at a message over max-message-bytes
+     * @param queueFull           the upload stopped because queue admission refused its next chunk
+     */
+    public record BulkResult(int submitted, int failed, int chunks, long elapsedMs,
+                             double messagesPerSecond, String correlationIdPrefix, String error,
+                             boolean tooLarge, boolean queueFull) {}
+}
@@ -0,0 +1,82 @@
+package com.fintech.mapping.messaging;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Artemis large-message helpers for payloads that must not be held in memory
+ *
+ * On send, the body is pulled from an InputStream chunk by chunk (JMS_AMQ_InputStream).
+ * On receive, a large BytesMessage is streamed from the broker as it is read, so
+ * wrapping it in an InputStream keeps only the client window in the heap.
+ */
+public final class LargeMessages {
+    
+    /**
+     * Artemis message property: stream the body of a BytesMessage from this InputStream
+     */
+    public static final String INPUT_STREAM_PROPERTY = "JMS_AMQ_InputStream";
+    
+    private static final int READ_CHUNK_SIZE = 64 * 1024;
+    
+    private LargeMessages() {
+    }
+    
+    /**
+     * BytesMessage whose body is streamed from {@code body} when it is sent
+     */
+    public static BytesMessage streamingMessage(Session session, InputStream body) throws JMSException {
+        BytesMessage message = session.createBytesMessage();
+        message.setObjectProperty(INPUT_STREAM_PROPERTY, body);
+        return message;
+    }
+    
+    /**
+     * Read the body of a BytesMessage as a stream
+     */
+    public static InputStream bodyOf(BytesMessage message) {
+        return new InputStream() {
+            
+            private final byte[] chunk = new byte[READ_CHUNK_SIZE];
+            private int position;
+            private int limit;
+            
+            @Override
+            public int read() throws IOException {
+                if (position >= limit && !fill()) {
+                    return -1;
+                }
+                return chunk[position++] & 0xFF;
+            }
+            
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return 0;
+                }
+                if (position >= limit && !fill()) {
+                    return -1;
+                }
+                int count = Math.min(length, limit - position);
+                System.arraycopy(chunk, position, buffer, offset, count);
+                position += count;
+                return count;
+            }
+            
+            private boolean fill() throws IOException {
+                try {
+                    int read = message.readBytes(chunk);
+                    position = 0;
+                    limit = Math.max(read, 0);
+                    return read > 0;
+                } catch (JMSException e) {
+                    throw new IOException("Cannot read message body: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package com.fintech.mapping.messaging;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for submissions to the validation queue, based on its depth
+ *
+ * Once the queue holds high-watermark messages, new submissions are refused until
+ * the consumers have drained it to low-watermark (hysteresis, so admission does not
+ * flap around a single threshold). The depth is read from the embedded broker's queue;
+ * with an external broker, or high-watermark 0, everything is admitted.
+ *
+ * This is the polite first line: callers get a retryable answer instead of waiting.
+ * Behind it the broker bounds the address itself (max-size-bytes with policy BLOCK),
+ * which holds back producers that get past this check.
+ */
+@Component
+@Slf4j
+public class QueueAdmission {
+    
+    @Autowired
+    private BrokerQueues brokerQueues;
+    
+    @Value("${app.validation.queue-name}")
+    private String validationQueueName;
+    
+    @Value("${app.validation.admission.high-watermark:0}")
+    private long highWatermark;
+    
+    @Value("${app.validation.admission.low-watermark:0}")
+    private long lowWatermark;
+    
+    @Value("${app.validation.admission.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+    
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean shedding;
+    
+    @PostConstruct
+    public void init() {
+        if (lowWatermark <= 0 || lowWatermark > highWatermark) {
+            lowWatermark = highWatermark * 8 / 10;
+        }
+        if (highWatermark > 0) {
+            log.info("Validation queue admission: reject above {} messages until drained to {}",
+                highWatermark, lowWatermark);
+        }
+    }
+    
+    /**
+     * Whether a submission may be queued now (rejections are counted)
+     */
+    public boolean admit() {
+        return admit(1);
+    }
+    
+    /**
+     * Whether a submission of several messages may be queued now: the queue must stay
+     * within the high watermark once they are all in (rejections are counted)
+     *
+     * A submission that does not fit is refused without entering shedding mode, so
+     * smaller ones are still admitted meanwhile.
+     */
+    public boolean admit(int messages) {
+        if (highWatermark <= 0) {
+            return true;
+        }
+        long depth = depth();
+        if (shedding) {
+            if (depth > lowWatermark) {
+                rejected.increment();
+                return false;
+            }
+            shedding = false;
+            log.info("Validation queue drained to {}, admitting submissions again", depth);
+        }
+        if (depth >= highWatermark) {
+            if (!shedding) {
+                shedding = true;
+                log.warn("Validation queue at {} messages (high watermark {}), rejecting submissions",
+                    depth, highWatermark);
+            }
+            rejected.increment();
+            return false;
+        }
+        if (depth + messages > highWatermark) {
+            log.debug("{} messages would take the validation queue from {} over {}, rejected",
+                messages, depth, highWatermark);
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Most messages a single submission can ever be admitted with (0 = no limit)
+     */
+    public long getHighWatermark() {
+        return highWatermark;
+    }
+    
+    /**
+     * Messages waiting in (or being delivered from) the validation queue; 0 when unknown
+     */
+    public long depth() {
+        return brokerQueues.messageCount(validationQueueName);
+    }
+    
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+    
+    public AdmissionStats getStats() {
+        return new AdmissionStats(depth(), highWatermark, lowWatermark, shedding, rejected.sum());
+    }
+    
+    public record AdmissionStats(long depth, long highWatermark, long lowWatermark,
+                                 boolean shedding, long rejected) {}
+}
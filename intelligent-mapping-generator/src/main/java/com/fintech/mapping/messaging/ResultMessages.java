@@ -0,0 +1,412 @@
+package com.fintech.mapping.messaging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fintech.mapping.model.SanitizedField;
+import com.fintech.mapping.model.SchemaType;
+import com.fintech.mapping.model.ValidationError;
+import com.fintech.mapping.model.ValidationResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the outgoing JMS messages for validation results and DLQ entries
+ *
+ * Results are written with a streaming Jackson generator straight into the body of a
+ * BytesMessage (no intermediate String or byte[]), as JSON or, with
+ * app.validation.result-format=smile, as Smile (binary JSON: smaller and cheaper to
+ * parse). The body format is in the {@value #CONTENT_TYPE} property, and
+ * {@link #readResult} reads either back.
+ *
+ * A DLQ entry carries the original payload unchanged as its body; what went wrong is
+ * in message properties. Mapped messages (pacs.008 from a pain.001) carry the target
+ * XML as a BytesMessage body. All of them carry the correlation ID of the consumed message
+ * (its JMSCorrelationID, or its JMSMessageID when it had none) as JMSCorrelationID.
+ */
+@Component
+@Slf4j
+public class ResultMessages {
+    
+    public enum ResultFormat { JSON, SMILE }
+    
+    // Message properties
+    public static final String CONTENT_TYPE = "contentType";
+    public static final String VALID = "valid";
+    public static final String MESSAGE_ID = "messageId";
+    public static final String MESSAGE_TYPE = "messageType";
+    public static final String DETECTED_SCHEMA = "detectedSchema";
+    public static final String ERROR_COUNT = "errorCount";
+    public static final String FIRST_ERROR = "firstError";
+    public static final String FAILURE_REASON = "failureReason";
+    public static final String MAPPING_ID = "mappingId";
+    public static final String FAILURE_STAGE = "failureStage";
+    public static final String RECORD_NUMBER = "recordNumber";
+    public static final String RECORDS_PUBLISHED = "recordsPublished";
+    public static final String SANITIZED_FIELDS = "sanitizedFields";
+    public static final String DUPLICATE_FIELD = "duplicateField";
+    public static final String DUPLICATE_VALUE = "duplicateValue";
+    
+    private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+    private static final String XML_CONTENT_TYPE = "application/xml";
+    private static final int MAX_PROPERTY_LENGTH = 1024;
+    
+    // Thread-safe; generators and parsers recycle their buffers per thread
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final JsonFactory SMILE_FACTORY = new SmileFactory();
+    
+    @Value("${app.validation.result-format:json}")
+    private ResultFormat resultFormat;
+    
+    private JsonFactory jsonFactory;
+    private String contentType;
+    
+    @PostConstruct
+    public void init() {
+        jsonFactory = resultFormat == ResultFormat.SMILE ? SMILE_FACTORY : JSON_FACTORY;
+        contentType = resultFormat == ResultFormat.SMILE ? SMILE_CONTENT_TYPE : JSON_CONTENT_TYPE;
+        log.info("Validation results are published as {}", contentType);
+    }
+    
+    /**
+     * Result message for the results queue
+     *
+     * @param correlationId correlation ID of the validated message, or null
+     */
+    public BytesMessage resultMessage(Session session, ValidationResult result, String correlationId) throws JMSException {
+        BytesMessage message = session.createBytesMessage();
+        message.setJMSCorrelationID(correlationId);
+        message.setStringProperty(CONTENT_TYPE, contentType);
+        message.setBooleanProperty(VALID, result.isValid());
+        message.setStringProperty(MESSAGE_ID, result.getMessageId());
+        
+        try (JsonGenerator generator = jsonFactory.createGenerator(bodyOf(message))) {
+            write(generator, result);
+        } catch (IOException e) {
+            throw jmsException("Cannot write validation result", e);
+        }
+        return message;
+    }
+    
+    /**
+     * Read a result message written by {@link #resultMessage} (JSON or Smile)
+     */
+    public ValidationResult readResult(BytesMessage message) throws JMSException {
+        JsonFactory factory = SMILE_CONTENT_TYPE.equals(message.getStringProperty(CONTENT_TYPE))
+            ? SMILE_FACTORY
+            : JSON_FACTORY;
+        try (JsonParser parser = factory.createParser(LargeMessages.bodyOf(message))) {
+            return read(parser);
+        } catch (IOException | RuntimeException e) {
+            throw jmsException("Cannot read validation result", e);
+        }
+    }
+    
+    /**
+     * DLQ entry with the original payload as body
+     *
+     * @param payload       the message as received
+     * @param result        the validation result, or null when processing failed
+     * @param correlationId correlation ID of the rejected message
+     */
+    public Message deadLetterMessage(Session session, String payload, ValidationResult result,
+                                     String correlationId) throws JMSException {
+        return deadLetter(session.createTextMessage(payload), result, correlationId);
+    }
+    
+    /**
+     * DLQ entry for a message received as a (large) bytes message, its body streamed
+     * from {@code payload} when it is sent
+     */
+    public BytesMessage deadLetterMessage(Session session, InputStream payload, ValidationResult result,
+                                          String correlationId) throws JMSException {
+        return deadLetter(LargeMessages.streamingMessage(session, payload), result, correlationId);
+    }
+    
+    private <M extends Message> M deadLetter(M message, ValidationResult result, String correlationId)
+            throws JMSException {
+        message.setJMSCorrelationID(correlationId);
+        message.setBooleanProperty(VALID, false);
+        
+        if (result == null) {
+            message.setStringProperty(FAILURE_REASON, "Processing failed");
+            return message;
+        }
+        message.setStringProperty(MESSAGE_ID, result.getMessageId());
+        message.setStringProperty(MESSAGE_TYPE, result.getMessageType());
+        if (result.getDetectedSchemaType() != null) {
+            message.setStringProperty(DETECTED_SCHEMA, result.getDetectedSchemaType().name());
+        }
+        List<ValidationError> errors = result.getErrors() != null ? result.getErrors() : List.of();
+        message.setIntProperty(ERROR_COUNT, errors.size());
+        if (!errors.isEmpty()) {
+            message.setStringProperty(FIRST_ERROR, truncate(errors.get(0).toString()));
+        }
+        if (result.getAdditionalInfo() != null) {
+            message.setStringProperty(FAILURE_REASON, truncate(result.getAdditionalInfo()));
+        }
+        if (result.getSanitizedFields() != null && !result.getSanitizedFields().isEmpty()) {
+            message.setStringProperty(SANITIZED_FIELDS, truncate(result.getSanitizedFields().stream()
+                .map(SanitizedField::getField)
+                .collect(Collectors.joining(","))));
+        }
+        return message;
+    }
+    
+    /**
+     * Target message of a mapping, for the mapping output queue
+     *
+     * @param xml           the mapped message, UTF-8 encoded
+     * @param recordNumber  1-based position of the record in the source message when it
+     *                      was split (one message per transaction), 0 otherwise
+     * @param correlationId correlation ID of the source message
+     */
+    public BytesMessage mappedMessage(Session session, byte[] xml, String mappingId, int recordNumber,
+                                      String correlationId) throws JMSException {
+        BytesMessage message = session.createBytesMessage();
+        message.setJMSCorrelationID(correlationId);
+        message.setStringProperty(CONTENT_TYPE, XML_CONTENT_TYPE);
+        message.setStringProperty(MAPPING_ID, mappingId);
+        if (recordNumber > 0) {
+            message.setIntProperty(RECORD_NUMBER, recordNumber);
+        }
+        message.writeBytes(xml);
+        return message;
+    }
+    
+    /**
+     * DLQ entry for a valid message that could not be mapped, with the original payload as body
+     *
+     * @param recordsPublished target messages already published when a split failed part way
+     */
+    public Message failedMappingMessage(Session session, String payload, String mappingId, int recordsPublished,
+                                        Exception cause, String correlationId) throws JMSException {
+        Message message = session.createTextMessage(payload);
+        message.setJMSCorrelationID(correlationId);
+        message.setStringProperty(FAILURE_STAGE, "mapping");
+        message.setStringProperty(MAPPING_ID, mappingId);
+        message.setIntProperty(RECORDS_PUBLISHED, recordsPublished);
+        message.setStringProperty(FAILURE_REASON, truncate(String.valueOf(cause.getMessage())));
+        return message;
+    }
+    
+    /**
+     * Duplicates queue entry with the original payload as body
+     *
+     * @param result the validation result, or null when the check ran before validation
+     * @param field  ID that was seen before ("MsgId" or "UETR")
+     */
+    public Message duplicateMessage(Session session, String payload, ValidationResult result, String field,
+                                    String value, String correlationId) throws JMSException {
+        Message message = session.createTextMessage(payload);
+        message.setJMSCorrelationID(correlationId);
+        message.setStringProperty(DUPLICATE_FIELD, field);
+        message.setStringProperty(DUPLICATE_VALUE, truncate(value));
+        if (result != null) {
+            message.setStringProperty(MESSAGE_ID, result.getMessageId());
+            message.setStringProperty(MESSAGE_TYPE, result.getMessageType());
+        }
+        return message;
+    }
+    
+    /**
+     * Field names are those of the original JSON result, plus the error list, the
+     * fields changed by sanitizing and the duplicate flag (only when there are any / set)
+     */
+    private static void write(JsonGenerator generator, ValidationResult result) throws IOException {
+        List<ValidationError> errors = result.getErrors() != null ? result.getErrors() : List.of();
+        
+        generator.writeStartObject();
+        generator.writeBooleanField("valid", result.isValid());
+        writeString(generator, "detectedSchema", result.getDetectedSchemaType());
+        writeString(generator, "validatedAgainst", result.getValidatedAgainstSchema());
+        writeString(generator, "messageType", result.getMessageType());
+        writeString(generator, "messageId", result.getMessageId());
+        generator.writeNumberField("errorCount", errors.size());
+        generator.writeNumberField("processingTimeMs", result.getProcessingTimeMs());
+        generator.writeBooleanField("cached", result.isCached());
+        writeString(generator, "validatedAt", result.getValidatedAt());
+        if (result.getAdditionalInfo() != null) {
+            generator.writeStringField("additionalInfo", result.getAdditionalInfo());
+        }
+        
+        generator.writeArrayFieldStart("errors");
+        for (ValidationError error : errors) {
+            generator.writeStartObject();
+            generator.writeStringField("message", error.getMessage());
+            generator.writeNumberField("lineNumber", error.getLineNumber());
+            generator.writeNumberField("columnNumber", error.getColumnNumber());
+            generator.writeStringField("errorType", error.getErrorType());
+            if (error.getXpath() != null) {
+                generator.writeStringField("xpath", error.getXpath());
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        
+        List<SanitizedField> sanitizedFields = result.getSanitizedFields();
+        if (sanitizedFields != null && !sanitizedFields.isEmpty()) {
+            generator.writeArrayFieldStart("sanitizedFields");
+            for (SanitizedField field : sanitizedFields) {
+                generator.writeStartObject();
+                generator.writeStringField("field", field.getField());
+                generator.writeNumberField("removed", field.getRemoved());
+                generator.writeNumberField("transliterated", field.getTransliterated());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        if (result.isDuplicate()) {
+            generator.writeBooleanField("duplicate", true);
+        }
+        generator.writeEndObject();
+    }
+    
+    private static ValidationResult read(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Validation result is not an object");
+        }
+        ValidationResult.ValidationResultBuilder result = ValidationResult.builder();
+        List<ValidationError> errors = new ArrayList<>();
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "valid" -> result.valid(parser.getBooleanValue());
+                case "detectedSchema" -> result.detectedSchemaType(schemaType(parser.getValueAsString()));
+                case "validatedAgainst" -> result.validatedAgainstSchema(schemaType(parser.getValueAsString()));
+                case "messageType" -> result.messageType(parser.getValueAsString());
+                case "messageId" -> result.messageId(parser.getValueAsString());
+                case "processingTimeMs" -> result.processingTimeMs(parser.getLongValue());
+                case "cached" -> result.cached(parser.getBooleanValue());
+                case "validatedAt" -> {
+                    String validatedAt = parser.getValueAsString();
+                    result.validatedAt(validatedAt != null ? LocalDateTime.parse(validatedAt) : null);
+                }
+                case "additionalInfo" -> result.additionalInfo(parser.getValueAsString());
+                case "errors" -> {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        errors.add(readError(parser));
+                    }
+                }
+                case "sanitizedFields" -> {
+                    List<SanitizedField> sanitizedFields = new ArrayList<>();
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        sanitizedFields.add(readSanitizedField(parser));
+                    }
+                    result.sanitizedFields(sanitizedFields);
+                }
+                case "duplicate" -> result.duplicate(parser.getBooleanValue());
+                // errorCount is implied by the list
+                default -> parser.skipChildren();
+            }
+        }
+        return result.errors(errors).build();
+    }
+    
+    private static ValidationError readError(JsonParser parser) throws IOException {
+        ValidationError.ValidationErrorBuilder error = ValidationError.builder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "message" -> error.message(parser.getValueAsString());
+                case "lineNumber" -> error.lineNumber(parser.getIntValue());
+                case "columnNumber" -> error.columnNumber(parser.getIntValue());
+                case "errorType" -> error.errorType(parser.getValueAsString());
+                case "xpath" -> error.xpath(parser.getValueAsString());
+                default -> parser.skipChildren();
+            }
+        }
+        return error.build();
+    }
+    
+    private static SanitizedField readSanitizedField(JsonParser parser) throws IOException {
+        SanitizedField.SanitizedFieldBuilder field = SanitizedField.builder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "field" -> field.field(parser.getValueAsString());
+                case "removed" -> field.removed(parser.getIntValue());
+                case "transliterated" -> field.transliterated(parser.getIntValue());
+                default -> parser.skipChildren();
+            }
+        }
+        return field.build();
+    }
+    
+    /**
+     * Schema type from its display name as written in results
+     */
+    private static SchemaType schemaType(String displayName) {
+        for (SchemaType type : SchemaType.values()) {
+            if (type.toString().equals(displayName)) {
+                return type;
+            }
+        }
+        return null;
+    }
+    
+    private static void writeString(JsonGenerator generator, String field, Object value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field, value.toString());
+        } else {
+            generator.writeNullField(field);
+        }
+    }
+    
+    private static String truncate(String value) {
+        return value.length() > MAX_PROPERTY_LENGTH ? value.substring(0, MAX_PROPERTY_LENGTH) : value;
+    }
+    
+    /**
+     * Write through to the body of a BytesMessage
+     */
+    private static OutputStream bodyOf(BytesMessage message) {
+        return new OutputStream() {
+            
+            @Override
+            public void write(int b) throws IOException {
+                try {
+                    message.writeByte((byte) b);
+                } catch (JMSException e) {
+                    throw new IOException("Cannot write message body: " + e.getMessage(), e);
+                }
+            }
+            
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                try {
+                    message.writeBytes(buffer, offset, length);
+                } catch (JMSException e) {
+                    throw new IOException("Cannot write message body: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+    
+    private static JMSException jmsException(String reason, Exception cause) {
+        JMSException exception = new JMSException(reason + ": " + cause.getMessage());
+        exception.setLinkedException(cause);
+        return exception;
+    }
+}
@@ -0,0 +1,106 @@
+package com.fintech.mapping.messaging;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Copy of a streamed message body written to a temporary file as it is read
+ *
+ * A large message body can be read only once; reading it through {@link #copying}
+ * keeps it on disk, so it can still be sent on (e.g. to the DLQ, see
+ * {@link LargeMessages#streamingMessage}) after it has been consumed. Closing deletes
+ * the file.
+ */
+@Slf4j
+public final class SpooledBody implements AutoCloseable {
+    
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    
+    private final Path file;
+    private final OutputStream out;
+    private boolean flushed;
+    
+    public SpooledBody(Path directory) throws IOException {
+        file = Files.createTempFile(directory, "spool-", ".body");
+        out = new BufferedOutputStream(Files.newOutputStream(file), WRITE_BUFFER_SIZE);
+    }
+    
+    /**
+     * {@code body}, writing every byte read from it to the file
+     */
+    public InputStream copying(InputStream body) {
+        return new FilterInputStream(body) {
+            
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    out.write(b);
+                }
+                return b;
+            }
+            
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    out.write(buffer, offset, n);
+                }
+                return n;
+            }
+            
+            @Override
+            public long skip(long n) throws IOException {
+                // Skipped bytes must be copied too
+                byte[] skipped = new byte[(int) Math.min(n, WRITE_BUFFER_SIZE)];
+                int read = read(skipped, 0, skipped.length);
+                return Math.max(read, 0);
+            }
+            
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Copy what is left of the body, e.g. after processing stopped half way
+     *
+     * @param body the stream returned by {@link #copying}
+     */
+    public void readRemaining(InputStream body) throws IOException {
+        byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+        while (body.read(buffer, 0, buffer.length) >= 0) {
+            // copied by the stream
+        }
+    }
+    
+    /**
+     * The body copied so far
+     */
+    public InputStream open() throws IOException {
+        if (!flushed) {
+            out.close();
+            flushed = true;
+        }
+        return Files.newInputStream(file);
+    }
+    
+    @Override
+    public void close() {
+        try {
+            out.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Cannot delete spool file {}: {}", file, e.getMessage());
+        }
+    }
+}
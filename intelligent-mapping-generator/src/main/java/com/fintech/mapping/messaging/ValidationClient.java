@@ -0,0 +1,150 @@
+package com.fintech.mapping.messaging;
+
+import com.fintech.mapping.model.ValidationResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import jakarta.jms.TemporaryQueue;
+import jakarta.jms.TextMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-reply client for the validation queue
+ *
+ * Each submission gets a fresh correlation ID and names this client's temporary reply
+ * queue as JMSReplyTo; the consumer answers there with the same JMSCorrelationID.
+ * Replies for all in-flight submissions arrive on one consumer, which completes the
+ * pending future by correlation ID. Requests and replies share the application's
+ * single (cached) connection, so the number of requests in flight costs a map entry
+ * each, not a connection or consumer.
+ *
+ * A future that gets no reply within app.validation.client.timeout fails with a
+ * TimeoutException.
+ */
+@Component
+@Slf4j
+public class ValidationClient {
+    
+    @Autowired
+    private ConnectionFactory connectionFactory;
+    
+    @Autowired
+    private JmsTemplate jmsTemplate;
+    
+    @Autowired
+    private ResultMessages resultMessages;
+    
+    @Value("${app.validation.queue-name}")
+    private String validationQueueName;
+    
+    @Value("${app.validation.client.timeout:30s}")
+    private Duration timeout;
+    
+    private final Map<String, CompletableFuture<ValidationResult>> pending = new ConcurrentHashMap<>();
+    
+    private Connection connection;
+    private Session session;
+    private MessageConsumer replyConsumer;
+    private TemporaryQueue replyQueue;
+    
+    @PostConstruct
+    public void start() throws JMSException {
+        connection = connectionFactory.createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        replyQueue = session.createTemporaryQueue();
+        replyConsumer = session.createConsumer(replyQueue);
+        replyConsumer.setMessageListener(this::onReply);
+        connection.start();
+        log.info("Validation client listening for replies on {} (timeout {})", replyQueue, timeout);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        try {
+            replyConsumer.close();
+            replyQueue.delete();
+            session.close();
+            connection.close();
+        } catch (JMSException e) {
+            log.warn("Error closing validation client: {}", e.getMessage());
+        }
+        pending.values().forEach(future -> future.completeExceptionally(
+            new CancellationException("Validation client stopped")));
+    }
+    
+    /**
+     * Queue a message for validation
+     *
+     * @return the result once the consumer has replied
+     */
+    public CompletableFuture<ValidationResult> submit(String xmlMessage) {
+        String correlationId = UUID.randomUUID().toString();
+        CompletableFuture<ValidationResult> future = new CompletableFuture<>();
+        pending.put(correlationId, future);
+        future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+            .whenComplete((result, error) -> pending.remove(correlationId));
+        
+        try {
+            jmsTemplate.send(validationQueueName, session -> {
+                TextMessage message = session.createTextMessage(xmlMessage);
+                message.setJMSCorrelationID(correlationId);
+                message.setJMSReplyTo(replyQueue);
+                return message;
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    /**
+     * Number of submissions waiting for their result
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+    
+    private void onReply(Message message) {
+        String correlationId;
+        try {
+            correlationId = message.getJMSCorrelationID();
+        } catch (JMSException e) {
+            log.error("Cannot read reply correlation ID: {}", e.getMessage());
+            return;
+        }
+        CompletableFuture<ValidationResult> future = correlationId != null ? pending.get(correlationId) : null;
+        if (future == null) {
+            // Timed out already, or not ours
+            log.debug("Dropping reply without pending request: {}", correlationId);
+            return;
+        }
+        try {
+            if (message instanceof BytesMessage bytesMessage) {
+                future.complete(resultMessages.readResult(bytesMessage));
+            } else {
+                future.completeExceptionally(new IllegalStateException(
+                    "Unexpected reply type: " + message.getClass().getName()));
+            }
+        } catch (JMSException e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.fintech.mapping.metrics;
+
+import com.fintech.mapping.service.SchemaRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * "schemas" health contributor, part of the readiness group (/actuator/health/readiness)
+ *
+ * OUT_OF_SERVICE while registered schemas are still being compiled (lazy mode with
+ * warm-up), so traffic is only routed to the instance once validation does not stall
+ * on a compile; DOWN when a schema failed to compile. In lazy mode without warm-up
+ * schemas are only compiled by their first message, so the instance is ready as is.
+ */
+@Component
+public class SchemasHealthIndicator implements HealthIndicator {
+    
+    @Autowired
+    private SchemaRegistry schemaRegistry;
+    
+    @Override
+    public Health health() {
+        List<SchemaRegistry.SchemaStatus> status = schemaRegistry.getStatus();
+        Health.Builder health;
+        if (status.stream().anyMatch(schema -> schema.state() == SchemaRegistry.State.FAILED)) {
+            health = Health.down();
+        } else if (schemaRegistry.isReady() || !schemaRegistry.compilesAll()) {
+            health = Health.up();
+        } else {
+            health = Health.outOfService();
+        }
+        status.forEach(schema -> health.withDetail(schema.name(), schema.state()));
+        return health.build();
+    }
+}
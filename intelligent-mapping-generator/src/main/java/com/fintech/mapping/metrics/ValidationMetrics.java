@@ -0,0 +1,197 @@
+package com.fintech.mapping.metrics;
+
+import com.fintech.mapping.messaging.BrokerQueues;
+import com.fintech.mapping.model.SchemaType;
+import com.fintech.mapping.model.ValidationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the validation pipeline, exposed on /actuator/prometheus
+ *
+ * - validation.stage{stage}: nanosecond timer with a percentile histogram per stage
+ *   (sanitize, preprocess, parse, detection, xsd-validate, cbpr-filter, publish, map)
+ * - validation.duration{schema, outcome, cached}: whole validation, same histogram
+ * - validation.messages{schema, outcome}: valid / invalid / error per SchemaType
+ * - validation.dead.letters{reason}: DLQ entries (invalid message, processing or mapping failure)
+ * - validation.duplicates{field}: messages stopped by the dedup stage, per repeated ID (MsgId, UETR)
+ * - validation.publish.dropped{queue}: buffered messages that could not be published at all
+ * - artemis.queue.*{queue}: depth, in-delivery, consumers and age of the oldest message
+ *   for the validation, results and DLQ queues
+ *
+ * Parsing, detection and XSD validation share one SAX pass; with
+ * app.metrics.stage-breakdown the pass clocks the detection and validator callbacks
+ * and "parse" is the remainder (three clock reads per SAX event). Without it, the
+ * whole pass is recorded as "parse".
+ */
+@Component
+@Slf4j
+public class ValidationMetrics {
+    
+    public enum Stage {
+        SANITIZE("sanitize"),
+        PREPROCESS("preprocess"),
+        PARSE("parse"),
+        DETECTION("detection"),
+        XSD_VALIDATE("xsd-validate"),
+        CBPR_FILTER("cbpr-filter"),
+        PUBLISH("publish"),
+        MAP("map");
+        
+        private final String tag;
+        
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+    
+    public enum Outcome { VALID, INVALID, ERROR }
+    
+    @Autowired
+    private MeterRegistry registry;
+    
+    @Autowired
+    private BrokerQueues brokerQueues;
+    
+    @Value("${app.metrics.stage-breakdown:true}")
+    private boolean stageBreakdown;
+    
+    @Value("${app.validation.queue-name}")
+    private String validationQueueName;
+    
+    @Value("${app.validation.result-queue-name}")
+    private String resultQueueName;
+    
+    @Value("${app.validation.dlq-name}")
+    private String dlqName;
+    
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<String, Timer> durationTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> messageCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> deadLetterCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> duplicateCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> droppedCounters = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, histogram(Timer.builder("validation.stage")
+                .description("Time spent per validation pipeline stage")
+                .tag("stage", stage.tag)));
+        }
+        for (String queue : List.of(validationQueueName, resultQueueName, dlqName)) {
+            registerQueueGauges(queue);
+        }
+        log.info("Validation metrics registered (stage breakdown: {})", stageBreakdown);
+    }
+    
+    /**
+     * Whether the SAX pass should be split into parse / detection / xsd-validate
+     */
+    public boolean isStageBreakdown() {
+        return stageBreakdown;
+    }
+    
+    public void recordStage(Stage stage, long nanos) {
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Count a finished validation and record its duration
+     */
+    public void recordResult(ValidationResult result, Outcome outcome) {
+        String schema = schemaTag(result.getDetectedSchemaType());
+        String outcomeTag = outcome.name().toLowerCase();
+        
+        messageCounters.computeIfAbsent(schema + '|' + outcomeTag, key -> Counter.builder("validation.messages")
+            .description("Validated messages per detected schema and outcome")
+            .tag("schema", schema)
+            .tag("outcome", outcomeTag)
+            .register(registry)).increment();
+        
+        String cached = String.valueOf(result.isCached());
+        durationTimers.computeIfAbsent(schema + '|' + outcomeTag + '|' + cached, key -> histogram(
+            Timer.builder("validation.duration")
+                .description("Whole validation of one message")
+                .tag("schema", schema)
+                .tag("outcome", outcomeTag)
+                .tag("cached", cached)))
+            .record(result.getProcessingTimeNanos(), TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * @param reason "invalid" (failed validation), "failed" (processing error) or "mapping-failed"
+     */
+    public void recordDeadLetter(String reason) {
+        deadLetterCounters.computeIfAbsent(reason, key -> Counter.builder("validation.dead.letters")
+            .description("Messages sent to the dead letter queue")
+            .tag("reason", reason)
+            .register(registry)).increment();
+    }
+    
+    /**
+     * @param field the ID that was seen before: "MsgId" or "UETR"
+     */
+    public void recordDuplicate(String field) {
+        duplicateCounters.computeIfAbsent(field, key -> Counter.builder("validation.duplicates")
+            .description("Messages sent to the duplicates queue")
+            .tag("field", field)
+            .register(registry)).increment();
+    }
+    
+    /**
+     * @param queue destination of a buffered message the publisher gave up on
+     */
+    public void recordPublishDropped(String queue) {
+        droppedCounters.computeIfAbsent(queue, key -> Counter.builder("validation.publish.dropped")
+            .description("Buffered messages dropped because they could not be published")
+            .tag("queue", queue)
+            .register(registry)).increment();
+    }
+    
+    private Timer histogram(Timer.Builder builder) {
+        return builder
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(1_000))
+            .maximumExpectedValue(Duration.ofSeconds(30))
+            .register(registry);
+    }
+    
+    private void registerQueueGauges(String queue) {
+        Gauge.builder("artemis.queue.depth", brokerQueues, queues -> queues.messageCount(queue))
+            .description("Messages in the queue")
+            .tag("queue", queue)
+            .register(registry);
+        Gauge.builder("artemis.queue.delivering", brokerQueues, queues -> queues.deliveringCount(queue))
+            .description("Messages delivered to consumers and not yet acknowledged")
+            .tag("queue", queue)
+            .register(registry);
+        Gauge.builder("artemis.queue.consumers", brokerQueues, queues -> queues.consumerCount(queue))
+            .description("Consumers attached to the queue")
+            .tag("queue", queue)
+            .register(registry);
+        Gauge.builder("artemis.queue.lag", brokerQueues, queues -> queues.oldestMessageAgeMs(queue) / 1000.0)
+            .description("Age of the oldest message waiting in the queue")
+            .baseUnit("seconds")
+            .tag("queue", queue)
+            .register(registry);
+    }
+    
+    private static String schemaTag(SchemaType type) {
+        return type != null ? type.name() : "NONE";
+    }
+}
@@ -0,0 +1,45 @@
+package com.fintech.mapping.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One field of a {@link MappingDefinition}
+ * 
+ * Paths are dotted element names below the Document element, e.g.
+ * CstmrCdtTrfInitn.GrpHdr.MsgId -> FIToFICstmrCdtTrf.GrpHdr.MsgId. Several fields may
+ * share a target: the first whose source is present in the message wins.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FieldMapping {
+    
+    public enum Transformation {
+        /** Copy the source element's content (attributes, text, child elements) under the target name */
+        DIRECT,
+        /** Write a fixed value; there is no source */
+        CONSTANT,
+        /** Write the date and time the target message is created, with its UTC offset; there is no source */
+        CREATION_TIME,
+        /** Write a new 16-character reference (e.g. the InstrId an instructing agent assigns); there is no source */
+        GENERATED_ID,
+        /**
+         * As DIRECT, with "-" and the record number (from 1) appended when records are split: an ID per
+         * message. A source value too long for the suffix within 35 characters is cut and hashed.
+         */
+        RECORD_SUFFIX
+    }
+    
+    private String source;
+    private String target;
+    
+    @Builder.Default
+    private Transformation transformation = Transformation.DIRECT;
+    
+    // Value written by CONSTANT
+    private String value;
+}
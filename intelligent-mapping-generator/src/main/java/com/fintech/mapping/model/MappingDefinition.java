@@ -0,0 +1,33 @@
+package com.fintech.mapping.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Declarative mapping from one ISO 20022 message definition to another
+ * 
+ * The record elements repeat: each source record (e.g. a pain.001 CdtTrfTxInf) is
+ * written as one target record (e.g. a pacs.008 CdtTrfTxInf), with the group and
+ * payment-information level fields the definition maps into it. Without a record, the
+ * target is written once from the whole message. With splitRecords, each record is
+ * written as a target message of its own instead (a CBPR+ pacs.008 carries exactly
+ * one transaction).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MappingDefinition {
+    private String mappingId;
+    private String sourceFormat;   // e.g. pain.001.001.09
+    private String targetFormat;   // e.g. pacs.008.001.08, also gives the target namespace
+    private String mappingType;    // e.g. PAYMENT_INITIATION
+    private String recordSource;   // e.g. CstmrCdtTrfInitn.PmtInf.CdtTrfTxInf
+    private String recordTarget;   // e.g. FIToFICstmrCdtTrf.CdtTrfTxInf
+    private boolean splitRecords;  // one target message per record
+    private List<FieldMapping> fields;
+}
@@ -0,0 +1,31 @@
+package com.fintech.mapping.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Characters the sanitize stage changed in one field (element) of a message
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SanitizedField {
+    
+    /**
+     * Local name of the element (e.g. Nm, MsgId)
+     */
+    private String field;
+    
+    /**
+     * Characters removed
+     */
+    private int removed;
+    
+    /**
+     * Characters replaced by a FIN-X equivalent
+     */
+    private int transliterated;
+}
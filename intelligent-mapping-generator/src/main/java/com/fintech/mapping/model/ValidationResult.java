@@ -13,7 +13,7 @@ import lombok.NoArgsConstructor;
  * Represents the result of a pain.001 validation
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ValidationResult {
@@ -33,6 +33,11 @@ public class ValidationResult {
      */
     private SchemaType validatedAgainstSchema;
     
+    /**
+     * ISO 20022 message definition validated (e.g. pain.001.001.09, pacs.008.001.08)
+     */
+    private String messageType;
+    
     /**
      * Message ID from the pain.001 message (if extractable)
      */
@@ -55,11 +60,34 @@ public class ValidationResult {
      */
     private long processingTimeMs;
     
+    /**
+     * Processing time in nanoseconds (monotonic clock, sub-millisecond precision)
+     */
+    private long processingTimeNanos;
+    
+    /**
+     * Whether the result was served from the validation result cache
+     * (validatedAt is then the time of the original validation)
+     */
+    private boolean cached;
+    
     /**
      * Additional information or warnings
      */
     private String additionalInfo;
     
+    /**
+     * Fields the sanitize pipeline stage changed before validation (null when the
+     * message was not sanitized)
+     */
+    private List<SanitizedField> sanitizedFields;
+    
+    /**
+     * Whether the dedup pipeline stage found the MsgId or a UETR seen before (the
+     * message then went to the duplicates queue instead of on)
+     */
+    private boolean duplicate;
+    
     /**
      * Convenience method to add an error
      */
@@ -80,6 +108,10 @@ public class ValidationResult {
         sb.append("Detected Schema: ").append(detectedSchemaType).append("\n");
         sb.append("Validated Against: ").append(validatedAgainstSchema).append("\n");
         
+        if (messageType != null) {
+            sb.append("Message Type: ").append(messageType).append("\n");
+        }
+        
         if (messageId != null) {
             sb.append("Message ID: ").append(messageId).append("\n");
         }
@@ -90,11 +122,22 @@ public class ValidationResult {
         }
         
         sb.append("\nProcessing Time: ").append(processingTimeMs).append(" ms");
+        if (cached) {
+            sb.append(" (served from cache)");
+        }
         
         if (additionalInfo != null) {
             sb.append("\nInfo: ").append(additionalInfo);
         }
         
+        if (sanitizedFields != null && !sanitizedFields.isEmpty()) {
+            sb.append("\nSanitized: ").append(sanitizedFields.size()).append(" field(s)");
+        }
+        
+        if (duplicate) {
+            sb.append("\nDuplicate: not processed further");
+        }
+        
         return sb.toString();
     }
 }
@@ -0,0 +1,31 @@
+package com.fintech.mapping.pipeline;
+
+import com.fintech.mapping.service.SchemaDetectionService;
+
+/**
+ * Detects CBPR+ or ISO with the streaming detector (reads only as far as needed to decide)
+ *
+ * For pipelines without a validate stage: validation detects in its own single pass,
+ * so {@link PipelineFactory} leaves this stage out when a validate stage follows.
+ */
+class DetectStage implements PipelineStage {
+    
+    static final String NAME = Pipeline.DETECT;
+    
+    private final SchemaDetectionService detectionService;
+    
+    DetectStage(SchemaDetectionService detectionService) {
+        this.detectionService = detectionService;
+    }
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public boolean process(PipelineContext context) {
+        context.setDetectedSchemaType(detectionService.detectSchemaType(context.stream()));
+        return true;
+    }
+}
@@ -0,0 +1,71 @@
+package com.fintech.mapping.pipeline;
+
+import com.fintech.mapping.messaging.BatchingJmsPublisher;
+import com.fintech.mapping.messaging.ResultMessages;
+import com.fintech.mapping.metrics.ValidationMetrics;
+import com.fintech.mapping.model.ValidationResult;
+import com.fintech.mapping.service.DuplicateCheckService;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stops messages whose GrpHdr/MsgId or a UETR was seen within app.dedup.window (see
+ * {@link DuplicateCheckService}) and sends them to the duplicates queue
+ *
+ * Placed after validate, only valid messages are recorded, so an invalid message
+ * corrected and sent again is not taken for a duplicate. The IDs of a message that
+ * fails later on (rolled back, or sent to a DLQ) are taken out again when the message
+ * is marked {@link PipelineContext#failed() failed}. A duplicate keeps its result
+ * (marked duplicate) and goes to the duplicates queue with the payload as received
+ * (see {@link ResultMessages#duplicateMessage}); later stages do not run.
+ */
+@Slf4j
+class DuplicateCheckStage implements PipelineStage {
+    
+    static final String NAME = Pipeline.DEDUP;
+    
+    private final DuplicateCheckService duplicateCheckService;
+    private final BatchingJmsPublisher publisher;
+    private final ResultMessages resultMessages;
+    private final ValidationMetrics metrics;
+    private final String queueName;
+    
+    DuplicateCheckStage(DuplicateCheckService duplicateCheckService, BatchingJmsPublisher publisher,
+                        ResultMessages resultMessages, ValidationMetrics metrics, String queueName) {
+        this.duplicateCheckService = duplicateCheckService;
+        this.publisher = publisher;
+        this.resultMessages = resultMessages;
+        this.metrics = metrics;
+        this.queueName = queueName;
+    }
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public boolean process(PipelineContext context) {
+        DuplicateCheckService.Check check = duplicateCheckService.check(context.getBuffer(), context.getLength());
+        if (!check.isDuplicate()) {
+            context.onFailure(() -> duplicateCheckService.forget(check));
+            return true;
+        }
+        
+        DuplicateCheckService.Duplicate duplicate = check.duplicate();
+        log.warn("⚠️  Duplicate {} '{}': message sent to {}", duplicate.field(), duplicate.value(), queueName);
+        metrics.recordDuplicate(duplicate.field());
+        ValidationResult result = context.getResult();
+        if (result != null) {
+            // Cached results are shared: mark a copy
+            result = result.toBuilder()
+                .duplicate(true)
+                .additionalInfo("Duplicate " + duplicate.field() + " " + duplicate.value())
+                .build();
+            context.setResult(result);
+        }
+        ValidationResult duplicateResult = result;
+        publisher.publish(queueName, session -> resultMessages.duplicateMessage(session, context.getPayload(),
+            duplicateResult, duplicate.field(), duplicate.value(), context.getCorrelationId()));
+        return false;
+    }
+}
@@ -0,0 +1,90 @@
+package com.fintech.mapping.pipeline;
+
+import com.fintech.mapping.messaging.BatchingJmsPublisher;
+import com.fintech.mapping.messaging.ResultMessages;
+import com.fintech.mapping.metrics.ValidationMetrics;
+import com.fintech.mapping.model.MappingDefinition;
+import com.fintech.mapping.service.MappingService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jms.JmsException;
+
+/**
+ * Maps the message and publishes the target messages to the mapping output queue
+ *
+ * The mapping is the one requested in the context, else the pipeline's default. After
+ * a validate stage, only messages of the mapping's source format are mapped. A mapping
+ * with splitRecords publishes one message per record as soon as it has been read. A
+ * message that cannot be mapped, or whose mapped message is not valid against the
+ * target schema (see {@link MappingService}), goes to the mapping DLQ with the payload
+ * as received (see {@link ResultMessages#failedMappingMessage}).
+ */
+@Slf4j
+class MapStage implements PipelineStage {
+    
+    static final String NAME = Pipeline.MAP;
+    
+    private final MappingService mappingService;
+    private final BatchingJmsPublisher publisher;
+    private final ResultMessages resultMessages;
+    private final ValidationMetrics metrics;
+    private final String defaultMappingId;
+    private final String outputQueueName;
+    private final String dlqName;
+    
+    MapStage(MappingService mappingService, BatchingJmsPublisher publisher, ResultMessages resultMessages,
+             ValidationMetrics metrics, String defaultMappingId, String outputQueueName, String dlqName) {
+        this.mappingService = mappingService;
+        this.publisher = publisher;
+        this.resultMessages = resultMessages;
+        this.metrics = metrics;
+        this.defaultMappingId = defaultMappingId;
+        this.outputQueueName = outputQueueName;
+        this.dlqName = dlqName;
+    }
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public boolean process(PipelineContext context) {
+        String mappingId = context.getMappingId() != null ? context.getMappingId() : defaultMappingId;
+        MappingDefinition definition = mappingService.getDefinition(mappingId);
+        if (context.getResult() != null
+                && (definition == null || !definition.getSourceFormat().equals(context.getResult().getMessageType()))) {
+            return true;
+        }
+        
+        String correlationId = context.getCorrelationId();
+        int[] published = {0};
+        try {
+            byte[] xml = context.bytes();
+            if (definition != null && definition.isSplitRecords()) {
+                mappingService.split(mappingId, xml, mapped -> {
+                    int recordNumber = ++published[0];
+                    publisher.publish(outputQueueName, session ->
+                        resultMessages.mappedMessage(session, mapped, mappingId, recordNumber, correlationId));
+                });
+            } else {
+                byte[] mapped = mappingService.transform(mappingId, xml);
+                publisher.publish(outputQueueName,
+                    session -> resultMessages.mappedMessage(session, mapped, mappingId, 0, correlationId));
+                published[0] = 1;
+            }
+        } catch (JmsException e) {
+            // Publishing failed, not the mapping: let the listener roll back
+            throw e;
+        } catch (Exception e) {
+            log.warn("✗ Message could not be mapped with '{}' ({} messages published before): {}",
+                mappingId, published[0], e.getMessage());
+            metrics.recordDeadLetter("mapping-failed");
+            context.failed();
+            int recordsPublished = published[0];
+            publisher.publish(dlqName, session -> resultMessages.failedMappingMessage(session,
+                context.getPayload(), mappingId, recordsPublished, e, correlationId));
+        }
+        context.setRecordsPublished(published[0]);
+        return true;
+    }
+}
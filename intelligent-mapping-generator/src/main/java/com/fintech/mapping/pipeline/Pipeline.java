@@ -0,0 +1,57 @@
+package com.fintech.mapping.pipeline;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Stages run in order, in process, over one message buffer (see {@link PipelineFactory})
+ */
+public class Pipeline {
+    
+    // Stage names
+    public static final String SANITIZE = "sanitize";
+    public static final String DETECT = "detect";
+    public static final String VALIDATE = "validate";
+    public static final String DEDUP = "dedup";
+    public static final String MAP = "map";
+    
+    private final String name;
+    private final List<PipelineStage> stages;
+    
+    Pipeline(String name, List<PipelineStage> stages) {
+        this.name = name;
+        this.stages = List.copyOf(stages);
+    }
+    
+    /**
+     * Run the stages until one stops the pipeline (see {@link PipelineContext#getStoppedBy()});
+     * an exception of a stage marks the message {@link PipelineContext#failed() failed}
+     * and is rethrown
+     */
+    public void run(PipelineContext context) throws Exception {
+        try {
+            for (PipelineStage stage : stages) {
+                if (!stage.process(context)) {
+                    context.setStoppedBy(stage.name());
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            context.failed();
+            throw e;
+        }
+    }
+    
+    public boolean contains(String stageName) {
+        return stages.stream().anyMatch(stage -> stage.name().equals(stageName));
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public String toString() {
+        return stages.stream().map(PipelineStage::name).collect(Collectors.joining(" -> "));
+    }
+}
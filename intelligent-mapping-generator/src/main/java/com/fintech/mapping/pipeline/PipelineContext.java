@@ -0,0 +1,194 @@
+package com.fintech.mapping.pipeline;
+
+import com.fintech.mapping.model.SanitizedField;
+import com.fintech.mapping.model.SchemaType;
+import com.fintech.mapping.model.ValidationResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One message on its way through a {@link Pipeline}
+ *
+ * The UTF-8 payload is held in a single buffer that every stage works on: the sanitize
+ * stage rewrites it in place (it can only get shorter), the others read it. The text
+ * as received is kept for DLQ entries.
+ */
+public class PipelineContext {
+    
+    private final String payload;
+    private final String correlationId;
+    
+    private byte[] buffer;
+    private int length;
+    
+    private String mappingId;
+    private List<SanitizedField> sanitizedFields = List.of();
+    private SchemaType detectedSchemaType;
+    private ValidationResult result;
+    private int recordsPublished;
+    private String stoppedBy;
+    private List<Runnable> undoOnFailure;
+    
+    public PipelineContext(String payload, String correlationId) {
+        this.payload = payload;
+        this.correlationId = correlationId;
+        this.buffer = payload.getBytes(StandardCharsets.UTF_8);
+        this.length = buffer.length;
+    }
+    
+    /**
+     * The message as received
+     */
+    public String getPayload() {
+        return payload;
+    }
+    
+    public String getCorrelationId() {
+        return correlationId;
+    }
+    
+    /**
+     * The shared buffer; the message is its first {@link #getLength()} bytes
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+    
+    public int getLength() {
+        return length;
+    }
+    
+    /**
+     * New length of the message after the buffer was rewritten in place
+     */
+    public void setLength(int length) {
+        this.length = length;
+    }
+    
+    /**
+     * The message as an array of its exact size: the buffer itself, unless sanitizing
+     * shortened the message (it is then trimmed once)
+     */
+    public byte[] bytes() {
+        if (length != buffer.length) {
+            buffer = Arrays.copyOf(buffer, length);
+        }
+        return buffer;
+    }
+    
+    /**
+     * The message as a stream over the buffer (no copy)
+     */
+    public InputStream stream() {
+        return new ByteArrayInputStream(buffer, 0, length);
+    }
+    
+    /**
+     * The message as text: the payload as received unless a stage changed it
+     */
+    public String text() {
+        return isModified() ? new String(buffer, 0, length, StandardCharsets.UTF_8) : payload;
+    }
+    
+    public boolean isModified() {
+        return !sanitizedFields.isEmpty();
+    }
+    
+    /**
+     * Mapping requested for the message (e.g. by the mappingId property on the mapping
+     * queue), or null for the pipeline's default
+     */
+    public String getMappingId() {
+        return mappingId;
+    }
+    
+    public void setMappingId(String mappingId) {
+        this.mappingId = mappingId;
+    }
+    
+    /**
+     * Fields changed by the sanitize stage (empty when nothing was changed)
+     */
+    public List<SanitizedField> getSanitizedFields() {
+        return sanitizedFields;
+    }
+    
+    public void setSanitizedFields(List<SanitizedField> sanitizedFields) {
+        this.sanitizedFields = sanitizedFields;
+    }
+    
+    /**
+     * CBPR+ or ISO, from the detect or validate stage (null before either has run)
+     */
+    public SchemaType getDetectedSchemaType() {
+        return detectedSchemaType;
+    }
+    
+    public void setDetectedSchemaType(SchemaType detectedSchemaType) {
+        this.detectedSchemaType = detectedSchemaType;
+    }
+    
+    /**
+     * Result of the validate stage (null before it has run)
+     */
+    public ValidationResult getResult() {
+        return result;
+    }
+    
+    public void setResult(ValidationResult result) {
+        this.result = result;
+    }
+    
+    /**
+     * Target messages published by the map stage
+     */
+    public int getRecordsPublished() {
+        return recordsPublished;
+    }
+    
+    public void setRecordsPublished(int recordsPublished) {
+        this.recordsPublished = recordsPublished;
+    }
+    
+    /**
+     * Name of the stage that stopped the pipeline (e.g. validate for an invalid message,
+     * dedup for a duplicate), or null when every stage ran
+     */
+    public String getStoppedBy() {
+        return stoppedBy;
+    }
+    
+    void setStoppedBy(String stoppedBy) {
+        this.stoppedBy = stoppedBy;
+    }
+    
+    /**
+     * Undo something a stage recorded for the message (e.g. its IDs in the duplicate
+     * index) if the message does not get through after all, see {@link #failed()}
+     */
+    public void onFailure(Runnable undo) {
+        if (undoOnFailure == null) {
+            undoOnFailure = new ArrayList<>(2);
+        }
+        undoOnFailure.add(undo);
+    }
+    
+    /**
+     * The message did not get through: a stage or the consumer failed (the listener
+     * rolls it back for redelivery) or it was sent to a DLQ. Runs the undo actions
+     * registered so far, once.
+     */
+    public void failed() {
+        if (undoOnFailure == null) {
+            return;
+        }
+        List<Runnable> undo = undoOnFailure;
+        undoOnFailure = null;
+        undo.forEach(Runnable::run);
+    }
+}
@@ -0,0 +1,133 @@
+package com.fintech.mapping.pipeline;
+
+import com.fintech.mapping.messaging.BatchingJmsPublisher;
+import com.fintech.mapping.messaging.ResultMessages;
+import com.fintech.mapping.metrics.ValidationMetrics;
+import com.fintech.mapping.service.DuplicateCheckService;
+import com.fintech.mapping.service.LogSampler;
+import com.fintech.mapping.service.MappingService;
+import com.fintech.mapping.service.SchemaDetectionService;
+import com.fintech.mapping.service.ValidationService;
+import com.fintech.sanitizer.filter.CharPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds the in-process pipeline of a queue from its stage list
+ * (e.g. app.validation.pipeline=sanitize, validate, map)
+ *
+ * Stages: sanitize (characters outside XML 1.0 / FIN-X, app.pipeline.sanitizer.*),
+ * detect (CBPR+ or ISO), validate, dedup (repeated MsgId / UETR to the duplicates
+ * queue, app.dedup.*), map (to the mapping output queue). They share the
+ * message buffer, so a message goes from sanitizing to mapping without being copied,
+ * re-encoded or sent to another service. A detect stage followed by a validate stage
+ * is left out: validation detects in the same pass as it parses. A dedup stage must
+ * come after validate, so that only valid messages are recorded.
+ */
+@Component
+@Slf4j
+public class PipelineFactory {
+    
+    @Autowired
+    private SchemaDetectionService schemaDetectionService;
+    
+    @Autowired
+    private ValidationService validationService;
+    
+    @Autowired
+    private MappingService mappingService;
+    
+    @Autowired
+    private DuplicateCheckService duplicateCheckService;
+    
+    @Autowired
+    private BatchingJmsPublisher publisher;
+    
+    @Autowired
+    private ResultMessages resultMessages;
+    
+    @Autowired
+    private ValidationMetrics metrics;
+    
+    @Autowired
+    private LogSampler logSampler;
+    
+    @Value("${app.pipeline.sanitizer.policy:finx}")
+    private String sanitizerPolicy;
+    
+    @Value("${app.pipeline.sanitizer.mode:transliterate}")
+    private String sanitizerMode;
+    
+    @Value("${app.mapping.queue-mapping-id}")
+    private String queueMappingId;
+    
+    @Value("${app.mapping.output-queue-name}")
+    private String mappingOutputQueueName;
+    
+    @Value("${app.mapping.dlq-name}")
+    private String mappingDlqName;
+    
+    @Value("${app.dedup.queue-name:pain001.duplicates.queue}")
+    private String duplicatesQueueName;
+    
+    /**
+     * @param queue  queue the pipeline serves (for logging)
+     * @param stages comma-separated stage names, in order
+     * @throws IllegalArgumentException for an unknown stage or sanitizer setting
+     */
+    public Pipeline build(String queue, String stages) {
+        List<String> names = Arrays.stream(stages.split(","))
+            .map(name -> name.trim().toLowerCase(Locale.ROOT))
+            .filter(name -> !name.isEmpty())
+            .toList();
+        
+        List<PipelineStage> pipeline = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            switch (name) {
+                case SanitizeStage.NAME -> pipeline.add(sanitizeStage());
+                case DetectStage.NAME -> {
+                    if (names.subList(i + 1, names.size()).contains(ValidateStage.NAME)) {
+                        log.info("Pipeline for '{}': detect stage folded into the validate stage", queue);
+                    } else {
+                        pipeline.add(new DetectStage(schemaDetectionService));
+                    }
+                }
+                case ValidateStage.NAME -> pipeline.add(new ValidateStage(validationService));
+                case DuplicateCheckStage.NAME -> {
+                    if (names.subList(i + 1, names.size()).contains(ValidateStage.NAME)) {
+                        throw new IllegalArgumentException("The dedup stage must come after the validate stage"
+                            + " in the pipeline for '" + queue + "'");
+                    }
+                    pipeline.add(new DuplicateCheckStage(duplicateCheckService, publisher, resultMessages,
+                        metrics, duplicatesQueueName));
+                }
+                case MapStage.NAME -> pipeline.add(new MapStage(mappingService, publisher, resultMessages, metrics,
+                    queueMappingId, mappingOutputQueueName, mappingDlqName));
+                default -> throw new IllegalArgumentException("Unknown stage '" + name + "' in the pipeline for '"
+                    + queue + "' (sanitize, detect, validate, dedup, map)");
+            }
+        }
+        
+        Pipeline built = new Pipeline(queue, pipeline);
+        log.info("Pipeline for '{}': {}", queue, built);
+        return built;
+    }
+    
+    private SanitizeStage sanitizeStage() {
+        CharPolicy policy = CharPolicy.valueOf(sanitizerPolicy.trim().toUpperCase(Locale.ROOT));
+        boolean transliterate = switch (sanitizerMode.trim().toLowerCase(Locale.ROOT)) {
+            case "transliterate" -> true;
+            case "strip" -> false;
+            default -> throw new IllegalArgumentException("Unsupported app.pipeline.sanitizer.mode: " + sanitizerMode);
+        };
+        return new SanitizeStage(policy, transliterate, metrics, logSampler);
+    }
+}
@@ -0,0 +1,18 @@
+package com.fintech.mapping.pipeline;
+
+/**
+ * One step of a {@link Pipeline}: works on the message in the {@link PipelineContext}
+ * and records what it found there for the stages after it
+ */
+public interface PipelineStage {
+    
+    /**
+     * Name used in the pipeline configuration (e.g. "sanitize")
+     */
+    String name();
+    
+    /**
+     * @return false to stop the pipeline here (e.g. the message is invalid)
+     */
+    boolean process(PipelineContext context) throws Exception;
+}
@@ -0,0 +1,141 @@
+package com.fintech.mapping.pipeline;
+
+import com.fintech.mapping.metrics.ValidationMetrics;
+import com.fintech.mapping.model.SanitizedField;
+import com.fintech.mapping.service.LogSampler;
+import com.fintech.sanitizer.filter.ByteSanitizer;
+import com.fintech.sanitizer.filter.CharPolicy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Removes or transliterates characters outside XML 1.0 / FIN-X with the xml-sanitizer
+ * {@link ByteSanitizer}, in place in the message buffer
+ *
+ * Every change is attributed to the element whose start tag precedes it, so the
+ * result says which fields were touched (e.g. Nm: 2 transliterated).
+ */
+@Slf4j
+class SanitizeStage implements PipelineStage {
+    
+    static final String NAME = Pipeline.SANITIZE;
+    
+    private final CharPolicy policy;
+    private final boolean transliterate;
+    private final ValidationMetrics metrics;
+    private final LogSampler logSampler;
+    
+    SanitizeStage(CharPolicy policy, boolean transliterate, ValidationMetrics metrics, LogSampler logSampler) {
+        this.policy = policy;
+        this.transliterate = transliterate;
+        this.metrics = metrics;
+        this.logSampler = logSampler;
+    }
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public boolean process(PipelineContext context) {
+        long startTime = System.nanoTime();
+        byte[] buffer = context.getBuffer();
+        ByteSanitizer sanitizer = new ByteSanitizer(policy, transliterate);
+        FieldTracker tracker = new FieldTracker(buffer);
+        sanitizer.setChangeListener(tracker);
+        
+        // The whole message in one call, so it can be filtered in place
+        int length = sanitizer.filter(buffer, 0, context.getLength(), buffer, 0);
+        length += sanitizer.finish(buffer, length);
+        context.setLength(length);
+        List<SanitizedField> fields = tracker.fields();
+        context.setSanitizedFields(fields);
+        
+        metrics.recordStage(ValidationMetrics.Stage.SANITIZE, System.nanoTime() - startTime);
+        if (!fields.isEmpty() && logSampler.sample()) {
+            log.atDebug()
+                .setMessage("Message sanitized")
+                .addKeyValue("removed", sanitizer.getRemoved())
+                .addKeyValue("transliterated", sanitizer.getTransliterated())
+                .addKeyValue("fields", fields.stream().map(SanitizedField::getField).toList())
+                .log();
+        }
+        return true;
+    }
+    
+    /**
+     * Attributes each change to the element whose start tag precedes it in the output
+     * written so far; the buffer is only scanned back as far as the previous change
+     */
+    private static final class FieldTracker implements ByteSanitizer.ChangeListener {
+        
+        private static final String NO_ELEMENT = "#document";
+        
+        private final byte[] xml;
+        private final Map<String, SanitizedField> fields = new LinkedHashMap<>();
+        private SanitizedField current;
+        private int scannedFrom;
+        
+        FieldTracker(byte[] xml) {
+            this.xml = xml;
+        }
+        
+        @Override
+        public void changed(long position, boolean transliterated) {
+            int end = (int) position;
+            if (current == null || lastIndexOf('<', end, scannedFrom) >= 0) {
+                String element = elementBefore(end);
+                current = fields.computeIfAbsent(element, name -> SanitizedField.builder().field(name).build());
+            }
+            scannedFrom = end;
+            if (transliterated) {
+                current.setTransliterated(current.getTransliterated() + 1);
+            } else {
+                current.setRemoved(current.getRemoved() + 1);
+            }
+        }
+        
+        List<SanitizedField> fields() {
+            return new ArrayList<>(fields.values());
+        }
+        
+        /**
+         * Local name of the closest start tag before {@code end} (end tags, comments,
+         * PIs and CDATA sections are skipped)
+         */
+        private String elementBefore(int end) {
+            int lt = lastIndexOf('<', end, 0);
+            while (lt >= 0 && lt + 1 < end && (xml[lt + 1] == '/' || xml[lt + 1] == '!' || xml[lt + 1] == '?')) {
+                lt = lastIndexOf('<', lt, 0);
+            }
+            if (lt < 0) {
+                return NO_ELEMENT;
+            }
+            int start = lt + 1;
+            int i = start;
+            while (i < end && xml[i] != ' ' && xml[i] != '\t' && xml[i] != '\r' && xml[i] != '\n'
+                    && xml[i] != '/' && xml[i] != '>') {
+                if (xml[i] == ':') {
+                    start = i + 1;
+                }
+                i++;
+            }
+            return new String(xml, start, i - start, StandardCharsets.UTF_8);
+        }
+        
+        private int lastIndexOf(char c, int end, int from) {
+            for (int i = end - 1; i >= from; i--) {
+                if (xml[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
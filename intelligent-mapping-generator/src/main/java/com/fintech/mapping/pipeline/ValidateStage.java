@@ -0,0 +1,42 @@
+package com.fintech.mapping.pipeline;
+
+import com.fintech.mapping.model.ValidationResult;
+import com.fintech.mapping.service.ValidationService;
+
+import java.util.List;
+
+/**
+ * Validates the message (detection included, see {@link ValidationService#validate(byte[])});
+ * stops the pipeline when it is invalid
+ *
+ * The fields changed by an earlier sanitize stage are added to the result.
+ */
+class ValidateStage implements PipelineStage {
+    
+    static final String NAME = Pipeline.VALIDATE;
+    
+    private final ValidationService validationService;
+    
+    ValidateStage(ValidationService validationService) {
+        this.validationService = validationService;
+    }
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public boolean process(PipelineContext context) {
+        ValidationResult result = validationService.validate(context.bytes());
+        if (context.isModified()) {
+            // Cached results are shared: annotate a copy
+            result = result.toBuilder()
+                .sanitizedFields(List.copyOf(context.getSanitizedFields()))
+                .build();
+        }
+        context.setResult(result);
+        context.setDetectedSchemaType(result.getDetectedSchemaType());
+        return result.isValid();
+    }
+}
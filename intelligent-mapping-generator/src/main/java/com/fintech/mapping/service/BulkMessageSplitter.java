@@ -0,0 +1,249 @@
+package com.fintech.mapping.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Byte-level splitter for bulk pain.001 messages
+ *
+ * Finds every CdtTrfTxInf element in one forward scan (skipping comments, CDATA and
+ * processing instructions) and produces:
+ * - the transactions: byte ranges plus their (line, column) and in-scope namespace
+ *   declarations, so each one can be parsed on its own
+ * - a skeleton: the message with every transaction body blanked out. Only line breaks
+ *   and the indentation before the end tag are kept, so every position in the
+ *   skeleton is the same as in the original message.
+ *
+ * Returns null for input it cannot split cleanly (e.g. unterminated markup); the
+ * caller then validates the message in one piece and lets the parser report it.
+ */
+final class BulkMessageSplitter {
+    
+    static final String TRANSACTION_ELEMENT = "CdtTrfTxInf";
+    
+    private static final byte[] TRANSACTION_TAG = XmlBytes.ascii(TRANSACTION_ELEMENT + ">");
+    private static final byte[] XMLNS = XmlBytes.ascii("xmlns");
+    
+    private BulkMessageSplitter() {
+    }
+    
+    /**
+     * A transaction element inside the original message
+     *
+     * @param start        offset of the start tag
+     * @param contentStart offset just after the start tag
+     * @param contentEnd   offset of the end tag
+     * @param end          offset just after the end tag
+     * @param line         line of the start tag
+     * @param column       column of the start tag
+     * @param namespaces   namespace declarations in scope at the start tag (xmlns attributes)
+     */
+    record Transaction(int start, int contentStart, int contentEnd, int end,
+                       int line, int column, String namespaces) {}
+    
+    record Split(byte[] skeleton, List<Transaction> transactions) {}
+    
+    /**
+     * Cheap pre-check: at least minTransactions transaction elements (prefix-agnostic)
+     */
+    static boolean hasAtLeast(byte[] xml, int minTransactions) {
+        // Start and end tags both end in "CdtTrfTxInf>"
+        int needed = 2 * minTransactions;
+        int from = 0;
+        while (needed > 0) {
+            int found = XmlBytes.indexOf(xml, from, xml.length, TRANSACTION_TAG);
+            if (found < 0) {
+                return false;
+            }
+            needed--;
+            from = found + TRANSACTION_TAG.length;
+        }
+        return true;
+    }
+    
+    static Split split(byte[] xml) {
+        List<Transaction> transactions = new ArrayList<>();
+        Deque<Scope> scopes = new ArrayDeque<>();
+        scopes.push(Scope.ROOT);
+        int[] position = {1, 1};
+        int positionOffset = 0;
+        
+        int i = 0;
+        while (true) {
+            int lt = XmlBytes.indexOf(xml, i, xml.length, (byte) '<');
+            if (lt < 0) {
+                break;
+            }
+            int skipped = XmlBytes.skipNonElement(xml, lt, xml.length);
+            if (skipped == -1) {
+                return null;
+            }
+            if (skipped > 0) {
+                i = skipped;
+                continue;
+            }
+            
+            int tagEnd = XmlBytes.tagEnd(xml, lt, xml.length);
+            if (tagEnd < 0) {
+                return null;
+            }
+            if (xml[lt + 1] == '/') {
+                if (scopes.size() == 1) {
+                    return null;
+                }
+                scopes.pop();
+                i = tagEnd + 1;
+                continue;
+            }
+            
+            boolean selfClosing = xml[tagEnd - 1] == '/';
+            String qName = XmlBytes.tagName(xml, lt + 1, tagEnd);
+            String localName = qName.substring(qName.indexOf(':') + 1);
+            
+            if (TRANSACTION_ELEMENT.equals(localName)) {
+                int contentStart = tagEnd + 1;
+                int contentEnd = contentStart;
+                int end = contentStart;
+                if (!selfClosing) {
+                    contentEnd = findEndTag(xml, contentStart, qName);
+                    if (contentEnd < 0) {
+                        return null;
+                    }
+                    end = XmlBytes.indexOf(xml, contentEnd, xml.length, (byte) '>') + 1;
+                }
+                positionOffset = XmlBytes.advance(xml, positionOffset, lt, position);
+                transactions.add(new Transaction(lt, contentStart, contentEnd, end,
+                    position[0], position[1], scopes.peek().declarations()));
+                i = end;
+            } else {
+                Scope scope = scopes.peek().with(xml, lt, tagEnd);
+                if (!selfClosing) {
+                    scopes.push(scope);
+                }
+                i = tagEnd + 1;
+            }
+        }
+        return new Split(skeleton(xml, transactions), transactions);
+    }
+    
+    /**
+     * The message with transaction bodies replaced by whitespace that keeps positions intact
+     */
+    private static byte[] skeleton(byte[] xml, List<Transaction> transactions) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(1024, xml.length / 16));
+        int copied = 0;
+        for (Transaction transaction : transactions) {
+            out.write(xml, copied, transaction.contentStart() - copied);
+            int column = 0;
+            for (int i = transaction.contentStart(); i < transaction.contentEnd(); i++) {
+                int b = xml[i] & 0xFF;
+                if (b == '\n' || b == '\r') {
+                    out.write(b);
+                    column = 0;
+                } else if (b >= 0xF0) {
+                    column += 2;
+                } else if ((b & 0xC0) != 0x80) {
+                    column++;
+                }
+            }
+            for (int c = 0; c < column; c++) {
+                out.write(' ');
+            }
+            copied = transaction.contentEnd();
+        }
+        out.write(xml, copied, xml.length - copied);
+        return out.toByteArray();
+    }
+    
+    /**
+     * Offset of the end tag {@code </qName>} closing a transaction, or -1
+     */
+    private static int findEndTag(byte[] xml, int from, String qName) {
+        byte[] endTag = XmlBytes.ascii("</" + qName);
+        int i = from;
+        while (true) {
+            int lt = XmlBytes.indexOf(xml, i, xml.length, (byte) '<');
+            if (lt < 0) {
+                return -1;
+            }
+            int skipped = XmlBytes.skipNonElement(xml, lt, xml.length);
+            if (skipped == -1) {
+                return -1;
+            }
+            if (skipped > 0) {
+                i = skipped;
+                continue;
+            }
+            int after = lt + endTag.length;
+            if (XmlBytes.startsWith(xml, lt, endTag) && after < xml.length && XmlBytes.isNameEnd(xml[after])) {
+                return lt;
+            }
+            i = lt + 1;
+        }
+    }
+    
+    /**
+     * Namespace bindings in scope for an element
+     */
+    private static final class Scope {
+        
+        static final Scope ROOT = new Scope(Map.of());
+        
+        private final Map<String, String> bindings;
+        private String declarations;
+        
+        private Scope(Map<String, String> bindings) {
+            this.bindings = bindings;
+        }
+        
+        /**
+         * Scope of a child element; shares this scope unless the tag declares namespaces
+         */
+        Scope with(byte[] xml, int lt, int tagEnd) {
+            Map<String, String> declared = null;
+            int i = XmlBytes.indexOf(xml, lt, tagEnd, XMLNS);
+            while (i >= 0) {
+                int eq = XmlBytes.indexOf(xml, i, tagEnd, (byte) '=');
+                if (eq < 0 || !XmlBytes.isNameEnd(xml[i - 1])) {
+                    break;
+                }
+                String name = new String(xml, i, eq - i, StandardCharsets.UTF_8).trim();
+                int valueStart = eq + 1;
+                while (valueStart < tagEnd && xml[valueStart] != '"' && xml[valueStart] != '\'') {
+                    valueStart++;
+                }
+                int valueEnd = valueStart < tagEnd ? XmlBytes.indexOf(xml, valueStart + 1, tagEnd, xml[valueStart]) : -1;
+                if (valueEnd < 0) {
+                    break;
+                }
+                if (name.equals("xmlns") || name.startsWith("xmlns:")) {
+                    if (declared == null) {
+                        declared = new LinkedHashMap<>(bindings);
+                    }
+                    declared.put(name, new String(xml, valueStart + 1, valueEnd - valueStart - 1, StandardCharsets.UTF_8));
+                }
+                i = XmlBytes.indexOf(xml, valueEnd, tagEnd, XMLNS);
+            }
+            return declared == null ? this : new Scope(declared);
+        }
+        
+        /**
+         * In-scope bindings as xmlns attributes (values are re-emitted as written)
+         */
+        String declarations() {
+            if (declarations == null) {
+                StringBuilder builder = new StringBuilder();
+                bindings.forEach((name, value) -> builder.append(' ').append(name).append("=\"")
+                    .append(value.replace("\"", "&quot;")).append('"'));
+                declarations = builder.toString();
+            }
+            return declarations;
+        }
+    }
+}
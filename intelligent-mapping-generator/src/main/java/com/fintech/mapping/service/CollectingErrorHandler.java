@@ -0,0 +1,104 @@
+package com.fintech.mapping.service;
+
+import com.fintech.mapping.model.ValidationError;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXParseException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * XSD error handler that collects every warning/error/fatal error instead of throwing
+ *
+ * At most maxErrors are kept so a huge, badly broken bulk file cannot fill the heap;
+ * the rest are only counted and reported as one summary error.
+ */
+final class CollectingErrorHandler implements ErrorHandler {
+    
+    private final List<ValidationError> errors = new ArrayList<>();
+    private final int maxErrors;
+    private int suppressed;
+    
+    CollectingErrorHandler(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+    
+    @Override
+    public void warning(SAXParseException e) {
+        add(toError(e, "WARNING"));
+    }
+    
+    @Override
+    public void error(SAXParseException e) {
+        add(toError(e, "ERROR"));
+    }
+    
+    @Override
+    public void fatalError(SAXParseException e) {
+        add(toError(e, "FATAL"));
+    }
+    
+    /**
+     * Record a non-XSD failure raised while validating
+     */
+    void systemError(Exception e) {
+        add(ValidationError.builder()
+            .message("Unexpected validation error: " + e.getMessage())
+            .errorType("SYSTEM")
+            .build());
+    }
+    
+    List<ValidationError> getErrors() {
+        return withSummary(errors, suppressed, maxErrors);
+    }
+    
+    /**
+     * Merge the errors of independently validated parts of one message into document
+     * order (by line, then column), keeping at most maxErrors overall
+     */
+    static List<ValidationError> merge(List<CollectingErrorHandler> parts, int maxErrors) {
+        List<ValidationError> merged = new ArrayList<>();
+        int suppressed = 0;
+        for (CollectingErrorHandler part : parts) {
+            merged.addAll(part.errors);
+            suppressed += part.suppressed;
+        }
+        merged.sort(Comparator.comparingInt(ValidationError::getLineNumber)
+            .thenComparingInt(ValidationError::getColumnNumber));
+        if (merged.size() > maxErrors) {
+            suppressed += merged.size() - maxErrors;
+            merged = new ArrayList<>(merged.subList(0, maxErrors));
+        }
+        return withSummary(merged, suppressed, maxErrors);
+    }
+    
+    private static List<ValidationError> withSummary(List<ValidationError> errors, int suppressed, int maxErrors) {
+        if (suppressed == 0) {
+            return errors;
+        }
+        List<ValidationError> reported = new ArrayList<>(errors);
+        reported.add(ValidationError.builder()
+            .message(suppressed + " further validation errors not reported (limit " + maxErrors + ")")
+            .errorType("ERROR")
+            .build());
+        return reported;
+    }
+    
+    private void add(ValidationError error) {
+        if (errors.size() < maxErrors) {
+            errors.add(error);
+        } else {
+            suppressed++;
+        }
+    }
+    
+    private static ValidationError toError(SAXParseException e, String errorType) {
+        return ValidationError.builder()
+            .message(e.getMessage())
+            .lineNumber(e.getLineNumber())
+            .columnNumber(e.getColumnNumber())
+            .errorType(errorType)
+            .build();
+    }
+}
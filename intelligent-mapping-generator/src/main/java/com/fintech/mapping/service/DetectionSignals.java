@@ -0,0 +1,246 @@
+package com.fintech.mapping.service;
+
+import com.fintech.mapping.model.SchemaType;
+
+/**
+ * Accumulates the CBPR+/ISO heuristic signals from a single forward pass over
+ * a message (StAX, SAX or a DOM walk all feed the same events).
+ *
+ * Signals collected (same semantics as the original DOM lookups):
+ * - AppHdr present anywhere
+ * - text of the first NbOfTxs element
+ * - UETR present anywhere
+ * - number of PmtInf elements
+ * - text of the first MsgId element
+ * - a BICFI nested inside any FwdgAgt
+ *
+ * While the pass is running, {@link #settledType()} reports whether the final
+ * CBPR+/ISO decision is already fixed whatever the rest of the message holds,
+ * so callers can stop reading early.
+ */
+final class DetectionSignals {
+    
+    private boolean appHdr;
+    private boolean uetr;
+    private boolean fwdgAgtBic;
+    private int pmtInfCount;
+    
+    private String nbOfTxs;
+    private String msgId;
+    
+    // Text capture for the first NbOfTxs / MsgId (getTextContent semantics)
+    private StringBuilder nbOfTxsText;
+    private int nbOfTxsDepth = -1;
+    private StringBuilder msgIdText;
+    private int msgIdDepth = -1;
+    
+    private int depth;
+    private int openFwdgAgt;
+    
+    /**
+     * Element start (local name only, namespaces are ignored like the "*" lookups)
+     */
+    void startElement(String localName) {
+        depth++;
+        switch (localName) {
+            case "AppHdr" -> appHdr = true;
+            case "UETR" -> uetr = true;
+            case "PmtInf" -> pmtInfCount++;
+            case "FwdgAgt" -> openFwdgAgt++;
+            case "BICFI" -> {
+                if (openFwdgAgt > 0) {
+                    fwdgAgtBic = true;
+                }
+            }
+            case "NbOfTxs" -> {
+                if (nbOfTxs == null && nbOfTxsText == null) {
+                    nbOfTxsText = new StringBuilder();
+                    nbOfTxsDepth = depth;
+                }
+            }
+            case "MsgId" -> {
+                if (msgId == null && msgIdText == null) {
+                    msgIdText = new StringBuilder();
+                    msgIdDepth = depth;
+                }
+            }
+            default -> {
+                // not a detection signal
+            }
+        }
+    }
+    
+    /**
+     * Character data (text, CDATA and whitespace all count, as in getTextContent)
+     */
+    void characters(char[] ch, int start, int length) {
+        if (nbOfTxsText != null) {
+            nbOfTxsText.append(ch, start, length);
+        }
+        if (msgIdText != null) {
+            msgIdText.append(ch, start, length);
+        }
+    }
+    
+    void characters(String text) {
+        if (nbOfTxsText != null) {
+            nbOfTxsText.append(text);
+        }
+        if (msgIdText != null) {
+            msgIdText.append(text);
+        }
+    }
+    
+    /**
+     * Element end
+     */
+    void endElement(String localName) {
+        if (depth == nbOfTxsDepth && nbOfTxsText != null) {
+            nbOfTxs = nbOfTxsText.toString();
+            nbOfTxsText = null;
+            nbOfTxsDepth = -1;
+        }
+        if (depth == msgIdDepth && msgIdText != null) {
+            msgId = msgIdText.toString();
+            msgIdText = null;
+            msgIdDepth = -1;
+        }
+        if ("FwdgAgt".equals(localName) && openFwdgAgt > 0) {
+            openFwdgAgt--;
+        }
+        depth--;
+    }
+    
+    /**
+     * Count an AppHdr that is not part of the parsed events (envelope header parsed on its own)
+     */
+    void markAppHdr() {
+        appHdr = true;
+    }
+    
+    /**
+     * Count a UETR that is not part of the parsed events (transaction parsed on its own)
+     */
+    void markUetr() {
+        uetr = true;
+    }
+    
+    boolean hasAppHdr() {
+        return appHdr;
+    }
+    
+    boolean hasUetr() {
+        return uetr;
+    }
+    
+    boolean hasFwdgAgtBic() {
+        return fwdgAgtBic;
+    }
+    
+    int getPmtInfCount() {
+        return pmtInfCount;
+    }
+    
+    String getNbOfTxs() {
+        return nbOfTxs;
+    }
+    
+    String getMsgId() {
+        return msgId;
+    }
+    
+    /**
+     * Whether the CBPR+/ISO decision can no longer change
+     */
+    boolean isDecided() {
+        return settledType() != null;
+    }
+    
+    /**
+     * The CBPR+/ISO decision if it can no longer change, otherwise null.
+     *
+     * The decision is CBPR+ iff cbpr >= 30 and cbpr >= iso (see
+     * SchemaDetectionService#score). Every signal not yet resolved contributes
+     * one of a few possible (cbpr, iso) pairs; if all combinations land on the
+     * same side, the rest of the message cannot flip the outcome.
+     */
+    SchemaType settledType() {
+        int cbpr = 0;
+        int iso = 0;
+        int maxCbpr = 0;
+        int minDiff = 0;
+        int maxDiff = 0;
+        
+        // AppHdr: seen -> (50, 0), otherwise still (50, 0) or (0, 10)
+        if (appHdr) {
+            cbpr += 50;
+        } else {
+            maxCbpr += 50;
+            maxDiff += 50;
+            minDiff -= 10;
+        }
+        
+        // NbOfTxs: resolved once the first element has closed
+        if (nbOfTxs != null) {
+            if ("1".equals(nbOfTxs)) {
+                cbpr += 20;
+            } else {
+                iso += 40;
+            }
+        } else {
+            // (20, 0), (0, 40) or absent (0, 0)
+            maxCbpr += 20;
+            maxDiff += 20;
+            minDiff -= 40;
+        }
+        
+        // UETR: seen -> (15, 0), otherwise (15, 0) or (0, 5)
+        if (uetr) {
+            cbpr += 15;
+        } else {
+            maxCbpr += 15;
+            maxDiff += 15;
+            minDiff -= 5;
+        }
+        
+        // PmtInf: 2+ -> (0, 30), otherwise any of (0, 0), (10, 0), (0, 30)
+        if (pmtInfCount > 1) {
+            iso += 30;
+        } else {
+            maxCbpr += 10;
+            maxDiff += 10;
+            minDiff -= 30;
+        }
+        
+        // MsgId: resolved once the first element has closed
+        if (msgId != null) {
+            if (SchemaDetectionService.isFinX(msgId)) {
+                cbpr += 10;
+            } else {
+                iso += 10;
+            }
+        } else {
+            // (10, 0), (0, 10) or absent (0, 0)
+            maxCbpr += 10;
+            maxDiff += 10;
+            minDiff -= 10;
+        }
+        
+        // FwdgAgt/BICFI: seen -> (5, 0), otherwise (5, 0) or (0, 0)
+        if (fwdgAgtBic) {
+            cbpr += 5;
+        } else {
+            maxCbpr += 5;
+            maxDiff += 5;
+        }
+        
+        int diff = cbpr - iso;
+        if (cbpr >= 30 && diff + minDiff >= 0) {
+            return SchemaType.CBPR_PLUS;
+        }
+        if (cbpr + maxCbpr < 30 || diff + maxDiff < 0) {
+            return SchemaType.ISO_STANDARD;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,268 @@
+package com.fintech.mapping.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Detects messages repeating a GrpHdr/MsgId or a UETR seen within app.dedup.window
+ *
+ * The IDs are read straight from the UTF-8 payload (first MsgId element, every UETR
+ * element) and kept as 128-bit keys in a {@link RecentIdIndex}: a UETR is its own 128
+ * bits, a MsgId is hashed (Murmur3). A message whose IDs are all new has them recorded;
+ * a duplicate records nothing, so resubmitting a corrected message with other IDs is
+ * not blocked by the rejected one.
+ *
+ * IDs are recorded by the check itself, so a copy arriving while the message is still
+ * being processed is caught. If the message then does not get through (a later stage
+ * or the publish fails and the listener rolls it back, or it goes to a DLQ),
+ * {@link #forget} takes its IDs out again and its redelivery or resubmission is not
+ * taken for a duplicate (see {@link com.fintech.mapping.pipeline.PipelineContext#failed}).
+ *
+ * The index (app.dedup.max-ids, about 24 bytes per ID) is allocated on first use, i.e.
+ * only when a pipeline has a dedup stage. Checks are serialised on the index: a check
+ * costs about 100-150 ns per ID, plus one sweep of the table each time the window moves
+ * on by a bucket.
+ *
+ * The index lives in memory only: it starts empty, so after a restart a message seen
+ * before it is not recognised as a duplicate until its IDs come round again.
+ */
+@Service
+@Slf4j
+public class DuplicateCheckService {
+    
+    private static final byte[] MSG_ID_TAG = XmlBytes.ascii("MsgId>");
+    private static final byte[] UETR_TAG = XmlBytes.ascii("UETR>");
+    private static final long MSG_ID_SEED = 0x4d736749644b6579L;
+    private static final long UETR_SEED = 0x554554524b657973L;
+    
+    public static final String MSG_ID = "MsgId";
+    public static final String UETR = "UETR";
+    
+    @Value("${app.dedup.window:24h}")
+    private Duration window;
+    
+    @Value("${app.dedup.buckets:8}")
+    private int buckets;
+    
+    @Value("${app.dedup.max-ids:2000000}")
+    private int maxIds;
+    
+    @Autowired
+    private MeterRegistry registry;
+    
+    private RecentIdIndex index;
+    
+    /**
+     * Record the message's IDs unless one of them was seen within the window
+     *
+     * @param xml    buffer holding the UTF-8 message in its first {@code length} bytes
+     * @return the first repeated ID, or the IDs recorded for a new message
+     */
+    public Check check(byte[] xml, int length) {
+        Ids ids = idsOf(xml, length);
+        if (ids.count == 0) {
+            return Check.NEW;
+        }
+        
+        synchronized (this) {
+            RecentIdIndex recentIds = index();
+            long now = System.currentTimeMillis();
+            for (int k = 0; k < ids.count; k++) {
+                if (recentIds.contains(ids.keys[2 * k], ids.keys[2 * k + 1], now)) {
+                    return new Check(ids.duplicate(xml, k), Check.NONE);
+                }
+            }
+            // A message repeating one of its own UETRs adds it once, and must forget it once
+            long[] recorded = new long[2 * ids.count];
+            int added = 0;
+            for (int k = 0; k < ids.count; k++) {
+                if (recentIds.add(ids.keys[2 * k], ids.keys[2 * k + 1], now)) {
+                    recorded[2 * added] = ids.keys[2 * k];
+                    recorded[2 * added + 1] = ids.keys[2 * k + 1];
+                    added++;
+                }
+            }
+            return new Check(null, Arrays.copyOf(recorded, 2 * added));
+        }
+    }
+    
+    /**
+     * Take out the IDs a check recorded, for a message that did not get through
+     */
+    public void forget(Check check) {
+        if (check.recorded().length == 0) {
+            return;
+        }
+        synchronized (this) {
+            RecentIdIndex recentIds = index();
+            for (int k = 0; k < check.recorded().length; k += 2) {
+                recentIds.remove(check.recorded()[k], check.recorded()[k + 1]);
+            }
+        }
+    }
+    
+    /**
+     * IDs currently held (0 before first use)
+     */
+    public synchronized int size() {
+        return index != null ? index.size() : 0;
+    }
+    
+    private RecentIdIndex index() {
+        if (index == null) {
+            index = new RecentIdIndex(maxIds, window, buckets);
+            Gauge.builder("dedup.ids", this, DuplicateCheckService::size)
+                .description("MsgIds and UETRs held by the duplicate index")
+                .register(registry);
+            log.info("Duplicate index: max-ids={}, window={}, buckets={} ({} MB)",
+                maxIds, window, buckets, index.memoryBytes() / (1024 * 1024));
+        }
+        return index;
+    }
+    
+    /**
+     * First MsgId and every UETR of the message, with where their text is
+     */
+    private static Ids idsOf(byte[] xml, int length) {
+        Ids ids = new Ids();
+        int msgId = textAfter(xml, 0, length, MSG_ID_TAG);
+        if (msgId >= 0) {
+            int end = XmlBytes.indexOf(xml, msgId, length, (byte) '<');
+            if (end > msgId) {
+                long[] hash = Murmur3.hash128(xml, msgId, end - msgId, MSG_ID_SEED);
+                ids.add(hash[0], hash[1], msgId, end, MSG_ID);
+            }
+        }
+        
+        int from = 0;
+        int uetr;
+        while ((uetr = textAfter(xml, from, length, UETR_TAG)) >= 0) {
+            int end = XmlBytes.indexOf(xml, uetr, length, (byte) '<');
+            if (end < 0) {
+                break;
+            }
+            if (!ids.addUetr(xml, uetr, end)) {
+                long[] hash = Murmur3.hash128(xml, uetr, end - uetr, UETR_SEED);
+                ids.add(hash[0], hash[1], uetr, end, UETR);
+            }
+            from = end;
+        }
+        return ids;
+    }
+    
+    /**
+     * Offset of the text of the next element whose start tag ends in {@code nameTag}
+     * (any prefix), or -1
+     */
+    private static int textAfter(byte[] xml, int from, int to, byte[] nameTag) {
+        int i = from;
+        while ((i = XmlBytes.indexOf(xml, i, to, nameTag)) >= 0) {
+            int before = i - 1;
+            if (before >= 0 && xml[before] == ':') {
+                // Prefixed name: find the '<' and make sure it is not an end tag
+                while (before >= 0 && xml[before] != '<' && !XmlBytes.isNameEnd(xml[before])) {
+                    before--;
+                }
+            }
+            if (before >= 0 && xml[before] == '<' && (before + 1 >= to || xml[before + 1] != '/')) {
+                return i + nameTag.length;
+            }
+            i += nameTag.length;
+        }
+        return -1;
+    }
+    
+    /**
+     * The ID that was seen before
+     *
+     * @param field {@link #MSG_ID} or {@link #UETR}
+     */
+    public record Duplicate(String field, String value) {}
+    
+    /**
+     * Outcome of {@link #check}
+     *
+     * @param duplicate the repeated ID, or null when the message is new
+     * @param recorded  keys recorded for a new message (two longs each), for {@link #forget}
+     */
+    public record Check(Duplicate duplicate, long[] recorded) {
+        
+        private static final long[] NONE = new long[0];
+        private static final Check NEW = new Check(null, NONE);
+        
+        public boolean isDuplicate() {
+            return duplicate != null;
+        }
+    }
+    
+    /**
+     * Keys with the span of their text, in a growable primitive list
+     */
+    private static final class Ids {
+        
+        private long[] keys = new long[8];
+        private int[] spans = new int[8];
+        private String[] fields = new String[4];
+        private int count;
+        
+        void add(long high, long low, int start, int end, String field) {
+            if (count == fields.length) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+                spans = Arrays.copyOf(spans, spans.length * 2);
+                fields = Arrays.copyOf(fields, fields.length * 2);
+            }
+            keys[2 * count] = high;
+            keys[2 * count + 1] = low;
+            spans[2 * count] = start;
+            spans[2 * count + 1] = end;
+            fields[count] = field;
+            count++;
+        }
+        
+        /**
+         * A UETR as its 128 bits (32 hex digits, dashes ignored)
+         *
+         * @return false when it is not in that form
+         */
+        boolean addUetr(byte[] xml, int start, int end) {
+            long high = 0;
+            long low = 0;
+            int digits = 0;
+            for (int i = start; i < end; i++) {
+                int b = xml[i];
+                if (b == '-') {
+                    continue;
+                }
+                int digit = Character.digit(b, 16);
+                if (digit < 0 || digits == 32) {
+                    return false;
+                }
+                if (digits < 16) {
+                    high = high << 4 | digit;
+                } else {
+                    low = low << 4 | digit;
+                }
+                digits++;
+            }
+            if (digits != 32) {
+                return false;
+            }
+            add(high, low, start, end, UETR);
+            return true;
+        }
+        
+        Duplicate duplicate(byte[] xml, int k) {
+            int start = spans[2 * k];
+            int end = spans[2 * k + 1];
+            return new Duplicate(fields[k], new String(xml, start, end - start, StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.fintech.mapping.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Finds the AppHdr and Document of a CBPR+ envelope in the original payload bytes
+ *
+ * An envelope has two top-level elements (AppHdr + Document), so it is not a
+ * well-formed document by itself. Instead of rewriting it, each element is located
+ * here and parsed as a source of its own, read straight out of the payload buffer
+ * (nothing is copied). Top-level elements carry their own namespace declarations,
+ * so each section is a complete document.
+ *
+ * Only tags are looked at: comments, CDATA, PIs and the XML declaration are skipped
+ * and a '>' inside a quoted attribute value does not end a tag.
+ */
+final class EnvelopeReader {
+    
+    private static final String APP_HDR_ELEMENT = "AppHdr";
+    private static final String DOCUMENT_ELEMENT = "Document";
+    private static final byte[] APP_HDR = XmlBytes.ascii(APP_HDR_ELEMENT);
+    
+    private EnvelopeReader() {
+    }
+    
+    /**
+     * Locate the top-level AppHdr and Document in xml[0, length)
+     *
+     * @return the envelope, or null when there is no top-level AppHdr (a plain message)
+     */
+    static Envelope read(byte[] xml, int length) {
+        // Cheap pre-check: most messages have no header at all
+        if (XmlBytes.indexOf(xml, 0, length, APP_HDR) < 0) {
+            return null;
+        }
+        
+        Section appHdr = null;
+        Section document = null;
+        Section open = null;
+        int depth = 0;
+        int[] position = {1, 1};
+        int positionOffset = 0;
+        
+        int i = 0;
+        while (appHdr == null || document == null || open != null) {
+            int lt = XmlBytes.indexOf(xml, i, length, (byte) '<');
+            if (lt < 0) {
+                break;
+            }
+            int skipped = XmlBytes.skipNonElement(xml, lt, length);
+            if (skipped != 0) {
+                if (skipped < 0) {
+                    break;
+                }
+                i = skipped;
+                continue;
+            }
+            int tagEnd = XmlBytes.tagEnd(xml, lt, length);
+            if (tagEnd < 0) {
+                break;
+            }
+            i = tagEnd + 1;
+            
+            if (xml[lt + 1] == '/') {
+                depth--;
+                if (depth == 0 && open != null) {
+                    Section closed = open.endingAt(i);
+                    if (closed.isAppHdr()) {
+                        appHdr = closed;
+                    } else {
+                        document = closed;
+                    }
+                    open = null;
+                }
+                continue;
+            }
+            
+            boolean selfClosing = xml[tagEnd - 1] == '/';
+            if (depth == 0) {
+                String qName = XmlBytes.tagName(xml, lt + 1, tagEnd);
+                int colon = qName.indexOf(':');
+                String localName = qName.substring(colon + 1);
+                boolean isAppHdr = APP_HDR_ELEMENT.equals(localName) && appHdr == null;
+                if (isAppHdr || DOCUMENT_ELEMENT.equals(localName) && document == null) {
+                    positionOffset = XmlBytes.advance(xml, positionOffset, lt, position);
+                    Map<String, String> declared = NamespaceSniffer.declarations(xml, lt + 1, tagEnd);
+                    String prefix = colon >= 0 ? qName.substring(0, colon) : "";
+                    String namespace = declared != null ? declared.getOrDefault(prefix, "") : "";
+                    open = new Section(localName, lt, -1, position[0], position[1], namespace);
+                    if (selfClosing) {
+                        open = open.endingAt(i);
+                        if (isAppHdr) {
+                            appHdr = open;
+                        } else {
+                            document = open;
+                        }
+                        open = null;
+                    }
+                }
+            }
+            if (!selfClosing) {
+                depth++;
+            }
+        }
+        
+        // An element still open runs past the bytes scanned (the rest of a stream)
+        if (open != null) {
+            if (open.isAppHdr()) {
+                appHdr = open;
+            } else {
+                document = open;
+            }
+        }
+        return appHdr != null ? new Envelope(appHdr, document) : null;
+    }
+    
+    /**
+     * @param appHdr   the business application header
+     * @param document the message itself, or null when the envelope has none (in the scanned bytes)
+     */
+    record Envelope(Section appHdr, Section document) {}
+    
+    /**
+     * A top-level element of the envelope
+     *
+     * @param start     offset of its start tag
+     * @param end       offset just after its end tag, -1 when it ends beyond the scanned bytes
+     * @param line      line of its start tag in the payload
+     * @param column    column of its start tag in the payload
+     * @param namespace namespace URI it declares for itself ("" when none)
+     */
+    record Section(String localName, int start, int end, int line, int column, String namespace) {
+        
+        boolean isComplete() {
+            return end >= 0;
+        }
+        
+        boolean isAppHdr() {
+            return APP_HDR_ELEMENT.equals(localName);
+        }
+        
+        /**
+         * The element as a standalone source over the payload buffer (up to {@code length}
+         * when it is not complete)
+         */
+        InputStream open(byte[] xml, int length) {
+            return new ByteArrayInputStream(xml, start, (isComplete() ? end : length) - start);
+        }
+        
+        private Section endingAt(int offset) {
+            return new Section(localName, start, offset, line, column, namespace);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.fintech.mapping.service;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.InputStream;
+
+/**
+ * Schemas derived from the ISO pain.001 XSD for fragment-wise validation of bulk messages
+ *
+ * - transaction schema: the ISO schema plus a global CdtTrfTxInf element of the
+ *   transaction type, so a single transaction can be validated as a document
+ * - skeleton schema: the ISO schema with the CdtTrfTxInf content replaced by a
+ *   skip wildcard, so group header and payment information blocks can be validated
+ *   without their transactions
+ */
+final class FragmentSchemas {
+    
+    private static final String SKIPPED_TYPE = "SkippedTransaction__Fragment";
+    
+    private final Schema transactionSchema;
+    private final Schema skeletonSchema;
+    
+    private FragmentSchemas(Schema transactionSchema, Schema skeletonSchema) {
+        this.transactionSchema = transactionSchema;
+        this.skeletonSchema = skeletonSchema;
+    }
+    
+    Schema transactionSchema() {
+        return transactionSchema;
+    }
+    
+    Schema skeletonSchema() {
+        return skeletonSchema;
+    }
+    
+    /**
+     * Derive both schemas from the ISO XSD source
+     *
+     * @throws IllegalStateException if the XSD has no typed CdtTrfTxInf element
+     */
+    static FragmentSchemas derive(InputStream isoXsd) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document xsd = factory.newDocumentBuilder().parse(isoXsd);
+        
+        Element transactionElement = findTransactionElement(xsd);
+        String transactionType = transactionElement.getAttribute("type");
+        int colon = transactionType.indexOf(':');
+        String typePrefix = colon >= 0 ? transactionType.substring(0, colon + 1) : "";
+        
+        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        
+        // Transaction schema: global <xs:element name="CdtTrfTxInf" type="..."/>
+        Document transactionXsd = (Document) xsd.cloneNode(true);
+        Element root = transactionXsd.getDocumentElement();
+        Element global = xsElement(transactionXsd, root, "element");
+        global.setAttribute("name", BulkMessageSplitter.TRANSACTION_ELEMENT);
+        global.setAttribute("type", transactionType);
+        root.appendChild(global);
+        Schema transactionSchema = schemaFactory.newSchema(new DOMSource(transactionXsd));
+        
+        // Skeleton schema: CdtTrfTxInf accepts anything and is not validated
+        Document skeletonXsd = (Document) xsd.cloneNode(true);
+        root = skeletonXsd.getDocumentElement();
+        findTransactionElement(skeletonXsd).setAttribute("type", typePrefix + SKIPPED_TYPE);
+        Element skipped = xsElement(skeletonXsd, root, "complexType");
+        skipped.setAttribute("name", SKIPPED_TYPE);
+        Element sequence = xsElement(skeletonXsd, root, "sequence");
+        Element any = xsElement(skeletonXsd, root, "any");
+        any.setAttribute("namespace", "##any");
+        any.setAttribute("processContents", "skip");
+        any.setAttribute("minOccurs", "0");
+        any.setAttribute("maxOccurs", "unbounded");
+        sequence.appendChild(any);
+        skipped.appendChild(sequence);
+        Element anyAttribute = xsElement(skeletonXsd, root, "anyAttribute");
+        anyAttribute.setAttribute("processContents", "skip");
+        skipped.appendChild(anyAttribute);
+        root.appendChild(skipped);
+        Schema skeletonSchema = schemaFactory.newSchema(new DOMSource(skeletonXsd));
+        
+        return new FragmentSchemas(transactionSchema, skeletonSchema);
+    }
+    
+    private static Element findTransactionElement(Document xsd) {
+        NodeList elements = xsd.getElementsByTagNameNS(XMLConstants.W3C_XML_SCHEMA_NS_URI, "element");
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element) elements.item(i);
+            if (BulkMessageSplitter.TRANSACTION_ELEMENT.equals(element.getAttribute("name"))
+                    && element.hasAttribute("type")) {
+                return element;
+            }
+        }
+        throw new IllegalStateException("No typed " + BulkMessageSplitter.TRANSACTION_ELEMENT + " element in schema");
+    }
+    
+    /**
+     * New element in the XML Schema namespace, using the prefix of the schema root
+     */
+    private static Element xsElement(Document xsd, Element root, String localName) {
+        String prefix = root.getPrefix();
+        String qName = prefix != null ? prefix + ":" + localName : localName;
+        return xsd.createElementNS(XMLConstants.W3C_XML_SCHEMA_NS_URI, qName);
+    }
+}
@@ -0,0 +1,27 @@
+package com.fintech.mapping.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which messages get a full log trace (app.logging.sample-rate)
+ *
+ * A message that is not sampled logs at most one line, and only when it is invalid.
+ * A sampled message also logs its outcome at INFO, and its detection score trace and
+ * result summary at DEBUG. 1.0 samples every message, 0 none.
+ */
+@Component
+public class LogSampler {
+    
+    @Value("${app.logging.sample-rate:1.0}")
+    private double sampleRate;
+    
+    /**
+     * Take the sampling decision for one message
+     */
+    public boolean sample() {
+        return sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+}
@@ -0,0 +1,254 @@
+package com.fintech.mapping.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fintech.mapping.metrics.ValidationMetrics;
+import com.fintech.mapping.model.MappingDefinition;
+import com.fintech.mapping.model.ValidationError;
+import com.fintech.mapping.transform.MappingCompiler;
+import com.fintech.mapping.transform.MappingPlan;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Compiled message mappings (e.g. pain.001 to pacs.008), by mapping ID
+ *
+ * The definitions listed in app.mapping.definitions are compiled once at startup;
+ * further ones can be registered at runtime (POST /generate-mapping). A transform
+ * runs the compiled {@link MappingPlan} in one streaming pass over the payload bytes;
+ * a split produces one target message per record (pacs.008 per transaction) as the
+ * source goes by.
+ * A CBPR+ envelope is not well-formed by itself, so only its Document is read (located
+ * by {@link EnvelopeReader}, without copying).
+ *
+ * Every target message is validated against the schema registered for its namespace
+ * (app.mapping.validate-target) before it is returned or handed on, so an invalid
+ * pacs.008 is never published: the mapping fails with an {@link InvalidTargetException}
+ * instead. Targets without a registered schema are not checked.
+ */
+@Service
+@Slf4j
+public class MappingService {
+    
+    @Value("${app.mapping.definitions:}")
+    private String[] definitionPaths;
+    
+    @Value("${app.mapping.validate-target:true}")
+    private boolean validateTarget;
+    
+    @Autowired
+    private ResourceLoader resourceLoader;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private SchemaRegistry schemaRegistry;
+    
+    @Autowired
+    private ValidationService validationService;
+    
+    @Autowired
+    private ValidationMetrics metrics;
+    
+    @Autowired
+    private LogSampler logSampler;
+    
+    private final Map<String, MappingPlan> plans = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() throws IOException {
+        for (String path : definitionPaths) {
+            if (!path.isBlank()) {
+                Resource location = resourceLoader.getResource(path.trim());
+                try (InputStream in = location.getInputStream()) {
+                    register(objectMapper.readValue(in, MappingDefinition.class));
+                }
+            }
+        }
+        log.info("{} message mappings compiled: {}", plans.size(), plans.keySet());
+    }
+    
+    /**
+     * Compile a definition and register it under its mapping ID (replacing any previous one)
+     *
+     * @throws IllegalArgumentException if the definition does not compile
+     */
+    public MappingDefinition register(MappingDefinition definition) {
+        MappingPlan plan = MappingCompiler.compile(definition);
+        plans.put(definition.getMappingId(), plan);
+        log.debug("Mapping '{}' compiled ({} -> {}, {} fields)", definition.getMappingId(),
+            definition.getSourceFormat(), definition.getTargetFormat(), definition.getFields().size());
+        if (validateTarget && schemaRegistry.forNamespace(plan.getTargetNamespace()) == null) {
+            log.warn("No schema registered for {}: output of mapping '{}' is not validated",
+                plan.getTargetNamespace(), definition.getMappingId());
+        }
+        return definition;
+    }
+    
+    public List<MappingDefinition> getDefinitions() {
+        return plans.values().stream().map(MappingPlan::getDefinition).toList();
+    }
+    
+    /**
+     * The definition registered under a mapping ID, or null
+     */
+    public MappingDefinition getDefinition(String mappingId) {
+        MappingPlan plan = plans.get(mappingId);
+        return plan != null ? plan.getDefinition() : null;
+    }
+    
+    /**
+     * A registered definition from one message definition to another (targetFormat null: any), or null
+     */
+    public MappingDefinition find(String sourceFormat, String targetFormat) {
+        for (MappingPlan plan : plans.values()) {
+            MappingDefinition definition = plan.getDefinition();
+            if (sourceFormat.equals(definition.getSourceFormat())
+                    && (targetFormat == null || targetFormat.equals(definition.getTargetFormat()))) {
+                return definition;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Map a message (plain Document or CBPR+ envelope) with a registered mapping
+     *
+     * @return the target message, UTF-8 encoded
+     * @throws IllegalArgumentException if no mapping is registered under the ID
+     * @throws InvalidTargetException   if the target message is not valid against its schema
+     * @throws XMLStreamException       if the message is not well-formed or has no Document
+     */
+    public byte[] transform(String mappingId, byte[] xml) throws XMLStreamException {
+        MappingPlan plan = plan(mappingId);
+        long startTime = System.nanoTime();
+        
+        // Target messages are about the size of their source
+        ByteArrayOutputStream target = new ByteArrayOutputStream(xml.length + 1024);
+        int records = plan.transform(documentOf(xml), target);
+        
+        metrics.recordStage(ValidationMetrics.Stage.MAP, System.nanoTime() - startTime);
+        if (logSampler.sample()) {
+            log.atDebug()
+                .setMessage("Message mapped")
+                .addKeyValue("mappingId", mappingId)
+                .addKeyValue("records", records)
+                .addKeyValue("bytes", target.size())
+                .log();
+        }
+        byte[] mapped = target.toByteArray();
+        checkTarget(plan, mapped);
+        return mapped;
+    }
+    
+    /**
+     * Map a message (plain Document or CBPR+ envelope) to one target message per record
+     * (see {@link #split(String, InputStream, Consumer)})
+     */
+    public int split(String mappingId, byte[] xml, Consumer<byte[]> messages) throws XMLStreamException {
+        return split(mappingId, documentOf(xml), messages);
+    }
+    
+    /**
+     * Map a message read from a stream to one target message per record, each handed to
+     * {@code messages} as soon as its record has been read; only one record is held at a time
+     *
+     * @return number of target messages
+     * @throws IllegalArgumentException if no mapping is registered under the ID, or it has no record
+     * @throws InvalidTargetException   if a target message is not valid against its schema (the
+     *                                  ones before it have been handed on)
+     * @throws XMLStreamException       if the message is not well-formed or has no Document
+     */
+    public int split(String mappingId, InputStream xml, Consumer<byte[]> messages) throws XMLStreamException {
+        MappingPlan plan = plan(mappingId);
+        if (plan.getDefinition().getRecordSource() == null) {
+            throw new IllegalArgumentException("Mapping '" + mappingId + "' has no record to split on");
+        }
+        long startTime = System.nanoTime();
+        int records = plan.split(xml, message -> {
+            checkTarget(plan, message);
+            messages.accept(message);
+        });
+        
+        metrics.recordStage(ValidationMetrics.Stage.MAP, System.nanoTime() - startTime);
+        if (logSampler.sample()) {
+            log.atDebug()
+                .setMessage("Message split")
+                .addKeyValue("mappingId", mappingId)
+                .addKeyValue("records", records)
+                .log();
+        }
+        return records;
+    }
+    
+    /**
+     * Validate a target message against the schema registered for its namespace (if any)
+     */
+    private void checkTarget(MappingPlan plan, byte[] message) {
+        if (!validateTarget) {
+            return;
+        }
+        String targetSchema = schemaRegistry.forNamespace(plan.getTargetNamespace());
+        if (targetSchema == null) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        List<ValidationError> errors = validationService.validateOutput(targetSchema, message);
+        metrics.recordStage(ValidationMetrics.Stage.XSD_VALIDATE, System.nanoTime() - startTime);
+        if (!errors.isEmpty()) {
+            throw new InvalidTargetException(plan.getDefinition().getMappingId(), targetSchema, errors);
+        }
+    }
+    
+    private MappingPlan plan(String mappingId) {
+        MappingPlan plan = mappingId != null ? plans.get(mappingId) : null;
+        if (plan == null) {
+            throw new IllegalArgumentException("No mapping registered as '" + mappingId + "'");
+        }
+        return plan;
+    }
+    
+    /**
+     * The Document of a CBPR+ envelope (not well-formed by itself), else the whole payload
+     */
+    private static InputStream documentOf(byte[] xml) {
+        EnvelopeReader.Envelope envelope = EnvelopeReader.read(xml, xml.length);
+        return envelope != null && envelope.document() != null
+            ? envelope.document().open(xml, xml.length)
+            : new ByteArrayInputStream(xml);
+    }
+    
+    /**
+     * A mapped message that is not valid against the target schema; the message names
+     * the first error
+     */
+    public static final class InvalidTargetException extends IllegalArgumentException {
+        
+        private final transient List<ValidationError> errors;
+        
+        InvalidTargetException(String mappingId, String targetSchema, List<ValidationError> errors) {
+            super("Mapping '" + mappingId + "' produced a message that is not valid " + targetSchema
+                + " (" + errors.size() + " errors): " + errors.get(0).getMessage());
+            this.errors = errors;
+        }
+        
+        public List<ValidationError> getErrors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.fintech.mapping.service;
+
+import com.fintech.mapping.model.SchemaType;
+import com.fintech.mapping.model.ValidationError;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.validation.ValidatorHandler;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One SAX pass over a message that feeds schema detection, MsgId extraction and
+ * XSD validation from the same event stream.
+ *
+ * Because the schema is only known once detection has seen enough of the message,
+ * a validator is registered per candidate schema. As soon as detection settles,
+ * the losing candidate stops receiving events.
+ *
+ * For a CBPR+ envelope the pass parses only the Document (see {@link EnvelopeReader});
+ * the AppHdr is validated in a pass of its own and its errors are attached here.
+ *
+ * With {@link #timeStages} the pass also adds up the time spent in detection and in
+ * the validators, so the cost of the shared pass can be split by stage.
+ */
+final class MessagePass extends DefaultHandler {
+    
+    private final DetectionSignals signals = new DetectionSignals();
+    private final List<Target> targets = new ArrayList<>(2);
+    private final List<String[]> pendingPrefixes = new ArrayList<>();
+    private final int maxErrors;
+    
+    private Locator locator;
+    private boolean settled;
+    private boolean envelope;
+    private String messageSchema;
+    private String headerSchema;
+    private List<ValidationError> headerErrors = List.of();
+    private int firstLine = 1;
+    private int firstColumn = 1;
+    private boolean timed;
+    private long detectionNanos;
+    private long validationNanos;
+    
+    /**
+     * @param maxErrors errors kept per candidate schema (see {@link CollectingErrorHandler})
+     */
+    MessagePass(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+    
+    /**
+     * Validate the whole document against the schema of the given type
+     */
+    void validateDocument(SchemaType type, ValidatorHandler handler) {
+        targets.add(new Target(type, handler));
+    }
+    
+    /**
+     * Clock the detection and validator callbacks (see {@link #getDetectionNanos}, {@link #getValidationNanos})
+     */
+    void timeStages(boolean timed) {
+        this.timed = timed;
+    }
+    
+    /**
+     * Time spent collecting detection signals, 0 unless timed
+     */
+    long getDetectionNanos() {
+        return detectionNanos;
+    }
+    
+    /**
+     * Time spent in the XSD validators, 0 unless timed
+     */
+    long getValidationNanos() {
+        return validationNanos;
+    }
+    
+    /**
+     * Report validation errors as if the parsed stream started at (line, column), e.g. for
+     * a section cut out of a larger payload
+     */
+    void reportPositionsFrom(int line, int column) {
+        firstLine = line;
+        firstColumn = column;
+    }
+    
+    /**
+     * Mark the parsed stream as the Document of an envelope (AppHdr + Document); the
+     * AppHdr counts as seen for detection
+     */
+    void markEnvelope() {
+        envelope = true;
+        signals.markAppHdr();
+    }
+    
+    boolean isEnvelope() {
+        return envelope;
+    }
+    
+    /**
+     * Mark the message as a registered message definition other than pain.001 (no detection needed)
+     */
+    void markMessageSchema(String messageSchema) {
+        this.messageSchema = messageSchema;
+    }
+    
+    /**
+     * Registered schema name of a message marked with {@link #markMessageSchema}, or null
+     */
+    String getMessageSchema() {
+        return messageSchema;
+    }
+    
+    /**
+     * Attach the result of validating the envelope's AppHdr against a head.001 schema
+     */
+    void markHeader(String headerSchema, List<ValidationError> headerErrors) {
+        this.headerSchema = headerSchema;
+        this.headerErrors = headerErrors;
+    }
+    
+    /**
+     * Schema the AppHdr was validated against, or null when it was not validated
+     */
+    String getHeaderSchema() {
+        return headerSchema;
+    }
+    
+    List<ValidationError> getHeaderErrors() {
+        return headerErrors;
+    }
+    
+    DetectionSignals getSignals() {
+        return signals;
+    }
+    
+    /**
+     * Errors collected for the given schema type, or null when that type was not
+     * a candidate (or was not reached, e.g. no Document element in the envelope)
+     */
+    List<ValidationError> errorsFor(SchemaType type) {
+        CollectingErrorHandler errorHandler = errorHandlerFor(type);
+        return errorHandler != null ? errorHandler.getErrors() : null;
+    }
+    
+    /**
+     * Error collector of the given candidate, or null (same rules as {@link #errorsFor})
+     */
+    CollectingErrorHandler errorHandlerFor(SchemaType type) {
+        for (Target target : targets) {
+            if (target.type == type && target.started) {
+                return target.errorHandler;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public void setDocumentLocator(Locator locator) {
+        this.locator = locator;
+    }
+    
+    @Override
+    public void startDocument() {
+        long start = clock();
+        for (Target target : targets) {
+            target.start();
+        }
+        validationNanos += clock() - start;
+    }
+    
+    @Override
+    public void endDocument() {
+        long start = clock();
+        for (Target target : targets) {
+            if (target.active) {
+                target.finish();
+            }
+        }
+        validationNanos += clock() - start;
+    }
+    
+    @Override
+    public void startPrefixMapping(String prefix, String uri) {
+        pendingPrefixes.add(new String[] {prefix, uri});
+    }
+    
+    @Override
+    public void endPrefixMapping(String prefix) {
+        for (Target target : targets) {
+            if (target.inScope()) {
+                target.forward(h -> h.endPrefixMapping(prefix));
+            }
+        }
+    }
+    
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        long start = clock();
+        signals.startElement(localName);
+        long detected = clock();
+        
+        for (Target target : targets) {
+            if (target.inScope()) {
+                for (String[] mapping : pendingPrefixes) {
+                    target.forward(h -> h.startPrefixMapping(mapping[0], mapping[1]));
+                }
+                target.forward(h -> h.startElement(uri, localName, qName, attributes));
+            }
+        }
+        pendingPrefixes.clear();
+        settle();
+        long validated = clock();
+        detectionNanos += detected - start;
+        validationNanos += validated - detected;
+    }
+    
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        long start = clock();
+        for (Target target : targets) {
+            if (target.inScope()) {
+                target.forward(h -> h.endElement(uri, localName, qName));
+            }
+        }
+        long validated = clock();
+        signals.endElement(localName);
+        settle();
+        validationNanos += validated - start;
+        detectionNanos += clock() - validated;
+    }
+    
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        long begin = clock();
+        signals.characters(ch, start, length);
+        long detected = clock();
+        for (Target target : targets) {
+            if (target.inScope()) {
+                target.forward(h -> h.characters(ch, start, length));
+            }
+        }
+        detectionNanos += detected - begin;
+        validationNanos += clock() - detected;
+    }
+    
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) {
+        long begin = clock();
+        signals.characters(ch, start, length);
+        long detected = clock();
+        for (Target target : targets) {
+            if (target.inScope()) {
+                target.forward(h -> h.ignorableWhitespace(ch, start, length));
+            }
+        }
+        detectionNanos += detected - begin;
+        validationNanos += clock() - detected;
+    }
+    
+    @Override
+    public void processingInstruction(String target, String data) {
+        for (Target t : targets) {
+            if (t.inScope()) {
+                t.forward(h -> h.processingInstruction(target, data));
+            }
+        }
+    }
+    
+    /**
+     * Once detection can no longer change, stop feeding the other candidate
+     */
+    private void settle() {
+        if (settled || targets.size() < 2) {
+            return;
+        }
+        SchemaType decision = signals.settledType();
+        if (decision != null) {
+            settled = true;
+            for (Target target : targets) {
+                if (target.type != decision) {
+                    target.active = false;
+                }
+            }
+        }
+    }
+    
+    private long clock() {
+        return timed ? System.nanoTime() : 0;
+    }
+    
+    @FunctionalInterface
+    private interface SaxCall {
+        void apply(ValidatorHandler handler) throws SAXException;
+    }
+    
+    /**
+     * A candidate validator and the part of the stream it sees
+     */
+    private final class Target implements Locator {
+        
+        private final SchemaType type;
+        private final ValidatorHandler handler;
+        private final CollectingErrorHandler errorHandler = new CollectingErrorHandler(maxErrors);
+        
+        private boolean active = true;
+        private boolean started;
+        private boolean finished;
+        
+        Target(SchemaType type, ValidatorHandler handler) {
+            this.type = type;
+            this.handler = handler;
+            handler.setErrorHandler(errorHandler);
+        }
+        
+        boolean inScope() {
+            return active && started && !finished;
+        }
+        
+        void start() {
+            started = true;
+            handler.setDocumentLocator(this);
+            forward(ValidatorHandler::startDocument);
+        }
+        
+        void finish() {
+            forward(ValidatorHandler::endDocument);
+            finished = true;
+        }
+        
+        void forward(SaxCall call) {
+            if (!active) {
+                return;
+            }
+            try {
+                call.apply(handler);
+            } catch (SAXException e) {
+                // Errors already captured by the error handler
+                active = false;
+            } catch (RuntimeException e) {
+                errorHandler.systemError(e);
+                active = false;
+            }
+        }
+        
+        // Parser locator shifted by reportPositionsFrom
+        
+        @Override
+        public String getPublicId() {
+            return locator != null ? locator.getPublicId() : null;
+        }
+        
+        @Override
+        public String getSystemId() {
+            return locator != null ? locator.getSystemId() : null;
+        }
+        
+        @Override
+        public int getLineNumber() {
+            return locator.getLineNumber() + firstLine - 1;
+        }
+        
+        @Override
+        public int getColumnNumber() {
+            int column = locator.getColumnNumber();
+            return locator.getLineNumber() == 1 ? column + firstColumn - 1 : column;
+        }
+    }
+}
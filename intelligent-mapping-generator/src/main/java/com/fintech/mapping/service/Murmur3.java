@@ -0,0 +1,95 @@
+package com.fintech.mapping.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * MurmurHash3 x64 128-bit (non-cryptographic, used for content fingerprints)
+ *
+ * Reads the input eight bytes at a time, so hashing a multi-megabyte payload costs a
+ * fraction of parsing it.
+ */
+final class Murmur3 {
+    
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    
+    private Murmur3() {
+    }
+    
+    /**
+     * 128-bit hash of the whole array
+     *
+     * @return {h1, h2}
+     */
+    static long[] hash128(byte[] data, long seed) {
+        return hash128(data, 0, data.length, seed);
+    }
+    
+    static long[] hash128(byte[] data, int offset, int length, long seed) {
+        long h1 = seed;
+        long h2 = seed;
+        
+        int blocksEnd = offset + (length & ~15);
+        for (int i = offset; i < blocksEnd; i += 16) {
+            long k1 = (long) LONG_LE.get(data, i);
+            long k2 = (long) LONG_LE.get(data, i + 8);
+            
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        
+        long k1 = 0;
+        long k2 = 0;
+        int tail = length & 15;
+        for (int i = tail - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (data[blocksEnd + i] & 0xFFL);
+        }
+        for (int i = Math.min(tail, 8) - 1; i >= 0; i--) {
+            k1 = (k1 << 8) | (data[blocksEnd + i] & 0xFFL);
+        }
+        h2 ^= mixK2(k2);
+        h1 ^= mixK1(k1);
+        
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[] {h1, h2};
+    }
+    
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+    
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+    
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,115 @@
+package com.fintech.mapping.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the namespace of the ISO 20022 Document element from the start of a message
+ * without parsing it
+ *
+ * Only start and end tags are looked at (comments, PIs and the XML declaration are
+ * skipped), so for a plain message this touches the first few hundred bytes. In an
+ * envelope the Document follows the AppHdr; the scan gives up after
+ * {@value #SNIFF_LIMIT} bytes.
+ */
+final class NamespaceSniffer {
+    
+    static final int SNIFF_LIMIT = 16 * 1024;
+    
+    private static final String DOCUMENT_ELEMENT = "Document";
+    private static final byte[] XMLNS = XmlBytes.ascii("xmlns");
+    
+    private NamespaceSniffer() {
+    }
+    
+    /**
+     * Namespace URI of the first Document element, or null if there is none in the scanned range
+     */
+    static String documentNamespace(byte[] xml, int length) {
+        int limit = Math.min(length, SNIFF_LIMIT);
+        // Namespace declarations of the open elements, innermost first
+        Deque<Map<String, String>> scopes = new ArrayDeque<>();
+        
+        int i = 0;
+        while (true) {
+            int lt = XmlBytes.indexOf(xml, i, limit, (byte) '<');
+            if (lt < 0 || lt + 1 >= limit) {
+                return null;
+            }
+            int skipped = XmlBytes.skipNonElement(xml, lt, limit);
+            if (skipped != 0) {
+                if (skipped < 0) {
+                    return null;
+                }
+                i = skipped;
+                continue;
+            }
+            
+            int gt = XmlBytes.tagEnd(xml, lt, limit);
+            if (gt < 0) {
+                return null;
+            }
+            i = gt + 1;
+            if (xml[lt + 1] == '/') {
+                scopes.poll();
+                continue;
+            }
+            
+            String qName = XmlBytes.tagName(xml, lt + 1, gt);
+            int colon = qName.indexOf(':');
+            Map<String, String> declared = declarations(xml, lt + 1, gt);
+            
+            if (DOCUMENT_ELEMENT.equals(qName.substring(colon + 1))) {
+                String prefix = colon >= 0 ? qName.substring(0, colon) : "";
+                if (declared != null && declared.containsKey(prefix)) {
+                    return declared.get(prefix);
+                }
+                for (Map<String, String> scope : scopes) {
+                    if (scope.containsKey(prefix)) {
+                        return scope.get(prefix);
+                    }
+                }
+                return prefix.isEmpty() ? "" : null;
+            }
+            
+            if (xml[gt - 1] != '/') {
+                scopes.push(declared != null ? declared : Map.of());
+            }
+        }
+    }
+    
+    /**
+     * xmlns attributes of a start tag (prefix, "" for the default namespace), or null if none
+     */
+    static Map<String, String> declarations(byte[] xml, int from, int gt) {
+        Map<String, String> declared = null;
+        int i = XmlBytes.indexOf(xml, from, gt, XMLNS);
+        while (i >= 0) {
+            int eq = XmlBytes.indexOf(xml, i, gt, (byte) '=');
+            if (eq < 0) {
+                break;
+            }
+            int valueStart = eq + 1;
+            while (valueStart < gt && xml[valueStart] != '"' && xml[valueStart] != '\'') {
+                valueStart++;
+            }
+            int valueEnd = valueStart < gt ? XmlBytes.indexOf(xml, valueStart + 1, gt, xml[valueStart]) : -1;
+            if (valueEnd < 0) {
+                break;
+            }
+            String name = new String(xml, i, eq - i, StandardCharsets.UTF_8).trim();
+            if (XmlBytes.isNameEnd(xml[i - 1]) && (name.equals("xmlns") || name.startsWith("xmlns:"))) {
+                if (declared == null) {
+                    declared = new HashMap<>(4);
+                }
+                declared.put(name.length() > 5 ? name.substring(6) : "",
+                    new String(xml, valueStart + 1, valueEnd - valueStart - 1, StandardCharsets.UTF_8));
+            }
+            i = XmlBytes.indexOf(xml, valueEnd, gt, XMLNS);
+        }
+        return declared;
+    }
+}
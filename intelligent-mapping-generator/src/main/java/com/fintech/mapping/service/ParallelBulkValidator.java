@@ -0,0 +1,314 @@
+package com.fintech.mapping.service;
+
+import com.fintech.mapping.model.SchemaType;
+import com.fintech.mapping.model.ValidationError;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.validation.ValidatorHandler;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Validates large ISO bulk pain.001 messages fragment by fragment on a ForkJoinPool
+ *
+ * The message is split at CdtTrfTxInf boundaries ({@link BulkMessageSplitter}). The
+ * skeleton (group header and payment information blocks) is validated once on the
+ * calling thread while the transactions are validated in parallel against the
+ * transaction type ({@link FragmentSchemas}). Errors are reported with their line and
+ * column in the original message and merged back into document order.
+ *
+ * The skeleton pass also collects the CBPR+/ISO detection signals, completed with the
+ * UETRs seen in the transactions, so the message is not read a third time to detect it.
+ *
+ * Transactions are always checked against their own type, so after a structural error
+ * in an enclosing PmtInf the reported transaction errors can differ slightly from a
+ * sequential validation of the whole document.
+ */
+final class ParallelBulkValidator {
+    
+    private static final String WRAPPER_ELEMENT = "Fragment";
+    
+    private final ForkJoinPool forkJoinPool;
+    private final XmlPool<SAXParser> saxParserPool;
+    private final XmlPool<ValidatorHandler> skeletonHandlers;
+    private final XmlPool<ValidatorHandler> transactionHandlers;
+    private final int minTransactions;
+    private final int chunkSize;
+    private final int maxErrors;
+    
+    /**
+     * @param minTransactions smallest number of transactions worth splitting for
+     * @param chunkSize       transactions validated sequentially by one fork/join leaf
+     * @param maxErrors       errors kept per message (see {@link CollectingErrorHandler})
+     */
+    ParallelBulkValidator(ForkJoinPool forkJoinPool, XmlPool<SAXParser> saxParserPool,
+                          XmlPool<ValidatorHandler> skeletonHandlers, XmlPool<ValidatorHandler> transactionHandlers,
+                          int minTransactions, int chunkSize, int maxErrors) {
+        this.forkJoinPool = forkJoinPool;
+        this.saxParserPool = saxParserPool;
+        this.skeletonHandlers = skeletonHandlers;
+        this.transactionHandlers = transactionHandlers;
+        this.minTransactions = minTransactions;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxErrors = maxErrors;
+    }
+    
+    /**
+     * Split the message if it is big enough, otherwise return null
+     */
+    BulkMessageSplitter.Split split(byte[] xml) {
+        if (!BulkMessageSplitter.hasAtLeast(xml, minTransactions)) {
+            return null;
+        }
+        BulkMessageSplitter.Split split = BulkMessageSplitter.split(xml);
+        return split != null && split.transactions().size() >= minTransactions ? split : null;
+    }
+    
+    /**
+     * Validate a split message; parse failures are rethrown like a sequential validation would
+     */
+    Outcome validate(byte[] xml, BulkMessageSplitter.Split split) throws Exception {
+        List<BulkMessageSplitter.Transaction> transactions = split.transactions();
+        AtomicBoolean uetr = new AtomicBoolean();
+        ForkJoinTask<List<CollectingErrorHandler>> transactionErrors =
+            forkJoinPool.submit(new TransactionTask(xml, transactions, 0, transactions.size(), uetr));
+        
+        MessagePass pass = new MessagePass(maxErrors);
+        ValidatorHandler skeletonHandler = skeletonHandlers.borrow();
+        SAXParser parser = saxParserPool.borrow();
+        try {
+            pass.validateDocument(SchemaType.ISO_STANDARD, skeletonHandler);
+            parser.parse(new ByteArrayInputStream(split.skeleton()), pass);
+        } catch (Exception e) {
+            transactionErrors.cancel(true);
+            throw e;
+        } finally {
+            saxParserPool.release(parser);
+            skeletonHandlers.release(skeletonHandler);
+        }
+        
+        List<CollectingErrorHandler> parts = new ArrayList<>();
+        parts.add(pass.errorHandlerFor(SchemaType.ISO_STANDARD));
+        parts.addAll(transactionErrors.join());
+        DetectionSignals signals = pass.getSignals();
+        if (uetr.get()) {
+            signals.markUetr();
+        }
+        return new Outcome(signals.getMsgId(), signals, CollectingErrorHandler.merge(parts, maxErrors));
+    }
+    
+    /**
+     * @param messageId MsgId of the group header, or null
+     * @param signals   detection signals of the whole message
+     * @param errors    merged errors in document order
+     */
+    record Outcome(String messageId, DetectionSignals signals, List<ValidationError> errors) {}
+    
+    /**
+     * Validates a range of transactions, splitting it in halves down to chunkSize
+     */
+    private final class TransactionTask extends RecursiveTask<List<CollectingErrorHandler>> {
+        
+        private final byte[] xml;
+        private final List<BulkMessageSplitter.Transaction> transactions;
+        private final int from;
+        private final int to;
+        private final AtomicBoolean uetr;
+        
+        TransactionTask(byte[] xml, List<BulkMessageSplitter.Transaction> transactions, int from, int to,
+                        AtomicBoolean uetr) {
+            this.xml = xml;
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
+            this.uetr = uetr;
+        }
+        
+        @Override
+        protected List<CollectingErrorHandler> compute() {
+            if (to - from <= chunkSize) {
+                return List.of(validateRange());
+            }
+            int middle = (from + to) >>> 1;
+            TransactionTask left = new TransactionTask(xml, transactions, from, middle, uetr);
+            TransactionTask right = new TransactionTask(xml, transactions, middle, to, uetr);
+            right.fork();
+            List<CollectingErrorHandler> merged = new ArrayList<>(left.compute());
+            merged.addAll(right.join());
+            return merged;
+        }
+        
+        private CollectingErrorHandler validateRange() {
+            CollectingErrorHandler errors = new CollectingErrorHandler(maxErrors);
+            SAXParser parser = saxParserPool.borrow();
+            ValidatorHandler handler = transactionHandlers.borrow();
+            try {
+                handler.setErrorHandler(errors);
+                for (int i = from; i < to; i++) {
+                    BulkMessageSplitter.Transaction transaction = transactions.get(i);
+                    byte[] wrapperStart = ("<" + WRAPPER_ELEMENT + transaction.namespaces() + ">")
+                        .getBytes(StandardCharsets.UTF_8);
+                    FragmentHandler fragment = new FragmentHandler(handler, transaction,
+                        XmlBytes.position(wrapperStart, wrapperStart.length)[1] - 1);
+                    parser.parse(fragmentStream(wrapperStart, transaction), fragment);
+                    if (fragment.uetr && !uetr.get()) {
+                        uetr.set(true);
+                    }
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            } finally {
+                transactionHandlers.release(handler);
+                saxParserPool.release(parser);
+            }
+            return errors;
+        }
+        
+        /**
+         * The transaction wrapped in an element that re-declares the namespaces in scope
+         */
+        private InputStream fragmentStream(byte[] wrapperStart, BulkMessageSplitter.Transaction transaction) {
+            return new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(wrapperStart),
+                new ByteArrayInputStream(xml, transaction.start(), transaction.end() - transaction.start()),
+                new ByteArrayInputStream(("</" + WRAPPER_ELEMENT + ">").getBytes(StandardCharsets.UTF_8))
+            )));
+        }
+    }
+    
+    /**
+     * Forwards the events below the wrapper element to the validator and reports
+     * positions as they are in the original message
+     *
+     * The namespaces declared on the wrapper and on the transaction element itself
+     * arrive before the transaction's startElement; they are held back and started after
+     * the validator's startDocument (which resets its namespace context), and ended
+     * before its endDocument.
+     */
+    private static final class FragmentHandler extends DefaultHandler implements Locator {
+        
+        private final ValidatorHandler handler;
+        private final BulkMessageSplitter.Transaction transaction;
+        private final int wrapperColumns;
+        private final List<String[]> documentPrefixes = new ArrayList<>();
+        
+        private Locator locator;
+        private int depth;
+        // Detection signal: transaction bodies are not part of the skeleton pass
+        private boolean uetr;
+        
+        FragmentHandler(ValidatorHandler handler, BulkMessageSplitter.Transaction transaction, int wrapperColumns) {
+            this.handler = handler;
+            this.transaction = transaction;
+            this.wrapperColumns = wrapperColumns;
+        }
+        
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+        }
+        
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            if (depth <= 1) {
+                documentPrefixes.add(new String[] {prefix, uri});
+            } else {
+                handler.startPrefixMapping(prefix, uri);
+            }
+        }
+        
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            if (depth > 1) {
+                handler.endPrefixMapping(prefix);
+            }
+        }
+        
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            depth++;
+            if (depth == 2) {
+                handler.setDocumentLocator(this);
+                handler.startDocument();
+                for (String[] mapping : documentPrefixes) {
+                    handler.startPrefixMapping(mapping[0], mapping[1]);
+                }
+            }
+            if (depth >= 2) {
+                handler.startElement(uri, localName, qName, attributes);
+            }
+            if ("UETR".equals(localName)) {
+                uetr = true;
+            }
+        }
+        
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (depth >= 2) {
+                handler.endElement(uri, localName, qName);
+            }
+            if (depth == 2) {
+                for (int i = documentPrefixes.size() - 1; i >= 0; i--) {
+                    handler.endPrefixMapping(documentPrefixes.get(i)[0]);
+                }
+                handler.endDocument();
+            }
+            depth--;
+        }
+        
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (depth >= 2) {
+                handler.characters(ch, start, length);
+            }
+        }
+        
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            if (depth >= 2) {
+                handler.ignorableWhitespace(ch, start, length);
+            }
+        }
+        
+        @Override
+        public void processingInstruction(String target, String data) throws SAXException {
+            if (depth >= 2) {
+                handler.processingInstruction(target, data);
+            }
+        }
+        
+        @Override
+        public String getPublicId() {
+            return locator.getPublicId();
+        }
+        
+        @Override
+        public String getSystemId() {
+            return locator.getSystemId();
+        }
+        
+        @Override
+        public int getLineNumber() {
+            return locator.getLineNumber() + transaction.line() - 1;
+        }
+        
+        @Override
+        public int getColumnNumber() {
+            int column = locator.getColumnNumber();
+            return locator.getLineNumber() == 1 ? column - wrapperColumns + transaction.column() - 1 : column;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.fintech.mapping.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Set of 128-bit IDs seen within a sliding time window, in flat primitive arrays
+ *
+ * One open-addressing table (linear probing) holds the keys as two longs per slot,
+ * next to a short per slot naming the expiry bucket the key was added in. The window
+ * is divided into {@code buckets} buckets; when time moves into a new bucket, the keys
+ * of the bucket that left the window are swept out (backward-shift deletion, so no
+ * tombstones build up). A key is therefore remembered for at least
+ * window - window/buckets and at most window.
+ *
+ * Memory is fixed at construction: 18 bytes per slot, slots = maxIds / 0.75, so about
+ * 24 bytes per ID (2 million IDs in 48 MB). Once maxIds keys are held, the oldest
+ * bucket is swept early to make room; {@link #getEarlyExpired()} counts the keys lost
+ * that way, a sign that maxIds is too small for the traffic.
+ *
+ * Not thread-safe: callers synchronise (see {@link DuplicateCheckService}).
+ */
+public final class RecentIdIndex {
+    
+    private static final double MAX_LOAD = 0.75;
+    
+    private final int slots;
+    private final int maxIds;
+    private final int buckets;
+    private final long bucketMillis;
+    
+    // Slot i: keys[2i], keys[2i + 1]; (0, 0) marks an empty slot
+    private final long[] keys;
+    private final short[] addedIn;
+    
+    private int size;
+    private long currentBucket = Long.MIN_VALUE;
+    // Oldest bucket that may still have keys in the table
+    private long oldestBucket;
+    private long earlyExpired;
+    
+    public RecentIdIndex(int maxIds, Duration window, int buckets) {
+        if (maxIds < 1 || buckets < 1 || buckets > Short.MAX_VALUE || window.toMillis() < buckets) {
+            throw new IllegalArgumentException("Invalid duplicate index settings: max-ids=" + maxIds
+                + ", window=" + window + ", buckets=" + buckets);
+        }
+        this.maxIds = maxIds;
+        this.buckets = buckets;
+        this.bucketMillis = window.toMillis() / buckets;
+        this.slots = (int) Math.min(Integer.MAX_VALUE / 2, (long) Math.ceil(maxIds / MAX_LOAD) + 1);
+        this.keys = new long[2 * slots];
+        this.addedIn = new short[slots];
+    }
+    
+    /**
+     * Whether the key was added within the window
+     */
+    public boolean contains(long high, long low, long nowMillis) {
+        advance(nowMillis);
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        for (int i = home(high, low); ; i = next(i)) {
+            long slotHigh = keys[2 * i];
+            long slotLow = keys[2 * i + 1];
+            if (slotHigh == 0 && slotLow == 0) {
+                return false;
+            }
+            if (slotHigh == high && slotLow == low) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Add a key (to the current bucket)
+     *
+     * @return false when it was already there (it then keeps its bucket)
+     */
+    public boolean add(long high, long low, long nowMillis) {
+        advance(nowMillis);
+        while (size >= maxIds) {
+            expireOldest(true);
+        }
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        int i = home(high, low);
+        for (; ; i = next(i)) {
+            long slotHigh = keys[2 * i];
+            long slotLow = keys[2 * i + 1];
+            if (slotHigh == 0 && slotLow == 0) {
+                break;
+            }
+            if (slotHigh == high && slotLow == low) {
+                return false;
+            }
+        }
+        keys[2 * i] = high;
+        keys[2 * i + 1] = low;
+        addedIn[i] = (short) currentBucket;
+        size++;
+        return true;
+    }
+    
+    /**
+     * Take a key out again (e.g. one added for a message that was then rolled back)
+     *
+     * @return false when it was not there
+     */
+    public boolean remove(long high, long low) {
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        for (int i = home(high, low); ; i = next(i)) {
+            long slotHigh = keys[2 * i];
+            long slotLow = keys[2 * i + 1];
+            if (slotHigh == 0 && slotLow == 0) {
+                return false;
+            }
+            if (slotHigh == high && slotLow == low) {
+                delete(i);
+                size--;
+                return true;
+            }
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int capacity() {
+        return maxIds;
+    }
+    
+    /**
+     * Bytes held by the table
+     */
+    public long memoryBytes() {
+        return (long) slots * (2 * Long.BYTES + Short.BYTES);
+    }
+    
+    /**
+     * Keys swept before the end of their window because the index was full
+     */
+    public long getEarlyExpired() {
+        return earlyExpired;
+    }
+    
+    /**
+     * Move to the bucket of {@code nowMillis}, sweeping the buckets that left the window
+     */
+    private void advance(long nowMillis) {
+        long bucket = Math.floorDiv(nowMillis, bucketMillis);
+        if (currentBucket == Long.MIN_VALUE) {
+            currentBucket = bucket;
+            oldestBucket = bucket;
+            return;
+        }
+        if (bucket <= currentBucket) {
+            // Clock steps back: keep adding to the current bucket
+            return;
+        }
+        currentBucket = bucket;
+        if (bucket - oldestBucket >= buckets) {
+            if (bucket - oldestBucket >= 2L * buckets) {
+                clear();
+                oldestBucket = bucket;
+                return;
+            }
+            while (bucket - oldestBucket >= buckets) {
+                expireOldest(false);
+            }
+        }
+    }
+    
+    /**
+     * Sweep out the keys of the oldest bucket (one pass over the table)
+     */
+    private void expireOldest(boolean early) {
+        short expired = (short) oldestBucket;
+        int removed = 0;
+        int i = 0;
+        while (i < slots) {
+            if ((keys[2 * i] != 0 || keys[2 * i + 1] != 0) && addedIn[i] == expired) {
+                delete(i);
+                removed++;
+                // Re-check i: delete may have moved a later key into it
+            } else {
+                i++;
+            }
+        }
+        size -= removed;
+        if (early) {
+            earlyExpired += removed;
+        }
+        if (oldestBucket < currentBucket) {
+            oldestBucket++;
+        }
+    }
+    
+    /**
+     * Empty slot i and shift back the keys of its cluster that can move closer to home
+     */
+    private void delete(int i) {
+        int hole = i;
+        for (int j = next(i); keys[2 * j] != 0 || keys[2 * j + 1] != 0; j = next(j)) {
+            int home = home(keys[2 * j], keys[2 * j + 1]);
+            // The key at j may fill the hole unless its home lies cyclically in (hole, j]
+            boolean homeBetween = hole <= j ? home > hole && home <= j : home > hole || home <= j;
+            if (!homeBetween) {
+                keys[2 * hole] = keys[2 * j];
+                keys[2 * hole + 1] = keys[2 * j + 1];
+                addedIn[hole] = addedIn[j];
+                hole = j;
+            }
+        }
+        keys[2 * hole] = 0;
+        keys[2 * hole + 1] = 0;
+    }
+    
+    private void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+    
+    /**
+     * Home slot: the mixed key scaled onto [0, slots) (no power-of-two table size needed;
+     * package-private for tests)
+     */
+    int home(long high, long low) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) (((h >>> 32) * slots) >>> 32);
+    }
+    
+    private int next(int i) {
+        return i + 1 == slots ? 0 : i + 1;
+    }
+}
@@ -2,14 +2,19 @@ package com.fintech.mapping.service;
 
 import com.fintech.mapping.model.SchemaType;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.w3c.dom.Node;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.StringJoiner;
 import java.util.regex.Pattern;
 
 /**
@@ -21,6 +26,13 @@ import java.util.regex.Pattern;
  * 3. Check for UETR presence in specific location
  * 4. Analyze character patterns for FIN-X restrictions
  * 5. Check for single payment information block
+ * 
+ * All signals are collected in one forward StAX pass (see {@link DetectionSignals});
+ * the pass stops as soon as the CBPR+/ISO decision can no longer change. Scores are
+ * identical to a full scan for well-formed input; malformed content past the decision
+ * point is left for XSD validation to report.
+ * 
+ * The score trace is only built for messages sampled for logging (see {@link LogSampler}).
  */
 @Service
 @Slf4j
@@ -29,13 +41,37 @@ public class SchemaDetectionService {
     // FIN-X character set pattern: [0-9a-zA-Z/\-\?:\(\)\.,'\+ ]
     private static final Pattern FINX_PATTERN = Pattern.compile("^[0-9a-zA-Z/\\-?:().,'\\ +]+$");
     
+    // Factory is thread-safe once configured; readers are created per call
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+    
+    @Autowired
+    private LogSampler logSampler;
+    
     /**
      * Detect schema type from XML string
      */
     public SchemaType detectSchemaType(String xmlContent) {
         try {
-            Document doc = parseXml(xmlContent);
-            return detectSchemaType(doc);
+            return detectSchemaType(INPUT_FACTORY.createXMLStreamReader(new StringReader(xmlContent)));
+        } catch (Exception e) {
+            log.warn("Failed to parse XML for schema detection: {}", e.getMessage());
+            return SchemaType.UNKNOWN;
+        }
+    }
+    
+    /**
+     * Detect schema type from raw XML bytes (encoding taken from the XML declaration)
+     */
+    public SchemaType detectSchemaType(byte[] xmlContent) {
+        return detectSchemaType(new ByteArrayInputStream(xmlContent));
+    }
+    
+    /**
+     * Detect schema type from an XML stream; only reads as far as needed to decide
+     */
+    public SchemaType detectSchemaType(InputStream xmlContent) {
+        try {
+            return detectSchemaType(INPUT_FACTORY.createXMLStreamReader(xmlContent));
         } catch (Exception e) {
             log.warn("Failed to parse XML for schema detection: {}", e.getMessage());
             return SchemaType.UNKNOWN;
@@ -46,160 +82,202 @@ public class SchemaDetectionService {
      * Detect schema type from parsed Document
      */
     public SchemaType detectSchemaType(Document doc) {
+        DetectionSignals signals = new DetectionSignals();
+        collectSignals(doc, signals);
+        return score(signals, sample());
+    }
+    
+    /**
+     * Single forward pass collecting every heuristic signal
+     */
+    private SchemaType detectSchemaType(XMLStreamReader reader) throws XMLStreamException {
+        boolean sampled = sample();
+        DetectionSignals signals = new DetectionSignals();
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        signals.startElement(reader.getLocalName());
+                        if (signals.isDecided()) {
+                            if (sampled) {
+                                log.debug("Detection settled early at <{}>", reader.getLocalName());
+                            }
+                            return score(signals, sampled);
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        signals.endElement(reader.getLocalName());
+                        if (signals.isDecided()) {
+                            if (sampled) {
+                                log.debug("Detection settled early at </{}>", reader.getLocalName());
+                            }
+                            return score(signals, sampled);
+                        }
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+                        signals.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    default -> {
+                        // comments, PIs etc. carry no signal
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return score(signals, sampled);
+    }
+    
+    /**
+     * Score collected signals and decide the schema type
+     *
+     * @param sampled whether the message was sampled for logging: only then is the score
+     *                trace built and written (one DEBUG line)
+     */
+    SchemaType score(DetectionSignals signals, boolean sampled) {
         int cbprScore = 0;
         int isoScore = 0;
-        
-        log.debug("Starting schema detection...");
+        StringJoiner trace = sampled && log.isDebugEnabled() ? new StringJoiner(", ") : null;
         
         // 1. Check for AppHdr (Business Application Header) - Strong CBPR+ indicator
-        if (hasAppHdr(doc)) {
+        if (signals.hasAppHdr()) {
             cbprScore += 50;
-            log.debug("✓ AppHdr found (+50 CBPR+ score) - CBPR+ requires this");
+            note(trace, "AppHdr found (+50 CBPR+)");
         } else {
             isoScore += 10;
-            log.debug("✗ No AppHdr (+10 ISO score) - ISO doesn't require this");
+            note(trace, "no AppHdr (+10 ISO)");
         }
         
         // 2. Check NbOfTxs (Number of Transactions)
-        String nbOfTxs = getElementText(doc, "NbOfTxs");
+        String nbOfTxs = signals.getNbOfTxs();
         if ("1".equals(nbOfTxs)) {
             cbprScore += 20;
-            log.debug("✓ NbOfTxs is '1' (+20 CBPR+ score) - CBPR+ requires exactly 1");
+            note(trace, "NbOfTxs is '1' (+20 CBPR+)");
         } else if (nbOfTxs != null && !nbOfTxs.equals("1")) {
             isoScore += 40;
-            log.debug("✓ NbOfTxs is '{}' (+40 ISO score) - CBPR+ only allows '1'", nbOfTxs);
+            note(trace, "NbOfTxs is '" + nbOfTxs + "' (+40 ISO)");
         }
         
         // 3. Check for UETR (Unique End-to-End Transaction Reference)
-        if (hasUETR(doc)) {
+        if (signals.hasUetr()) {
             cbprScore += 15;
-            log.debug("✓ UETR found (+15 CBPR+ score) - Mandatory in CBPR+");
+            note(trace, "UETR found (+15 CBPR+)");
         } else {
             isoScore += 5;
-            log.debug("✗ No UETR (+5 ISO score) - Optional in ISO");
+            note(trace, "no UETR (+5 ISO)");
         }
         
         // 4. Check for single PmtInf (Payment Information) block
-        int pmtInfCount = countElements(doc, "PmtInf");
+        int pmtInfCount = signals.getPmtInfCount();
         if (pmtInfCount == 1) {
             cbprScore += 10;
-            log.debug("✓ Single PmtInf block (+10 CBPR+ score) - CBPR+ allows only 1");
+            note(trace, "single PmtInf (+10 CBPR+)");
         } else if (pmtInfCount > 1) {
             isoScore += 30;
-            log.debug("✓ Multiple PmtInf blocks: {} (+30 ISO score) - CBPR+ only allows 1", pmtInfCount);
+            note(trace, pmtInfCount + " PmtInf blocks (+30 ISO)");
         }
         
         // 5. Check MsgId for FIN-X character set compliance
-        String msgId = getElementText(doc, "MsgId");
-        if (msgId != null && FINX_PATTERN.matcher(msgId).matches()) {
+        String msgId = signals.getMsgId();
+        if (msgId != null && isFinX(msgId)) {
             cbprScore += 10;
-            log.debug("✓ MsgId follows FIN-X pattern (+10 CBPR+ score)");
+            note(trace, "MsgId is FIN-X (+10 CBPR+)");
         } else if (msgId != null) {
             isoScore += 10;
-            log.debug("✓ MsgId contains non-FIN-X characters (+10 ISO score)");
+            note(trace, "MsgId has non-FIN-X characters (+10 ISO)");
         }
         
         // 6. Check for BIC in FwdgAgt (Forwarding Agent) - mandatory in CBPR+
-        if (hasBICFI(doc, "FwdgAgt")) {
+        if (signals.hasFwdgAgtBic()) {
             cbprScore += 5;
-            log.debug("✓ BIC in FwdgAgt (+5 CBPR+ score) - Mandatory in CBPR+");
+            note(trace, "BIC in FwdgAgt (+5 CBPR+)");
         }
         
-        log.info("Schema Detection Scores - CBPR+: {}, ISO: {}", cbprScore, isoScore);
-        
         // Determine schema based on scores
+        SchemaType detected;
+        String confidence;
         if (cbprScore > isoScore && cbprScore >= 50) {
-            log.info("✓ Detected Schema: CBPR+ (High confidence)");
-            return SchemaType.CBPR_PLUS;
+            detected = SchemaType.CBPR_PLUS;
+            confidence = "high";
         } else if (isoScore > cbprScore) {
-            log.info("✓ Detected Schema: ISO Standard");
-            return SchemaType.ISO_STANDARD;
+            detected = SchemaType.ISO_STANDARD;
+            confidence = "scored";
         } else if (cbprScore >= 30) {
-            log.info("✓ Detected Schema: CBPR+ (Moderate confidence)");
-            return SchemaType.CBPR_PLUS;
+            detected = SchemaType.CBPR_PLUS;
+            confidence = "moderate";
         } else {
-            log.info("? Detected Schema: ISO Standard (Default)");
-            return SchemaType.ISO_STANDARD; // Default to ISO
+            detected = SchemaType.ISO_STANDARD; // Default to ISO
+            confidence = "default";
         }
-    }
-    
-    /**
-     * Check if document has AppHdr (Business Application Header)
-     */
-    private boolean hasAppHdr(Document doc) {
-        NodeList appHdrList = doc.getElementsByTagNameNS("*", "AppHdr");
-        if (appHdrList.getLength() == 0) {
-            appHdrList = doc.getElementsByTagName("AppHdr");
+        
+        if (trace != null) {
+            log.atDebug()
+                .addKeyValue("cbprScore", cbprScore)
+                .addKeyValue("isoScore", isoScore)
+                .addKeyValue("detected", detected)
+                .log("Schema detection: {} ({} confidence) - CBPR+ {}, ISO {}: {}",
+                    detected, confidence, cbprScore, isoScore, trace);
         }
-        return appHdrList.getLength() > 0;
+        return detected;
     }
     
     /**
-     * Check if document has UETR element
+     * Sampling decision for a standalone detection (never sampled outside Spring, e.g. in benchmarks)
      */
-    private boolean hasUETR(Document doc) {
-        NodeList uetrList = doc.getElementsByTagNameNS("*", "UETR");
-        if (uetrList.getLength() == 0) {
-            uetrList = doc.getElementsByTagName("UETR");
-        }
-        return uetrList.getLength() > 0;
+    private boolean sample() {
+        return logSampler != null && logSampler.sample();
     }
     
-    /**
-     * Check if specific parent element contains BICFI
-     */
-    private boolean hasBICFI(Document doc, String parentElementName) {
-        NodeList parentList = doc.getElementsByTagNameNS("*", parentElementName);
-        if (parentList.getLength() == 0) {
-            parentList = doc.getElementsByTagName(parentElementName);
+    private static void note(StringJoiner trace, String signal) {
+        if (trace != null) {
+            trace.add(signal);
         }
-        
-        for (int i = 0; i < parentList.getLength(); i++) {
-            Element parent = (Element) parentList.item(i);
-            NodeList bicList = parent.getElementsByTagNameNS("*", "BICFI");
-            if (bicList.getLength() == 0) {
-                bicList = parent.getElementsByTagName("BICFI");
-            }
-            if (bicList.getLength() > 0) {
-                return true;
-            }
-        }
-        return false;
     }
     
     /**
-     * Get text content of first matching element
+     * Check a value against the FIN-X character set
      */
-    private String getElementText(Document doc, String elementName) {
-        NodeList nodeList = doc.getElementsByTagNameNS("*", elementName);
-        if (nodeList.getLength() == 0) {
-            nodeList = doc.getElementsByTagName(elementName);
-        }
-        
-        if (nodeList.getLength() > 0) {
-            return nodeList.item(0).getTextContent();
-        }
-        return null;
+    static boolean isFinX(String value) {
+        return FINX_PATTERN.matcher(value).matches();
     }
     
     /**
-     * Count occurrences of element
+     * Walk a parsed Document once in document order, feeding the signal collector
      */
-    private int countElements(Document doc, String elementName) {
-        NodeList nodeList = doc.getElementsByTagNameNS("*", elementName);
-        if (nodeList.getLength() == 0) {
-            nodeList = doc.getElementsByTagName(elementName);
+    private void collectSignals(Document doc, DetectionSignals signals) {
+        Node node = doc.getDocumentElement();
+        while (node != null) {
+            switch (node.getNodeType()) {
+                case Node.ELEMENT_NODE -> signals.startElement(localName(node));
+                case Node.TEXT_NODE, Node.CDATA_SECTION_NODE -> signals.characters(node.getNodeValue());
+                default -> {
+                    // no signal
+                }
+            }
+            
+            // Descend first, otherwise close elements until a sibling is found
+            if (node.getNodeType() == Node.ELEMENT_NODE && node.getFirstChild() != null) {
+                node = node.getFirstChild();
+                continue;
+            }
+            while (node != null && node.getNextSibling() == null) {
+                if (node.getNodeType() == Node.ELEMENT_NODE) {
+                    signals.endElement(localName(node));
+                }
+                node = node.getParentNode();
+                if (node != null && node.getNodeType() == Node.DOCUMENT_NODE) {
+                    return;
+                }
+            }
+            if (node != null) {
+                if (node.getNodeType() == Node.ELEMENT_NODE) {
+                    signals.endElement(localName(node));
+                }
+                node = node.getNextSibling();
+            }
         }
-        return nodeList.getLength();
     }
     
-    /**
-     * Parse XML string to Document
-     */
-    private Document parseXml(String xmlContent) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setNamespaceAware(true);
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        return builder.parse(new ByteArrayInputStream(xmlContent.getBytes("UTF-8")));
+    private static String localName(Node node) {
+        return node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
     }
 }
@@ -0,0 +1,338 @@
+package com.fintech.mapping.service;
+
+import com.fintech.mapping.model.SchemaType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles and holds the XSD schemas used for validation
+ *
+ * - eager (default): all schemas are compiled in parallel during startup, one
+ *   SchemaFactory per compile (factories are not thread-safe)
+ * - lazy: startup compiles nothing; a schema is compiled by its first user (concurrent
+ *   users wait for the same compile) and, with warm-up, the rest are compiled in the
+ *   background once the application is ready
+ *
+ * Schemas are registered under a name together with their target namespace and
+ * variant. pain.001 has two variants (CBPR+ and ISO) that share a namespace and are
+ * told apart by detection; the other message definitions (app.schemas.messages) have
+ * one and are found from the Document namespace alone ({@link #forNamespace}).
+ * Business application header schemas (head.001, app.schemas.headers) are found the
+ * same way from the namespace of an envelope's AppHdr.
+ *
+ * Per-schema state and compile time are available from {@link #getStatus()}.
+ *
+ * Lookups are on the path of every message and take no lock: registrations (rare)
+ * replace the maps under the registry's monitor.
+ */
+@Component
+@Slf4j
+public class SchemaRegistry {
+    
+    public enum CompileMode { EAGER, LAZY }
+    
+    public enum State { PENDING, COMPILING, READY, FAILED }
+    
+    private static final Pattern TARGET_NAMESPACE = Pattern.compile("targetNamespace\\s*=\\s*[\"']([^\"']+)[\"']");
+    private static final int XSD_HEAD_SIZE = 8 * 1024;
+    
+    @Value("${app.schemas.cbpr-path}")
+    private Resource cbprSchemaResource;
+    
+    @Value("${app.schemas.iso-path}")
+    private Resource isoSchemaResource;
+    
+    @Value("${app.schemas.messages:}")
+    private String[] messageSchemaPaths;
+    
+    @Value("${app.schemas.headers:classpath:schemas/head.001.001.02.xsd}")
+    private String[] headerSchemaPaths;
+    
+    @Value("${app.schemas.compile:eager}")
+    private CompileMode compileMode;
+    
+    @Value("${app.schemas.compile-threads:0}")
+    private int compileThreads;
+    
+    @Value("${app.schemas.warm-up:true}")
+    private boolean warmUp;
+    
+    @Autowired
+    private ResourceLoader resourceLoader;
+    
+    // Name -> schema in registration order; both maps are replaced on registration, read without locking
+    private volatile Map<String, Entry> entries = Map.of();
+    
+    // Namespace -> variant -> schema name
+    private volatile Map<String, Map<SchemaType, String>> namespaces = Map.of();
+    
+    @PostConstruct
+    public void init() throws Exception {
+        register(SchemaType.CBPR_PLUS.name(), cbprSchemaResource, SchemaType.CBPR_PLUS);
+        register(SchemaType.ISO_STANDARD.name(), isoSchemaResource, SchemaType.ISO_STANDARD);
+        for (String[] paths : List.of(messageSchemaPaths, headerSchemaPaths)) {
+            for (String path : paths) {
+                if (!path.isBlank()) {
+                    Resource location = resourceLoader.getResource(path.trim());
+                    register(messageDefinition(targetNamespace(location)), location, SchemaType.ISO_STANDARD);
+                }
+            }
+        }
+        
+        if (compileMode == CompileMode.EAGER) {
+            log.info("Compiling {} XSD schemas...", entries.size());
+            long startTime = System.nanoTime();
+            compileAll();
+            log.info("All schemas loaded and cached successfully ({} ms)",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        } else {
+            log.info("XSD schemas will be compiled on first use ({} registered)", entries.size());
+        }
+    }
+    
+    /**
+     * Compile the remaining schemas in the background once the application is ready (lazy mode)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (compileMode == CompileMode.LAZY && warmUp && !isReady()) {
+            Thread.ofVirtual().name("schema-warm-up").start(() -> {
+                try {
+                    compileAll();
+                    log.info("Schema warm-up complete");
+                } catch (Exception e) {
+                    log.error("Schema warm-up failed: {}", e.getMessage());
+                }
+            });
+        }
+    }
+    
+    /**
+     * Register a schema under a name; it is compiled according to the compile mode
+     *
+     * @param variant CBPR+ or ISO variant of the message definition
+     */
+    public synchronized void register(String name, Resource location, SchemaType variant) throws IOException {
+        String namespace = targetNamespace(location);
+        Map<String, Entry> updatedEntries = new LinkedHashMap<>(entries);
+        updatedEntries.put(name, new Entry(name, location, namespace, variant));
+        entries = updatedEntries;
+        
+        Map<String, Map<SchemaType, String>> updated = new HashMap<>(namespaces);
+        Map<SchemaType, String> variants = new EnumMap<>(SchemaType.class);
+        variants.putAll(updated.getOrDefault(namespace, Map.of()));
+        variants.put(variant, name);
+        updated.put(namespace, variants);
+        namespaces = updated;
+    }
+    
+    /**
+     * Name of the schema for a Document (or AppHdr) namespace when it needs no detection
+     * (exactly one variant registered), otherwise null
+     */
+    public String forNamespace(String namespace) {
+        Map<SchemaType, String> variants = namespaces.get(namespace);
+        return variants != null && variants.size() == 1 ? variants.values().iterator().next() : null;
+    }
+    
+    /**
+     * Target namespace of a registered schema
+     */
+    public String namespace(String name) {
+        return entry(name).namespace;
+    }
+    
+    /**
+     * The compiled schema, compiling it now if needed
+     *
+     * @throws IllegalArgumentException if no schema is registered under the name
+     * @throws IllegalStateException    if the schema does not compile
+     */
+    public Schema get(String name) {
+        return entry(name).schema();
+    }
+    
+    public Schema get(SchemaType schemaType) {
+        return get(schemaType.name());
+    }
+    
+    /**
+     * Where the schema is loaded from (for deriving schemas or fingerprints)
+     */
+    public Resource location(String name) {
+        return entry(name).location;
+    }
+    
+    public Resource location(SchemaType schemaType) {
+        return location(schemaType.name());
+    }
+    
+    /**
+     * True once every registered schema is compiled
+     */
+    public boolean isReady() {
+        return entries.values().stream().allMatch(entry -> entry.state == State.READY);
+    }
+    
+    /**
+     * Whether every registered schema gets compiled without waiting for a message to
+     * need it: at startup (eager), or by the warm-up once the application is ready (lazy)
+     */
+    public boolean compilesAll() {
+        return compileMode == CompileMode.EAGER || warmUp;
+    }
+    
+    /**
+     * State and compile time of every registered schema
+     */
+    public List<SchemaStatus> getStatus() {
+        List<SchemaStatus> status = new ArrayList<>();
+        entries.values().forEach(entry -> status.add(new SchemaStatus(
+            entry.name, entry.location.getFilename(), entry.namespace, entry.variant, entry.state, entry.compileTimeMs)));
+        return status;
+    }
+    
+    /**
+     * Compile all schemas not compiled yet in parallel and wait for them
+     */
+    public void compileAll() throws Exception {
+        List<Entry> pending = new ArrayList<>(entries.values());
+        int threads = compileThreads > 0 ? compileThreads : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, pending.size())));
+        try {
+            List<Future<?>> compiles = new ArrayList<>();
+            pending.forEach(entry -> compiles.add(executor.submit(entry.task)));
+            for (Future<?> compile : compiles) {
+                compile.get();
+            }
+            for (Entry entry : pending) {
+                entry.schema();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    private Entry entry(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("No schema registered as " + name);
+        }
+        return entry;
+    }
+    
+    /**
+     * Message definition identifier of an ISO 20022 namespace (e.g. pacs.008.001.08)
+     */
+    public static String messageDefinition(String namespace) {
+        return namespace.substring(namespace.lastIndexOf(':') + 1);
+    }
+    
+    /**
+     * targetNamespace of an XSD, read from the schema element at the top of the file
+     */
+    private static String targetNamespace(Resource location) throws IOException {
+        try (InputStream is = location.getInputStream()) {
+            Matcher matcher = TARGET_NAMESPACE.matcher(new String(is.readNBytes(XSD_HEAD_SIZE), StandardCharsets.UTF_8));
+            if (!matcher.find()) {
+                throw new IllegalStateException("No targetNamespace in schema " + location.getFilename());
+            }
+            return matcher.group(1);
+        }
+    }
+    
+    /**
+     * @param location      schema file name
+     * @param compileTimeMs wall time of the compile, 0 until it has run
+     */
+    public record SchemaStatus(
+        String name,
+        String location,
+        String namespace,
+        SchemaType variant,
+        State state,
+        long compileTimeMs
+    ) {}
+    
+    /**
+     * One registered schema; the task compiles it exactly once, whoever runs it first
+     */
+    private static final class Entry {
+        
+        private final String name;
+        private final Resource location;
+        private final String namespace;
+        private final SchemaType variant;
+        private final FutureTask<Schema> task;
+        
+        private volatile State state = State.PENDING;
+        private volatile long compileTimeMs;
+        
+        Entry(String name, Resource location, String namespace, SchemaType variant) {
+            this.name = name;
+            this.location = location;
+            this.namespace = namespace;
+            this.variant = variant;
+            this.task = new FutureTask<>(this::compile);
+        }
+        
+        Schema schema() {
+            task.run();
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while compiling schema " + name, e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to load schema " + name + ": " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        
+        private Schema compile() throws Exception {
+            state = State.COMPILING;
+            long startTime = System.nanoTime();
+            try (InputStream is = location.getInputStream()) {
+                SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+                Schema schema = schemaFactory.newSchema(new StreamSource(is));
+                compileTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                state = State.READY;
+                log.info("✓ Schema {} compiled from {} in {} ms", name, location.getFilename(), compileTimeMs);
+                return schema;
+            } catch (Exception e) {
+                compileTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                state = State.FAILED;
+                log.error("Failed to load schema {} from {}: {}", name, location.getFilename(), e.getMessage());
+                throw e;
+            }
+        }
+    }
+}
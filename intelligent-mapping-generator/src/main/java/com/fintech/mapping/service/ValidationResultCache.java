@@ -0,0 +1,126 @@
+package com.fintech.mapping.service;
+
+import com.fintech.mapping.model.SchemaType;
+import com.fintech.mapping.model.ValidationResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of validation results keyed by payload content
+ *
+ * Upstream retries resubmit byte-identical messages; a hit skips parsing, detection and
+ * XSD validation. The key is a 128-bit MurmurHash3 of the payload bytes, the payload
+ * length, the schema version and the requested schema (null for auto-detection).
+ * Entries expire after the TTL (checked on lookup) and the least recently used entry
+ * is evicted once the cache is full. Hits return a copy flagged as {@code cached}.
+ */
+public class ValidationResultCache {
+    
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long schemaVersion;
+    private final LinkedHashMap<Key, Entry> entries;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    
+    /**
+     * @param maxEntries    maximum number of cached results
+     * @param ttl           how long a result stays valid
+     * @param schemaVersion fingerprint of the loaded schemas; results of other versions never match
+     */
+    public ValidationResultCache(int maxEntries, Duration ttl, long schemaVersion) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttl.toNanos();
+        this.schemaVersion = schemaVersion;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ValidationResultCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Cache key of a payload
+     *
+     * @param schemaType schema explicitly requested, or null for auto-detection
+     */
+    public Key keyOf(byte[] payload, SchemaType schemaType) {
+        long[] hash = Murmur3.hash128(payload, schemaVersion);
+        return new Key(hash[0], hash[1], payload.length, schemaType);
+    }
+    
+    /**
+     * Cached result for the key (a copy flagged as cached), or null
+     */
+    public ValidationResult get(Key key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.storedAt >= ttlNanos) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.result.toBuilder()
+            .errors(new ArrayList<>(entry.result.getErrors()))
+            .cached(true)
+            .build();
+    }
+    
+    /**
+     * Store a freshly computed result (a private copy is kept)
+     */
+    public void put(Key key, ValidationResult result) {
+        ValidationResult copy = result.toBuilder()
+            .errors(result.getErrors() != null ? new ArrayList<>(result.getErrors()) : new ArrayList<>())
+            .build();
+        synchronized (entries) {
+            entries.put(key, new Entry(copy, System.nanoTime()));
+        }
+    }
+    
+    public CacheStats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size, maxEntries);
+    }
+    
+    /**
+     * Content fingerprint of a payload plus the schema it is validated against
+     */
+    public record Key(long hash1, long hash2, int length, SchemaType schemaType) {}
+    
+    private record Entry(ValidationResult result, long storedAt) {}
+    
+    /**
+     * Snapshot of cache counters
+     */
+    public record CacheStats(
+        long hits,
+        long misses,
+        long evictions,
+        long expirations,
+        int size,
+        int maxEntries
+    ) {}
+}
@@ -1,30 +1,39 @@
 package com.fintech.mapping.service;
 
+import com.fintech.mapping.metrics.ValidationMetrics;
+import com.fintech.mapping.metrics.ValidationMetrics.Stage;
 import com.fintech.mapping.model.SchemaType;
 import com.fintech.mapping.model.ValidationError;
 import com.fintech.mapping.model.ValidationResult;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.spi.LoggingEventBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.w3c.dom.Document;
-import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
 
 import jakarta.annotation.PostConstruct;
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.stream.StreamSource;
+import jakarta.annotation.PreDestroy;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Service to validate pain.001 messages against XSD schemas
@@ -33,134 +42,433 @@ import java.util.List;
 @Slf4j
 public class ValidationService {
     
-    @Value("${app.schemas.cbpr-path}")
-    private Resource cbprSchemaResource;
+    private static final String HEADER_XPATH = "/AppHdr";
     
-    @Value("${app.schemas.iso-path}")
-    private Resource isoSchemaResource;
+    // Bytes buffered from a stream to find the AppHdr/Document start tags
+    private static final int STREAM_HEAD_SIZE = 64 * 1024;
+    
+    private static final SAXParserFactory SAX_PARSER_FACTORY = newSaxParserFactory();
+    private static final String VALIDATION_EXCEPTION_INFO = "Validation exception: ";
+    private static final String AUGMENT_PSVI_FEATURE = "http://apache.org/xml/features/validation/schema/augment-psvi";
+    
+    @Value("${app.validation.pool.max-idle:64}")
+    private int poolMaxIdle;
+    
+    @Value("${app.validation.max-errors:1000}")
+    private int maxErrors;
+    
+    @Value("${app.validation.parallel.enabled:false}")
+    private boolean parallelEnabled;
+    
+    @Value("${app.validation.parallel.min-transactions:1000}")
+    private int parallelMinTransactions;
+    
+    @Value("${app.validation.parallel.chunk-size:64}")
+    private int parallelChunkSize;
+    
+    @Value("${app.validation.parallel.parallelism:0}")
+    private int parallelism;
+    
+    @Value("${app.validation.cache.enabled:false}")
+    private boolean cacheEnabled;
+    
+    @Value("${app.validation.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+    
+    @Value("${app.validation.cache.ttl:10m}")
+    private Duration cacheTtl;
     
     @Autowired
     private SchemaDetectionService schemaDetectionService;
     
-    private Schema cbprSchema;
-    private Schema isoSchema;
+    @Autowired
+    private SchemaRegistry schemaRegistry;
+    
+    @Autowired
+    private ValidationMetrics metrics;
+    
+    @Autowired
+    private LogSampler logSampler;
+    
+    // Reusable parser/validator instances (creating them per message is costly)
+    private XmlPool<SAXParser> saxParserPool;
+    private final Map<SchemaType, XmlPool<ValidatorHandler>> validatorHandlerPools = new EnumMap<>(SchemaType.class);
+    private final Map<String, XmlPool<ValidatorHandler>> messageHandlerPools = new ConcurrentHashMap<>();
+    
+    // Message definition of the pain.001 schema of each variant (e.g. pain.001.001.09)
+    private final Map<SchemaType, String> pain001MessageTypes = new EnumMap<>(SchemaType.class);
+    
+    // Fork/join validation of large ISO bulk messages (app.validation.parallel.enabled)
+    private ForkJoinPool bulkValidationPool;
+    private ParallelBulkValidator bulkValidator;
+    private final List<XmlPool<ValidatorHandler>> fragmentHandlerPools = new ArrayList<>();
+    
+    // Results of recently seen payloads (null when disabled)
+    private ValidationResultCache resultCache;
     
     /**
-     * Load and cache schemas at startup
+     * Create the pools and optional features at startup (schemas come from the {@link SchemaRegistry})
      */
     @PostConstruct
     public void init() throws Exception {
-        log.info("Loading XSD schemas...");
+        for (SchemaType type : List.of(SchemaType.CBPR_PLUS, SchemaType.ISO_STANDARD)) {
+            pain001MessageTypes.put(type, SchemaRegistry.messageDefinition(schemaRegistry.namespace(type.name())));
+        }
+        initPools();
         
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        if (parallelEnabled) {
+            initBulkValidation();
+        }
         
-        // Load CBPR+ schema
-        try (InputStream is = cbprSchemaResource.getInputStream()) {
-            cbprSchema = schemaFactory.newSchema(new StreamSource(is));
-            log.info("✓ CBPR+ schema loaded successfully from: {}", cbprSchemaResource.getFilename());
-        } catch (Exception e) {
-            log.error("Failed to load CBPR+ schema: {}", e.getMessage());
-            throw e;
+        if (cacheEnabled) {
+            resultCache = new ValidationResultCache(cacheMaxEntries, cacheTtl, schemaVersion());
+            log.info("Validation result cache enabled (max-entries={}, ttl={})", cacheMaxEntries, cacheTtl);
+        }
+    }
+    
+    /**
+     * Fingerprint of the loaded XSDs, part of every cache key
+     */
+    private long schemaVersion() throws IOException {
+        try (InputStream cbpr = schemaRegistry.location(SchemaType.CBPR_PLUS).getInputStream();
+             InputStream iso = schemaRegistry.location(SchemaType.ISO_STANDARD).getInputStream()) {
+            long[] cbprHash = Murmur3.hash128(cbpr.readAllBytes(), 0);
+            return Murmur3.hash128(iso.readAllBytes(), cbprHash[0])[0];
+        }
+    }
+    
+    /**
+     * Derive the fragment schemas and start the fork/join pool for bulk messages
+     */
+    private void initBulkValidation() throws Exception {
+        FragmentSchemas fragmentSchemas;
+        try (InputStream is = schemaRegistry.location(SchemaType.ISO_STANDARD).getInputStream()) {
+            fragmentSchemas = FragmentSchemas.derive(is);
         }
         
-        // Load ISO schema
-        try (InputStream is = isoSchemaResource.getInputStream()) {
-            isoSchema = schemaFactory.newSchema(new StreamSource(is));
-            log.info("✓ ISO Standard schema loaded successfully from: {}", isoSchemaResource.getFilename());
-        } catch (Exception e) {
-            log.error("Failed to load ISO schema: {}", e.getMessage());
-            throw e;
+        XmlPool<ValidatorHandler> skeletonHandlers = new XmlPool<>("validator-handler-ISO_SKELETON", poolMaxIdle,
+            () -> newValidatorHandler(fragmentSchemas.skeletonSchema()), ValidationService::resetValidatorHandler);
+        XmlPool<ValidatorHandler> transactionHandlers = new XmlPool<>("validator-handler-ISO_TRANSACTION", poolMaxIdle,
+            () -> newValidatorHandler(fragmentSchemas.transactionSchema()), ValidationService::resetValidatorHandler);
+        fragmentHandlerPools.add(skeletonHandlers);
+        fragmentHandlerPools.add(transactionHandlers);
+        
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        bulkValidationPool = new ForkJoinPool(threads);
+        bulkValidator = new ParallelBulkValidator(bulkValidationPool, saxParserPool, skeletonHandlers, transactionHandlers,
+            parallelMinTransactions, parallelChunkSize, maxErrors);
+        log.info("Parallel bulk validation enabled (parallelism={}, min-transactions={}, chunk-size={})",
+            threads, parallelMinTransactions, parallelChunkSize);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (bulkValidationPool != null) {
+            bulkValidationPool.shutdownNow();
         }
+    }
+    
+    /**
+     * Create the parser and per-schema validator pools
+     */
+    private void initPools() {
+        saxParserPool = new XmlPool<>("sax-parser", poolMaxIdle, ValidationService::newSaxParser, SAXParser::reset);
         
-        log.info("All schemas loaded and cached successfully");
+        // Schemas are looked up on the first miss, so lazily compiled schemas stay lazy
+        for (SchemaType type : List.of(SchemaType.CBPR_PLUS, SchemaType.ISO_STANDARD)) {
+            validatorHandlerPools.put(type, new XmlPool<>(
+                "validator-handler-" + type.name(), poolMaxIdle, () -> newValidatorHandler(schemaFor(type)),
+                ValidationService::resetValidatorHandler));
+        }
+        log.info("XML parser/validator pools ready (max idle per pool: {})", poolMaxIdle);
+    }
+    
+    /**
+     * Hit/miss/discard counters of all parser and validator pools
+     */
+    public List<XmlPool.PoolStats> getPoolStats() {
+        List<XmlPool.PoolStats> stats = new ArrayList<>();
+        stats.add(saxParserPool.stats());
+        validatorHandlerPools.values().forEach(pool -> stats.add(pool.stats()));
+        messageHandlerPools.values().forEach(pool -> stats.add(pool.stats()));
+        fragmentHandlerPools.forEach(pool -> stats.add(pool.stats()));
+        return stats;
+    }
+    
+    /**
+     * Hit/miss/eviction counters of the result cache, or null when it is disabled
+     */
+    public ValidationResultCache.CacheStats getCacheStats() {
+        return resultCache != null ? resultCache.stats() : null;
+    }
+    
+    private static SAXParserFactory newSaxParserFactory() {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory;
+    }
+    
+    /**
+     * PSVI augmentation is switched off: the validator would otherwise keep every error
+     * message of the document element's subtree until the end of the document
+     */
+    private static ValidatorHandler newValidatorHandler(Schema schema) {
+        ValidatorHandler handler = schema.newValidatorHandler();
+        try {
+            handler.setFeature(AUGMENT_PSVI_FEATURE, false);
+        } catch (SAXException e) {
+            log.debug("Validator does not support {}: {}", AUGMENT_PSVI_FEATURE, e.getMessage());
+        }
+        return handler;
+    }
+    
+    private static void resetValidatorHandler(ValidatorHandler handler) {
+        handler.setErrorHandler(null);
+        handler.setContentHandler(null);
+        handler.setDocumentLocator(null);
+    }
+    
+    private static SAXParser newSaxParser() {
+        try {
+            return SAX_PARSER_FACTORY.newSAXParser();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot create SAX parser: " + e.getMessage(), e);
+        }
     }
     
     /**
      * Validate pain.001 message with automatic schema detection
+     * 
+     * The payload is parsed exactly once: detection, MsgId extraction and XSD
+     * validation all listen to the same SAX event stream (see {@link MessagePass}).
+     * Other registered message definitions (pacs.008, pain.002, ...) are recognised by
+     * their Document namespace and validated against their own schema.
+     * Resubmitted payloads are answered from the result cache when it is enabled.
      */
     public ValidationResult validate(String xmlContent) {
-        long startTime = System.currentTimeMillis();
+        return validate(xmlContent.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Validate a UTF-8 encoded message (see {@link #validate(String)}) without decoding it first
+     */
+    public ValidationResult validate(byte[] xmlBytes) {
+        return cached(xmlBytes, null, () -> validatePayload(xmlBytes));
+    }
+    
+    private ValidationResult validatePayload(byte[] xmlBytes) {
+        long startTime = System.nanoTime();
+        String messageSchema = messageSchemaFor(xmlBytes, xmlBytes.length);
+        EnvelopeReader.Envelope envelope = EnvelopeReader.read(xmlBytes, xmlBytes.length);
+        
+        // Large ISO bulk messages: validate transactions in parallel
+        if (bulkValidator != null && messageSchema == null && envelope == null) {
+            BulkMessageSplitter.Split split = bulkValidator.split(xmlBytes);
+            ValidationResult bulkResult = split != null ? validateBulk(xmlBytes, split, startTime) : null;
+            if (bulkResult != null) {
+                return bulkResult;
+            }
+        }
+        
+        return validate((pass, borrowed) ->
+            open(messageSchema, envelope, pass, borrowed, xmlBytes, xmlBytes.length, null), startTime);
+    }
+    
+    /**
+     * Validate a split ISO bulk message with the fork/join validator (stages are not broken down)
+     *
+     * Detection is scored on the signals of the same passes (skeleton plus transactions).
+     *
+     * @return null when the message turns out to be CBPR+ (rare at this size) or cannot be
+     *         parsed: it is then validated in one piece, which reports the parse error
+     */
+    private ValidationResult validateBulk(byte[] xmlBytes, BulkMessageSplitter.Split split, long startTime) {
+        boolean sampled = logSampler.sample();
+        ParallelBulkValidator.Outcome outcome;
+        try {
+            outcome = bulkValidator.validate(xmlBytes, split);
+        } catch (Exception e) {
+            log.debug("Parallel validation failed, validating in one piece: {}", e.getMessage());
+            return null;
+        }
+        if (schemaDetectionService.score(outcome.signals(), sampled) != SchemaType.ISO_STANDARD) {
+            return null;
+        }
         
+        String messageId = outcome.messageId() != null ? outcome.messageId() : "UNKNOWN";
+        ValidationResult.ValidationResultBuilder resultBuilder = ValidationResult.builder()
+            .detectedSchemaType(SchemaType.ISO_STANDARD)
+            .validatedAgainstSchema(SchemaType.ISO_STANDARD)
+            .messageType(pain001MessageType(SchemaType.ISO_STANDARD))
+            .messageId(messageId);
+        
+        if (sampled) {
+            log.debug("Message '{}': {} transactions validated in parallel", messageId, split.transactions().size());
+        }
+        
+        List<ValidationError> errors = outcome.errors();
+        if (errors.isEmpty()) {
+            resultBuilder.valid(true);
+        } else {
+            resultBuilder.valid(false);
+            resultBuilder.errors(errors);
+        }
+        return finish(resultBuilder, startTime, sampled);
+    }
+    
+    /**
+     * Validate a pain.001 message read from a stream (e.g. a multi-megabyte bulk file)
+     * 
+     * The payload is never materialised: only the first {@value #STREAM_HEAD_SIZE} bytes are
+     * buffered to tell a CBPR+ envelope (AppHdr + Document) from a single Document, the
+     * rest flows straight through the SAX pass, so heap use does not grow with the file.
+     * The stream is closed; it is read to the end unless an envelope's Document ends
+     * within the buffered bytes.
+     */
+    public ValidationResult validate(InputStream xmlStream) {
+        return validate((pass, borrowed) -> {
+            byte[] head = new byte[STREAM_HEAD_SIZE];
+            int headLength = xmlStream.readNBytes(head, 0, head.length);
+            
+            return open(messageSchemaFor(head, headLength), EnvelopeReader.read(head, headLength),
+                pass, borrowed, head, headLength, xmlStream);
+        }, System.nanoTime());
+    }
+    
+    /**
+     * Validate a pain.001 message read from a channel (see {@link #validate(InputStream)})
+     */
+    public ValidationResult validate(ReadableByteChannel xmlChannel) {
+        return validate(Channels.newInputStream(xmlChannel));
+    }
+    
+    /**
+     * Run the single pass over the input prepared by {@code source} and build the result
+     *
+     * @param startTime when work on the message began (sniffing done before the call counts as preprocess)
+     */
+    private ValidationResult validate(PassSource source, long startTime) {
+        boolean sampled = logSampler.sample();
         ValidationResult.ValidationResultBuilder resultBuilder = ValidationResult.builder();
+        List<Lease> borrowed = new ArrayList<>(2);
         
         try {
-            // Handle CBPR+ multi-root XML (AppHdr + Document)
-            String processedXml = preprocessXml(xmlContent);
+            MessagePass pass = new MessagePass(maxErrors);
+            pass.timeStages(metrics.isStageBreakdown());
+            try (InputStream input = source.open(pass, borrowed)) {
+                long parseStart = System.nanoTime();
+                metrics.recordStage(Stage.PREPROCESS, parseStart - startTime);
+                if (input != null) {
+                    parse(input, pass);
+                    recordPass(pass, System.nanoTime() - parseStart);
+                }
+            }
+            String messageSchema = pass.getMessageSchema();
             
-            // Parse XML to get message ID
-            Document doc = parseXml(processedXml);
-            String messageId = extractMessageId(doc);
+            String messageId = extractMessageId(pass);
             resultBuilder.messageId(messageId);
             
-            // Detect schema type
-            SchemaType detectedType = schemaDetectionService.detectSchemaType(doc);
+            // Detect schema type (message definitions other than pain.001 have a single variant)
+            long detectionStart = System.nanoTime();
+            SchemaType detectedType = messageSchema != null
+                ? SchemaType.ISO_STANDARD
+                : schemaDetectionService.score(pass.getSignals(), sampled);
+            metrics.recordStage(Stage.DETECTION, pass.getDetectionNanos() + System.nanoTime() - detectionStart);
             resultBuilder.detectedSchemaType(detectedType);
+            String messageType = messageSchema != null
+                ? messageSchema
+                : pain001MessageType(detectedType);
+            resultBuilder.messageType(messageType);
             
-            log.info("Processing message '{}' - Detected as: {}", messageId, detectedType);
-            
-            // For CBPR+, validate only the Document part (AppHdr is separate in real implementation)
-            String xmlToValidate = processedXml;
-            if (detectedType == SchemaType.CBPR_PLUS && xmlContent.contains("<AppHdr")) {
-                // Extract just the Document element for validation
-                xmlToValidate = extractDocumentElement(xmlContent);
-                log.debug("CBPR+ detected: Validating Document element only (AppHdr validated separately in production)");
+            if (sampled && pass.isEnvelope()) {
+                log.debug("Envelope: Document validated on its own, AppHdr {}", pass.getHeaderSchema() != null
+                    ? "validated against " + pass.getHeaderSchema()
+                    : "not validated (no head.001 schema registered for its namespace)");
             }
             
             // Validate against detected schema
-            Schema schemaToUse = (detectedType == SchemaType.CBPR_PLUS) ? cbprSchema : isoSchema;
             resultBuilder.validatedAgainstSchema(detectedType);
             
-            List<ValidationError> errors = validateAgainstSchema(xmlToValidate, schemaToUse);
+            List<ValidationError> errors = pass.errorsFor(detectedType);
+            if (errors == null) {
+                // An envelope without a top-level Document
+                errors = List.of(ValidationError.builder()
+                    .message("No top-level Document element found to validate against "
+                        + (messageSchema != null ? messageSchema : detectedType))
+                    .errorType("ERROR")
+                    .build());
+            }
             
             // For CBPR+, apply lenient validation (SWIFT network accepts variations in element ordering)
             if (detectedType == SchemaType.CBPR_PLUS) {
-                errors = filterCBPRPlusNonCriticalErrors(errors);
-                if (errors.isEmpty() || errors.stream().allMatch(e -> "WARNING".equals(e.getErrorType()))) {
-                    log.info("CBPR+ lenient validation: Message follows CBPR+ business rules (minor XSD ordering differences ignored)");
+                long filterStart = System.nanoTime();
+                errors = filterCBPRPlusNonCriticalErrors(errors, sampled);
+                metrics.recordStage(Stage.CBPR_FILTER, System.nanoTime() - filterStart);
+                if (sampled && (errors.isEmpty() || errors.stream().allMatch(e -> "WARNING".equals(e.getErrorType())))) {
+                    log.debug("CBPR+ lenient validation: Message follows CBPR+ business rules (minor XSD ordering differences ignored)");
                 }
             }
             
+            // Header errors come first and are never relaxed
+            if (!pass.getHeaderErrors().isEmpty()) {
+                List<ValidationError> all = new ArrayList<>(pass.getHeaderErrors());
+                all.addAll(errors);
+                errors = all;
+            }
+            
             if (errors.isEmpty()) {
                 resultBuilder.valid(true);
-                log.info("✓ Message '{}' is VALID against {} schema", messageId, detectedType);
             } else {
                 resultBuilder.valid(false);
                 resultBuilder.errors(errors);
-                log.warn("✗ Message '{}' is INVALID - {} errors found", messageId, errors.size());
             }
             
         } catch (Exception e) {
             log.error("Validation failed with exception: {}", e.getMessage(), e);
             resultBuilder.valid(false);
-            resultBuilder.additionalInfo("Validation exception: " + e.getMessage());
+            resultBuilder.additionalInfo(VALIDATION_EXCEPTION_INFO + e.getMessage());
+        } finally {
+            releaseValidatorHandlers(borrowed);
         }
         
-        long processingTime = System.currentTimeMillis() - startTime;
-        resultBuilder.processingTimeMs(processingTime);
-        
-        return resultBuilder.build();
+        return finish(resultBuilder, startTime, sampled);
     }
     
     /**
      * Validate XML against a specific schema type
      */
     public ValidationResult validateAgainstSpecificSchema(String xmlContent, SchemaType schemaType) {
-        long startTime = System.currentTimeMillis();
+        byte[] xmlBytes = xmlContent.getBytes(StandardCharsets.UTF_8);
+        return cached(xmlBytes, schemaType, () -> validateAgainstSpecificSchema(xmlBytes, schemaType));
+    }
+    
+    private ValidationResult validateAgainstSpecificSchema(byte[] xmlBytes, SchemaType schemaType) {
+        long startTime = System.nanoTime();
+        boolean sampled = logSampler.sample();
         
         ValidationResult.ValidationResultBuilder resultBuilder = ValidationResult.builder();
+        List<Lease> borrowed = new ArrayList<>(2);
         
         try {
-            Document doc = parseXml(xmlContent);
-            String messageId = extractMessageId(doc);
+            MessagePass pass = new MessagePass(maxErrors);
+            pass.validateDocument(schemaType, borrowValidatorHandler(schemaType, borrowed));
+            EnvelopeReader.Envelope envelope = EnvelopeReader.read(xmlBytes, xmlBytes.length);
+            if (envelope != null && envelope.document() != null) {
+                openEnvelopeDocument(pass);
+                parse(envelope.document().open(xmlBytes, xmlBytes.length), pass);
+            } else {
+                parse(new ByteArrayInputStream(xmlBytes), pass);
+            }
+            
+            String messageId = extractMessageId(pass);
             resultBuilder.messageId(messageId);
             
-            SchemaType detectedType = schemaDetectionService.detectSchemaType(doc);
+            SchemaType detectedType = schemaDetectionService.score(pass.getSignals(), sampled);
             resultBuilder.detectedSchemaType(detectedType);
             resultBuilder.validatedAgainstSchema(schemaType);
+            resultBuilder.messageType(pain001MessageType(schemaType));
             
-            Schema schemaToUse = (schemaType == SchemaType.CBPR_PLUS) ? cbprSchema : isoSchema;
-            
-            List<ValidationError> errors = validateAgainstSchema(xmlContent, schemaToUse);
+            List<ValidationError> errors = pass.errorsFor(schemaType);
             
             if (errors.isEmpty()) {
                 resultBuilder.valid(true);
@@ -178,72 +486,148 @@ public class ValidationService {
         } catch (Exception e) {
             log.error("Validation failed: {}", e.getMessage(), e);
             resultBuilder.valid(false);
-            resultBuilder.additionalInfo("Validation exception: " + e.getMessage());
+            resultBuilder.additionalInfo(VALIDATION_EXCEPTION_INFO + e.getMessage());
+        } finally {
+            releaseValidatorHandlers(borrowed);
         }
         
-        long processingTime = System.currentTimeMillis() - startTime;
-        resultBuilder.processingTimeMs(processingTime);
-        
-        return resultBuilder.build();
+        return finish(resultBuilder, startTime, sampled);
     }
     
     /**
-     * Perform XSD validation and collect errors
+     * Validate a message built by this service (e.g. a mapped pacs.008) against a
+     * registered message schema: no detection, CBPR+ filtering, caching or outcome metrics
+     *
+     * @param messageSchema registered schema name (see {@link SchemaRegistry#forNamespace})
+     * @return the XSD errors, empty when the message is valid
      */
-    private List<ValidationError> validateAgainstSchema(String xmlContent, Schema schema) {
-        List<ValidationError> errors = new ArrayList<>();
-        
+    public List<ValidationError> validateOutput(String messageSchema, byte[] xmlBytes) {
+        List<Lease> borrowed = new ArrayList<>(1);
         try {
-            Validator validator = schema.newValidator();
-            
-            // Custom error handler to collect all errors
-            validator.setErrorHandler(new ErrorHandler() {
-                @Override
-                public void warning(SAXParseException e) {
-                    errors.add(ValidationError.builder()
-                        .message(e.getMessage())
-                        .lineNumber(e.getLineNumber())
-                        .columnNumber(e.getColumnNumber())
-                        .errorType("WARNING")
-                        .build());
-                }
-                
-                @Override
-                public void error(SAXParseException e) {
-                    errors.add(ValidationError.builder()
-                        .message(e.getMessage())
-                        .lineNumber(e.getLineNumber())
-                        .columnNumber(e.getColumnNumber())
-                        .errorType("ERROR")
-                        .build());
-                }
-                
-                @Override
-                public void fatalError(SAXParseException e) {
-                    errors.add(ValidationError.builder()
-                        .message(e.getMessage())
-                        .lineNumber(e.getLineNumber())
-                        .columnNumber(e.getColumnNumber())
-                        .errorType("FATAL")
-                        .build());
-                }
-            });
-            
-            // Validate
-            validator.validate(new StreamSource(new ByteArrayInputStream(xmlContent.getBytes("UTF-8"))));
-            
-        } catch (SAXException e) {
-            // Errors already captured by error handler
-            log.debug("SAXException during validation (errors captured): {}", e.getMessage());
+            MessagePass pass = new MessagePass(maxErrors);
+            pass.validateDocument(SchemaType.ISO_STANDARD, borrowMessageHandler(messageSchema, borrowed));
+            parse(new ByteArrayInputStream(xmlBytes), pass);
+            List<ValidationError> errors = pass.errorsFor(SchemaType.ISO_STANDARD);
+            return errors != null ? errors : List.of(ValidationError.builder()
+                .message("No Document element found to validate against " + messageSchema)
+                .errorType("ERROR")
+                .build());
         } catch (Exception e) {
-            log.error("Unexpected error during validation: {}", e.getMessage());
-            errors.add(ValidationError.builder()
-                .message("Unexpected validation error: " + e.getMessage())
+            return List.of(ValidationError.builder()
+                .message(VALIDATION_EXCEPTION_INFO + e.getMessage())
                 .errorType("SYSTEM")
                 .build());
+        } finally {
+            releaseValidatorHandlers(borrowed);
         }
+    }
+    
+    /**
+     * Set the processing time, build the result, record it in the metrics and log it
+     */
+    private ValidationResult finish(ValidationResult.ValidationResultBuilder resultBuilder, long startTime,
+                                    boolean sampled) {
+        long processingTime = System.nanoTime() - startTime;
+        resultBuilder.processingTimeNanos(processingTime);
+        resultBuilder.processingTimeMs(TimeUnit.NANOSECONDS.toMillis(processingTime));
         
-        return errors;
+        ValidationResult result = resultBuilder.build();
+        metrics.recordResult(result, outcome(result));
+        logOutcome(result, sampled);
+        return result;
+    }
+    
+    /**
+     * Log one structured line per message: always when it is invalid, otherwise only when
+     * sampled (failures are logged where they are caught). A sampled message also gets
+     * its summary at DEBUG, built only if DEBUG is enabled.
+     */
+    private void logOutcome(ValidationResult result, boolean sampled) {
+        if (!result.isValid()) {
+            if (!failed(result)) {
+                outcomeEvent(log.atWarn(), result)
+                    .log("✗ Message '{}' is INVALID - {} errors found", result.getMessageId(), errorCount(result));
+            }
+        } else if (sampled) {
+            outcomeEvent(log.atInfo(), result)
+                .log("✓ Message '{}' is VALID against {} schema", result.getMessageId(), result.getValidatedAgainstSchema());
+        }
+        if (sampled) {
+            log.atDebug().setMessage(() -> "\n" + result.getSummary()).log();
+        }
+    }
+    
+    /**
+     * Key-value pairs of an outcome line (fields of the JSON line in the structured-logging profile)
+     */
+    private static LoggingEventBuilder outcomeEvent(LoggingEventBuilder event, ValidationResult result) {
+        return event
+            .addKeyValue("messageId", result.getMessageId())
+            .addKeyValue("schema", result.getValidatedAgainstSchema())
+            .addKeyValue("messageType", result.getMessageType())
+            .addKeyValue("valid", result.isValid())
+            .addKeyValue("errors", errorCount(result))
+            .addKeyValue("cached", result.isCached())
+            .addKeyValue("durationMicros", TimeUnit.NANOSECONDS.toMicros(result.getProcessingTimeNanos()));
+    }
+    
+    private static int errorCount(ValidationResult result) {
+        return result.getErrors() != null ? result.getErrors().size() : 0;
+    }
+    
+    /**
+     * Split the time of a SAX pass into parsing, (detection, recorded with scoring) and XSD validation
+     */
+    private void recordPass(MessagePass pass, long passNanos) {
+        long validationNanos = pass.getValidationNanos();
+        metrics.recordStage(Stage.PARSE, Math.max(0, passNanos - validationNanos - pass.getDetectionNanos()));
+        if (metrics.isStageBreakdown()) {
+            metrics.recordStage(Stage.XSD_VALIDATE, validationNanos);
+        }
+    }
+    
+    private static ValidationMetrics.Outcome outcome(ValidationResult result) {
+        if (failed(result)) {
+            return ValidationMetrics.Outcome.ERROR;
+        }
+        return result.isValid() ? ValidationMetrics.Outcome.VALID : ValidationMetrics.Outcome.INVALID;
+    }
+    
+    /**
+     * Whether validation could not run to completion (as opposed to finding errors)
+     */
+    private static boolean failed(ValidationResult result) {
+        return result.getAdditionalInfo() != null && result.getAdditionalInfo().startsWith(VALIDATION_EXCEPTION_INFO);
+    }
+    
+    /**
+     * Answer from the result cache or run the validation and cache its result
+     *
+     * @param schemaType schema explicitly requested, or null for auto-detection
+     */
+    private ValidationResult cached(byte[] xmlBytes, SchemaType schemaType, Supplier<ValidationResult> validation) {
+        if (resultCache == null) {
+            return validation.get();
+        }
+        
+        long startTime = System.nanoTime();
+        ValidationResultCache.Key key = resultCache.keyOf(xmlBytes, schemaType);
+        ValidationResult result = resultCache.get(key);
+        if (result != null) {
+            long processingTime = System.nanoTime() - startTime;
+            result.setProcessingTimeNanos(processingTime);
+            result.setProcessingTimeMs(TimeUnit.NANOSECONDS.toMillis(processingTime));
+            metrics.recordResult(result, outcome(result));
+            logOutcome(result, logSampler.sample());
+            return result;
+        }
+        
+        result = validation.get();
+        // Results of failed validations are not cached: the failure may be transient
+        if (!failed(result)) {
+            resultCache.put(key, result);
+        }
+        return result;
     }
     
     /**
@@ -251,7 +635,7 @@ public class ValidationService {
      * SWIFT network is more lenient than strict XSD validation on element ordering
      * This focuses on critical business rule violations only
      */
-    private List<ValidationError> filterCBPRPlusNonCriticalErrors(List<ValidationError> errors) {
+    private List<ValidationError> filterCBPRPlusNonCriticalErrors(List<ValidationError> errors, boolean sampled) {
         return errors.stream()
             .filter(error -> {
                 String msg = error.getMessage().toLowerCase();
@@ -259,13 +643,17 @@ public class ValidationService {
                 // Ignore element ordering/sequencing errors in postal addresses
                 if (msg.contains("invalid content was found") && 
                     (msg.contains("adrline") || msg.contains("postal") || msg.contains("address"))) {
-                    log.debug("Ignoring non-critical CBPR+ error: {}", error.getMessage());
+                    if (sampled) {
+                        log.debug("Ignoring non-critical CBPR+ error: {}", error.getMessage());
+                    }
                     return false; // Filter out
                 }
                 
                 // Ignore "no child element expected" errors (ordering issues)
                 if (msg.contains("no child element is expected")) {
-                    log.debug("Ignoring element ordering error: {}", error.getMessage());
+                    if (sampled) {
+                        log.debug("Ignoring element ordering error: {}", error.getMessage());
+                    }
                     return false; // Filter out
                 }
                 
@@ -276,73 +664,161 @@ public class ValidationService {
     }
     
     /**
-     * Preprocess XML to handle CBPR+ multi-root format
-     * CBPR+ messages have AppHdr + Document as siblings (not valid XML)
-     * Wrap them in a temporary root for parsing
+     * Registered schema for the Document namespace when it needs no detection, otherwise null
      */
-    private String preprocessXml(String xmlContent) {
-        // Check if this is multi-root XML (has both AppHdr and Document)
-        if (xmlContent.contains("<AppHdr") && xmlContent.contains("<Document")) {
-            // Find the XML declaration
-            int xmlDeclEnd = xmlContent.indexOf("?>");
-            String xmlDecl = "";
-            String content = xmlContent;
-            
-            if (xmlDeclEnd > 0) {
-                xmlDecl = xmlContent.substring(0, xmlDeclEnd + 2);
-                content = xmlContent.substring(xmlDeclEnd + 2);
-            }
-            
-            // Remove comments between elements
-            content = content.replaceAll("<!--[^>]*-->", "");
-            
-            // Wrap in a temporary root element
-            return xmlDecl + "<Root>" + content.trim() + "</Root>";
-        }
-        return xmlContent;
+    private String messageSchemaFor(byte[] head, int length) {
+        String namespace = NamespaceSniffer.documentNamespace(head, length);
+        return namespace != null ? schemaRegistry.forNamespace(namespace) : null;
     }
     
     /**
-     * Extract just the Document element from CBPR+ message
+     * Register the validation targets on a pass and open the stream it will parse
+     * 
+     * A plain message is parsed as is. For an envelope (AppHdr + Document) the AppHdr
+     * is validated first in a pass of its own and then only the Document is parsed;
+     * both are read out of the payload buffer without copying.
+     *
+     * @param messageSchema registered message definition other than pain.001, or null for CBPR+/ISO detection
+     * @param envelope      AppHdr/Document sections, or null for a plain message
+     * @param rest          remainder of a stream after the head, or null if the head is the whole payload
+     * @return the stream to parse, or null when an envelope has no Document to parse
      */
-    private String extractDocumentElement(String xmlContent) {
-        int docStart = xmlContent.indexOf("<Document");
-        int docEnd = xmlContent.lastIndexOf("</Document>") + 11;
+    private InputStream open(String messageSchema, EnvelopeReader.Envelope envelope, MessagePass pass,
+                             List<Lease> borrowed, byte[] head, int length, InputStream rest) throws Exception {
+        if (messageSchema != null) {
+            pass.markMessageSchema(messageSchema);
+            pass.validateDocument(SchemaType.ISO_STANDARD, borrowMessageHandler(messageSchema, borrowed));
+        } else {
+            pass.validateDocument(SchemaType.CBPR_PLUS, borrowValidatorHandler(SchemaType.CBPR_PLUS, borrowed));
+            pass.validateDocument(SchemaType.ISO_STANDARD, borrowValidatorHandler(SchemaType.ISO_STANDARD, borrowed));
+        }
         
-        if (docStart > 0 && docEnd > docStart) {
-            String extracted = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + 
-                             xmlContent.substring(docStart, docEnd);
-            return extracted;
+        if (envelope == null) {
+            InputStream headStream = new ByteArrayInputStream(head, 0, length);
+            return rest != null ? new SequenceInputStream(headStream, rest) : headStream;
         }
-        return xmlContent;
+        
+        validateHeader(envelope.appHdr(), pass, borrowed, head, length);
+        openEnvelopeDocument(pass);
+        EnvelopeReader.Section document = envelope.document();
+        if (document == null || document.isComplete()) {
+            // Nothing after the Document is needed
+            if (rest != null) {
+                rest.close();
+            }
+            if (document == null) {
+                return null;
+            }
+        }
+        InputStream documentStream = document.open(head, length);
+        return document.isComplete() || rest == null ? documentStream : new SequenceInputStream(documentStream, rest);
     }
     
     /**
-     * Parse XML string to Document
+     * Prepare a pass for the Document of an envelope. Positions are reported as if the
+     * Document had been extracted into its own file behind an XML declaration line,
+     * starting at (2, 1).
      */
-    private Document parseXml(String xmlContent) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setNamespaceAware(true);
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        return builder.parse(new ByteArrayInputStream(xmlContent.getBytes("UTF-8")));
+    private static void openEnvelopeDocument(MessagePass pass) {
+        pass.markEnvelope();
+        pass.reportPositionsFrom(2, 1);
     }
     
     /**
-     * Extract message ID from Document
+     * Validate an envelope's AppHdr against the head.001 schema registered for its
+     * namespace (if any) and attach the errors to the pass; positions are those in the payload
      */
-    private String extractMessageId(Document doc) {
+    private void validateHeader(EnvelopeReader.Section appHdr, MessagePass pass, List<Lease> borrowed,
+                                byte[] head, int length) throws Exception {
+        String headerSchema = schemaRegistry.forNamespace(appHdr.namespace());
+        if (headerSchema == null || !appHdr.isComplete()) {
+            return;
+        }
+        
+        MessagePass headerPass = new MessagePass(maxErrors);
+        headerPass.reportPositionsFrom(appHdr.line(), appHdr.column());
+        headerPass.validateDocument(SchemaType.ISO_STANDARD, borrowMessageHandler(headerSchema, borrowed));
+        try (InputStream input = appHdr.open(head, length)) {
+            parse(input, headerPass);
+        }
+        
+        List<ValidationError> headerErrors = headerPass.errorsFor(SchemaType.ISO_STANDARD);
+        headerErrors.forEach(error -> error.setXpath(HEADER_XPATH));
+        pass.markHeader(headerSchema, headerErrors);
+    }
+    
+    /**
+     * Run one SAX pass over the payload
+     */
+    private void parse(InputStream input, MessagePass pass) throws Exception {
+        SAXParser parser = saxParserPool.borrow();
         try {
-            var msgIdNodes = doc.getElementsByTagNameNS("*", "MsgId");
-            if (msgIdNodes.getLength() > 0) {
-                return msgIdNodes.item(0).getTextContent();
-            }
-            msgIdNodes = doc.getElementsByTagName("MsgId");
-            if (msgIdNodes.getLength() > 0) {
-                return msgIdNodes.item(0).getTextContent();
-            }
-        } catch (Exception e) {
-            log.debug("Failed to extract message ID: {}", e.getMessage());
+            parser.parse(input, pass);
+        } finally {
+            saxParserPool.release(parser);
         }
-        return "UNKNOWN";
+    }
+    
+    /**
+     * Borrow a pooled ValidatorHandler for the schema of the given type, remembering it for release
+     */
+    private ValidatorHandler borrowValidatorHandler(SchemaType schemaType, List<Lease> borrowed) {
+        return borrow(validatorHandlerPools.get(poolKey(schemaType)), borrowed);
+    }
+    
+    /**
+     * Borrow a pooled ValidatorHandler for a registered message or header schema (pacs.008, head.001, ...)
+     */
+    private ValidatorHandler borrowMessageHandler(String messageSchema, List<Lease> borrowed) {
+        XmlPool<ValidatorHandler> pool = messageHandlerPools.computeIfAbsent(messageSchema, name -> new XmlPool<>(
+            "validator-handler-" + name, poolMaxIdle, () -> newValidatorHandler(schemaRegistry.get(name)),
+            ValidationService::resetValidatorHandler));
+        return borrow(pool, borrowed);
+    }
+    
+    private static ValidatorHandler borrow(XmlPool<ValidatorHandler> pool, List<Lease> borrowed) {
+        ValidatorHandler handler = pool.borrow();
+        borrowed.add(new Lease(pool, handler));
+        return handler;
+    }
+    
+    private void releaseValidatorHandlers(List<Lease> borrowed) {
+        borrowed.forEach(lease -> lease.pool().release(lease.handler()));
+    }
+    
+    private record Lease(XmlPool<ValidatorHandler> pool, ValidatorHandler handler) {}
+    
+    /**
+     * Message definition of the pain.001 schema validated for a schema type
+     */
+    private String pain001MessageType(SchemaType schemaType) {
+        return pain001MessageTypes.get(poolKey(schemaType));
+    }
+    
+    private Schema schemaFor(SchemaType schemaType) {
+        return schemaRegistry.get(poolKey(schemaType));
+    }
+    
+    /**
+     * Anything that is not CBPR+ is validated against the ISO schema
+     */
+    private static SchemaType poolKey(SchemaType schemaType) {
+        return schemaType == SchemaType.CBPR_PLUS ? SchemaType.CBPR_PLUS : SchemaType.ISO_STANDARD;
+    }
+    
+    /**
+     * Registers the validation candidates on a pass and opens the stream it will parse
+     */
+    @FunctionalInterface
+    private interface PassSource {
+        InputStream open(MessagePass pass, List<Lease> borrowed) throws Exception;
+    }
+    
+    /**
+     * Extract message ID (text of the first MsgId element)
+     */
+    private String extractMessageId(MessagePass pass) {
+        String msgId = pass.getSignals().getMsgId();
+        return msgId != null ? msgId : "UNKNOWN";
     }
 }
@@ -0,0 +1,189 @@
+package com.fintech.mapping.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Byte-level helpers for scanning raw (UTF-8) XML payloads without decoding them into Strings
+ */
+final class XmlBytes {
+    
+    private static final byte[] COMMENT_START = ascii("<!--");
+    private static final byte[] COMMENT_END = ascii("-->");
+    private static final byte[] CDATA_START = ascii("<![CDATA[");
+    private static final byte[] CDATA_END = ascii("]]>");
+    private static final byte[] PI_START = ascii("<?");
+    private static final byte[] PI_END = ascii("?>");
+    
+    private XmlBytes() {
+    }
+    
+    static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+    
+    /**
+     * First index of pattern in data[from, to), or -1
+     */
+    static int indexOf(byte[] data, int from, int to, byte[] pattern) {
+        int last = to - pattern.length;
+        outer:
+        for (int i = Math.max(from, 0); i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+    
+    static int indexOf(byte[] data, byte[] pattern) {
+        return indexOf(data, 0, data.length, pattern);
+    }
+    
+    /**
+     * Last index of pattern in data, or -1
+     */
+    static int lastIndexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = data.length - pattern.length; i >= 0; i--) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+    
+    /**
+     * First index of a single byte in data[from, to), or -1
+     */
+    static int indexOf(byte[] data, int from, int to, byte value) {
+        for (int i = Math.max(from, 0); i < to; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Whether pattern occurs in data at offset
+     */
+    static boolean startsWith(byte[] data, int offset, byte[] pattern) {
+        if (offset < 0 || offset + pattern.length > data.length) {
+            return false;
+        }
+        for (int j = 0; j < pattern.length; j++) {
+            if (data[offset + j] != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Parser-style (line, column) of a byte offset, both 1-based.
+     * Follows the XML end-of-line rules (CRLF and lone CR count as one break)
+     * and counts UTF-16 chars, so a 4-byte UTF-8 sequence advances the column by two.
+     */
+    static int[] position(byte[] data, int offset) {
+        int[] position = {1, 1};
+        advance(data, 0, offset, position);
+        return position;
+    }
+    
+    /**
+     * Move a (line, column) position from offset {@code from} to offset {@code to},
+     * updating it in place, so positions of increasing offsets can be computed in one scan.
+     *
+     * @return the offset reached (one past {@code to} when a CRLF straddles it)
+     */
+    static int advance(byte[] data, int from, int to, int[] position) {
+        int line = position[0];
+        int column = position[1];
+        int i = from;
+        for (; i < to; i++) {
+            int b = data[i] & 0xFF;
+            if (b == '\n') {
+                line++;
+                column = 1;
+            } else if (b == '\r') {
+                if (i + 1 < data.length && data[i + 1] == '\n') {
+                    i++;
+                }
+                line++;
+                column = 1;
+            } else if (b >= 0xF0) {
+                column += 2;
+            } else if ((b & 0xC0) != 0x80) {
+                column++;
+            }
+        }
+        position[0] = line;
+        position[1] = column;
+        return i;
+    }
+    
+    /**
+     * Skip a comment, CDATA section, PI or DOCTYPE starting at lt, looking no further than {@code to}
+     *
+     * @return offset after it, 0 when lt starts an element tag, -1 when unterminated
+     */
+    static int skipNonElement(byte[] data, int lt, int to) {
+        byte[] terminator;
+        if (startsWith(data, lt, COMMENT_START)) {
+            terminator = COMMENT_END;
+        } else if (startsWith(data, lt, CDATA_START)) {
+            terminator = CDATA_END;
+        } else if (startsWith(data, lt, PI_START)) {
+            terminator = PI_END;
+        } else if (lt + 1 < to && data[lt + 1] == '!') {
+            // DOCTYPE without internal subset
+            int gt = indexOf(data, lt, to, (byte) '>');
+            return gt < 0 ? -1 : gt + 1;
+        } else {
+            return lt + 1 < to ? 0 : -1;
+        }
+        int end = indexOf(data, lt + 2, to, terminator);
+        return end < 0 ? -1 : end + terminator.length;
+    }
+    
+    /**
+     * Offset of the '>' closing the tag at lt (quoted attribute values may contain '>'), or -1
+     */
+    static int tagEnd(byte[] data, int lt, int to) {
+        byte quote = 0;
+        for (int i = lt + 1; i < to; i++) {
+            byte b = data[i];
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Qualified name of the tag whose name starts at {@code from}
+     */
+    static String tagName(byte[] data, int from, int tagEnd) {
+        int i = from;
+        while (i < tagEnd && !isNameEnd(data[i])) {
+            i++;
+        }
+        return new String(data, from, i - from, StandardCharsets.UTF_8);
+    }
+    
+    static boolean isNameEnd(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '/' || b == '>';
+    }
+}
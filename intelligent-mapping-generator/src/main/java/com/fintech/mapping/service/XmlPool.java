@@ -0,0 +1,86 @@
+package com.fintech.mapping.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of reusable, non-thread-safe XML processing objects
+ * (SAXParser, ValidatorHandler, Validator).
+ *
+ * Borrowing never blocks: an empty pool creates a new instance (miss), a full
+ * pool drops the returned one. The pool is a plain queue rather than a
+ * ThreadLocal, so it stays bounded with thousands of virtual threads and does
+ * not pin carrier threads.
+ */
+public class XmlPool<T> {
+    
+    private final String name;
+    private final Supplier<T> factory;
+    private final Consumer<T> reset;
+    private final ArrayBlockingQueue<T> idle;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+    
+    /**
+     * @param name    pool name used in stats
+     * @param maxIdle maximum number of idle instances kept
+     * @param factory creates a new instance on a miss
+     * @param reset   clears per-use state before an instance goes back into the pool
+     */
+    public XmlPool(String name, int maxIdle, Supplier<T> factory, Consumer<T> reset) {
+        this.name = name;
+        this.factory = factory;
+        this.reset = reset;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+    }
+    
+    /**
+     * Take an idle instance or create a new one
+     */
+    public T borrow() {
+        T instance = idle.poll();
+        if (instance != null) {
+            hits.increment();
+            return instance;
+        }
+        misses.increment();
+        return factory.get();
+    }
+    
+    /**
+     * Return an instance; it is reset first and dropped if reset fails or the pool is full
+     */
+    public void release(T instance) {
+        if (instance == null) {
+            return;
+        }
+        try {
+            reset.accept(instance);
+        } catch (RuntimeException e) {
+            discards.increment();
+            return;
+        }
+        if (!idle.offer(instance)) {
+            discards.increment();
+        }
+    }
+    
+    public PoolStats stats() {
+        return new PoolStats(name, hits.sum(), misses.sum(), discards.sum(), idle.size());
+    }
+    
+    /**
+     * Snapshot of pool counters
+     */
+    public record PoolStats(
+        String name,
+        long hits,
+        long misses,
+        long discards,
+        int idle
+    ) {}
+}
@@ -0,0 +1,137 @@
+package com.fintech.mapping.transform;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.Arrays;
+
+/**
+ * Recorded content of one source element: its attributes, text and child elements
+ *
+ * Kept as a flat list of operations so that it can be replayed under another element
+ * name. Cleared and reused for every occurrence of the element; the arrays only grow
+ * to the largest element seen. Whitespace-only text is not recorded (the plan writes
+ * no indentation).
+ */
+final class Fragment {
+    
+    private static final byte START = 0;
+    private static final byte ATTRIBUTE = 1;
+    private static final byte TEXT = 2;
+    private static final byte END = 3;
+    
+    // Max35Text: the length of the ISO 20022 identifiers (MsgId, InstrId...) that take a record suffix
+    static final int MAX_SUFFIXED_LENGTH = 35;
+    private static final int HASH_LENGTH = 8;
+    
+    private byte[] ops = new byte[8];
+    private String[] values = new String[8];
+    private int opCount;
+    private int valueCount;
+    private boolean present;
+    
+    /**
+     * Forget the recorded element (it is absent until opened again)
+     */
+    void clear() {
+        Arrays.fill(values, 0, valueCount, null);
+        opCount = 0;
+        valueCount = 0;
+        present = false;
+    }
+    
+    /**
+     * Start recording an occurrence of the element
+     */
+    void open() {
+        clear();
+        present = true;
+    }
+    
+    boolean isPresent() {
+        return present;
+    }
+    
+    void startElement(String localName) {
+        op(START);
+        value(localName);
+    }
+    
+    void attribute(String localName, String value) {
+        op(ATTRIBUTE);
+        value(localName);
+        value(value);
+    }
+    
+    void text(String text) {
+        op(TEXT);
+        value(text);
+    }
+    
+    void endElement() {
+        op(END);
+    }
+    
+    /**
+     * Write the element under {@code elementName} with the recorded content, and
+     * {@code suffix} (unless null) after its text (see {@link #withSuffix})
+     */
+    void writeTo(XMLStreamWriter writer, String elementName, String suffix) throws XMLStreamException {
+        writer.writeStartElement(elementName);
+        StringBuilder text = suffix != null ? new StringBuilder() : null;
+        int depth = 0;
+        int value = 0;
+        for (int i = 0; i < opCount; i++) {
+            switch (ops[i]) {
+                case START -> {
+                    writer.writeStartElement(values[value++]);
+                    depth++;
+                }
+                case ATTRIBUTE -> writer.writeAttribute(values[value++], values[value++]);
+                case TEXT -> {
+                    if (text != null && depth == 0) {
+                        text.append(values[value++]);
+                    } else {
+                        writer.writeCharacters(values[value++]);
+                    }
+                }
+                default -> {
+                    writer.writeEndElement();
+                    depth--;
+                }
+            }
+        }
+        if (text != null) {
+            writer.writeCharacters(withSuffix(text.toString(), suffix));
+        }
+        writer.writeEndElement();
+    }
+    
+    /**
+     * The text followed by the suffix, within {@link #MAX_SUFFIXED_LENGTH} characters
+     *
+     * A text too long to take the suffix is cut and ends in a hash of the whole text
+     * instead, so source IDs that differ only in the cut-off part still give different IDs.
+     */
+    static String withSuffix(String text, String suffix) {
+        if (text.length() + suffix.length() <= MAX_SUFFIXED_LENGTH) {
+            return text + suffix;
+        }
+        String hash = String.format("%08X", text.hashCode());
+        int prefixLength = Math.max(0, MAX_SUFFIXED_LENGTH - HASH_LENGTH - suffix.length());
+        return text.substring(0, prefixLength) + hash + suffix;
+    }
+    
+    private void op(byte op) {
+        if (opCount == ops.length) {
+            ops = Arrays.copyOf(ops, opCount * 2);
+        }
+        ops[opCount++] = op;
+    }
+    
+    private void value(String value) {
+        if (valueCount == values.length) {
+            values = Arrays.copyOf(values, valueCount * 2);
+        }
+        values[valueCount++] = value;
+    }
+}
@@ -0,0 +1,196 @@
+package com.fintech.mapping.transform;
+
+import com.fintech.mapping.model.FieldMapping;
+import com.fintech.mapping.model.MappingDefinition;
+import com.fintech.mapping.transform.MappingPlan.SourceNode;
+import com.fintech.mapping.transform.MappingPlan.TargetNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Compiles a {@link MappingDefinition} into a {@link MappingPlan}
+ *
+ * Source paths become a tree of the elements to match, with a slot for each mapped
+ * one; target paths become a tree in the order the fields are listed, which must be
+ * the order of the target schema's sequences. Definitions are checked here, so a
+ * plan that compiles can be run on any message.
+ */
+public final class MappingCompiler {
+    
+    private static final String NAMESPACE_PREFIX = "urn:iso:std:iso:20022:tech:xsd:";
+    
+    private MappingCompiler() {
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the definition is incomplete or inconsistent
+     */
+    public static MappingPlan compile(MappingDefinition definition) {
+        require(definition.getMappingId(), "mappingId");
+        require(definition.getTargetFormat(), "targetFormat");
+        if (definition.getFields() == null || definition.getFields().isEmpty()) {
+            throw new IllegalArgumentException("Mapping " + definition.getMappingId() + " has no fields");
+        }
+        if ((definition.getRecordSource() == null) != (definition.getRecordTarget() == null)) {
+            throw new IllegalArgumentException("recordSource and recordTarget go together");
+        }
+        if (definition.isSplitRecords() && definition.getRecordSource() == null) {
+            throw new IllegalArgumentException("Mapping " + definition.getMappingId() + " splits records but has none");
+        }
+        
+        Builder source = new Builder(MappingPlan.DOCUMENT);
+        Builder target = new Builder(MappingPlan.DOCUMENT);
+        
+        for (FieldMapping field : definition.getFields()) {
+            require(field.getTarget(), "target");
+            Builder targetField = target.path(field.getTarget());
+            if (field.getTransformation() == FieldMapping.Transformation.CONSTANT) {
+                require(field.getValue(), "value of constant " + field.getTarget());
+                targetField.constant = field.getValue();
+            } else if (field.getTransformation() == FieldMapping.Transformation.CREATION_TIME) {
+                targetField.generated = MappingPlan::creationTime;
+            } else if (field.getTransformation() == FieldMapping.Transformation.GENERATED_ID) {
+                targetField.generated = MappingPlan::generatedId;
+            } else {
+                require(field.getSource(), "source of " + field.getTarget());
+                Builder sourceField = source.path(field.getSource());
+                sourceField.captured = true;
+                targetField.sources.add(sourceField);
+                targetField.recordSuffix |= field.getTransformation() == FieldMapping.Transformation.RECORD_SUFFIX;
+            }
+        }
+        
+        // After the fields, so that the record keeps its place among the target elements
+        Builder recordTarget = null;
+        if (definition.getRecordSource() != null) {
+            source.path(definition.getRecordSource()).record = true;
+            recordTarget = target.path(definition.getRecordTarget());
+        }
+        
+        int slotCount = source.numberSlots(0);
+        SourceNode sourceRoot = source.toSourceNode();
+        TargetNode targetRoot = target.toTargetNode();
+        
+        TargetNode[] recordPath = null;
+        if (recordTarget != null) {
+            if (recordTarget.isMapped()) {
+                throw new IllegalArgumentException("Record " + definition.getRecordTarget() + " cannot be mapped itself");
+            }
+            recordPath = target.pathTo(recordTarget, targetRoot, new ArrayList<>());
+        }
+        return new MappingPlan(definition, NAMESPACE_PREFIX + definition.getTargetFormat(),
+            sourceRoot, slotCount, targetRoot, recordPath);
+    }
+    
+    private static void require(String value, String name) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Mapping definition is missing " + name);
+        }
+    }
+    
+    /**
+     * Mutable element of a source or target tree while compiling
+     */
+    private static final class Builder {
+        private final String name;
+        private final Map<String, Builder> children = new LinkedHashMap<>();
+        private final List<Builder> sources = new ArrayList<>();
+        private String constant;
+        private Supplier<String> generated;
+        private boolean recordSuffix;
+        private boolean captured;
+        private boolean record;
+        private int slot = -1;
+        private int firstSlot;
+        private int endSlot;
+        
+        Builder(String name) {
+            this.name = name;
+        }
+        
+        Builder path(String dottedPath) {
+            Builder node = this;
+            for (String step : dottedPath.split("\\.")) {
+                if (step.isBlank()) {
+                    throw new IllegalArgumentException("Empty element name in path " + dottedPath);
+                }
+                node = node.children.computeIfAbsent(step.trim(), Builder::new);
+            }
+            return node;
+        }
+        
+        boolean isMapped() {
+            return !sources.isEmpty() || constant != null || generated != null;
+        }
+        
+        /**
+         * Number the captured elements in document order; a node's slots are [firstSlot, endSlot)
+         */
+        int numberSlots(int next) {
+            firstSlot = next;
+            if (captured) {
+                slot = next++;
+            }
+            for (Builder child : children.values()) {
+                next = child.numberSlots(next);
+            }
+            endSlot = next;
+            return next;
+        }
+        
+        SourceNode toSourceNode() {
+            SourceNode node = new SourceNode(name);
+            node.slot = slot;
+            node.firstSlot = firstSlot;
+            node.endSlot = endSlot;
+            node.record = record;
+            if (!children.isEmpty()) {
+                Map<String, SourceNode> built = new HashMap<>();
+                for (Builder child : children.values()) {
+                    built.put(child.name, child.toSourceNode());
+                }
+                node.children = built;
+            }
+            return node;
+        }
+        
+        TargetNode toTargetNode() {
+            if (isMapped() && !children.isEmpty()) {
+                throw new IllegalArgumentException("Target " + name + " is mapped and also has mapped child elements");
+            }
+            TargetNode node = new TargetNode(name);
+            node.slots = sources.stream().mapToInt(source -> source.slot).toArray();
+            node.constant = constant;
+            node.generated = generated;
+            node.recordSuffix = recordSuffix;
+            node.children = children.values().stream()
+                .map(Builder::toTargetNode)
+                .toArray(TargetNode[]::new);
+            return node;
+        }
+        
+        /**
+         * The built target nodes from this one down to {@code descendant}, or null if it is not below
+         */
+        TargetNode[] pathTo(Builder descendant, TargetNode built, List<TargetNode> path) {
+            path.add(built);
+            if (this == descendant) {
+                return path.toArray(TargetNode[]::new);
+            }
+            int index = 0;
+            for (Builder child : children.values()) {
+                TargetNode[] found = child.pathTo(descendant, built.children[index++], path);
+                if (found != null) {
+                    return found;
+                }
+            }
+            path.remove(path.size() - 1);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.fintech.mapping.transform;
+
+import com.fintech.mapping.model.MappingDefinition;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A {@link MappingDefinition} compiled for execution (see {@link MappingCompiler})
+ *
+ * The source message is read once with StAX and the target written with an
+ * XMLStreamWriter as the source goes by; there is no DOM or object graph in between.
+ * The mapped source elements are numbered slots: when one starts, the slots below it
+ * are cleared (a new PmtInf forgets the previous one's values), and its content is
+ * recorded as a {@link Fragment}. Each time a record element ends, the target record
+ * is written from the slots; the target elements before the records (the group
+ * header) are written with the first one, those after it when the Document ends.
+ *
+ * With {@link #split} every record becomes a target message of its own instead, with
+ * the elements around it repeated (the group header combined with the PmtInf and
+ * transaction values current when the record ends), e.g. one pacs.008 per transaction.
+ *
+ * Memory is bounded by the mapped content of one record plus its enclosing levels,
+ * whatever the size of the message. A plan is immutable and may be run by any number
+ * of threads at once.
+ *
+ * Source elements are matched on their local name from the first Document element,
+ * so a CBPR+ envelope (AppHdr + Document) maps its Document. Nothing is checked
+ * against the target schema here (MappingService validates the output): a mandatory
+ * target field whose source is absent is simply not written, and a mapped element that
+ * repeats (other than the record) keeps its last occurrence.
+ */
+public final class MappingPlan {
+    
+    static final String DOCUMENT = "Document";
+    
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    // ISO date-time with a numeric offset (+00:00, not Z), as CBPR+ requires
+    private static final DateTimeFormatter CREATION_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx");
+    private static final HexFormat GENERATED_ID = HexFormat.of().withUpperCase();
+    
+    private final MappingDefinition definition;
+    private final String targetNamespace;
+    private final SourceNode sourceRoot;
+    private final int slotCount;
+    private final TargetNode targetRoot;
+    // Target elements from the Document down to the record (null without a record)
+    private final TargetNode[] recordPath;
+    
+    MappingPlan(MappingDefinition definition, String targetNamespace, SourceNode sourceRoot, int slotCount,
+                TargetNode targetRoot, TargetNode[] recordPath) {
+        this.definition = definition;
+        this.targetNamespace = targetNamespace;
+        this.sourceRoot = sourceRoot;
+        this.slotCount = slotCount;
+        this.targetRoot = targetRoot;
+        this.recordPath = recordPath;
+    }
+    
+    public MappingDefinition getDefinition() {
+        return definition;
+    }
+    
+    /**
+     * Namespace of the Document elements written
+     */
+    public String getTargetNamespace() {
+        return targetNamespace;
+    }
+    
+    /**
+     * Map one source message to one target message
+     *
+     * @return number of records written
+     * @throws XMLStreamException if the source is not well-formed or has no Document element
+     */
+    public int transform(InputStream source, OutputStream target) throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(source);
+        XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(target, "UTF-8");
+        try {
+            return new Execution(writer, null).run(reader);
+        } finally {
+            reader.close();
+            writer.close();
+        }
+    }
+    
+    /**
+     * Map one source message to a target message per record, each handed to
+     * {@code messages} (UTF-8 encoded) as soon as its record ends in the source
+     *
+     * @return number of target messages
+     * @throws XMLStreamException    if the source is not well-formed or has no Document element
+     * @throws IllegalStateException if the definition has no record
+     */
+    public int split(InputStream source, Consumer<byte[]> messages) throws XMLStreamException {
+        if (recordPath == null) {
+            throw new IllegalStateException("Mapping " + definition.getMappingId() + " has no record to split on");
+        }
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(source);
+        try {
+            return new Execution(null, messages).run(reader);
+        } finally {
+            reader.close();
+        }
+    }
+    
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+    
+    /**
+     * Value of a CREATION_TIME field: now, to the second, in UTC
+     */
+    static String creationTime() {
+        return CREATION_TIME.format(OffsetDateTime.now(ZoneOffset.UTC));
+    }
+    
+    /**
+     * Value of a GENERATED_ID field: 64 random bits as 16 hex digits
+     */
+    static String generatedId() {
+        return GENERATED_ID.toHexDigits(ThreadLocalRandom.current().nextLong());
+    }
+    
+    /**
+     * Element of the source tree; slots are numbered in document order, so the slots
+     * at or below an element are the range [firstSlot, endSlot)
+     */
+    static final class SourceNode {
+        final String name;
+        Map<String, SourceNode> children = Map.of();
+        int slot = -1;
+        int firstSlot;
+        int endSlot;
+        boolean record;
+        
+        SourceNode(String name) {
+            this.name = name;
+        }
+    }
+    
+    /**
+     * Element of the target tree: written from the first present slot (followed by
+     * the record number in a split message when recordSuffix is set), else the constant
+     * or generated value, else from its children (and left out when none of them has
+     * a value)
+     */
+    static final class TargetNode {
+        final String name;
+        TargetNode[] children = new TargetNode[0];
+        int[] slots = new int[0];
+        String constant;
+        Supplier<String> generated;
+        boolean recordSuffix;
+        
+        TargetNode(String name) {
+            this.name = name;
+        }
+    }
+    
+    /**
+     * State of one transform
+     */
+    private final class Execution {
+        
+        // Split: one message per record, written to the reused buffer
+        private final Consumer<byte[]> messages;
+        private final ByteArrayOutputStream recordBuffer;
+        private XMLStreamWriter writer;
+        private final Fragment[] slots = new Fragment[slotCount];
+        // Matched source element per depth (null when unmatched)
+        private SourceNode[] nodes = new SourceNode[16];
+        // Fragments being recorded, innermost last
+        private Fragment[] recording = new Fragment[4];
+        private int recordingCount;
+        private boolean started;
+        private int records;
+        
+        Execution(XMLStreamWriter writer, Consumer<byte[]> messages) {
+            this.writer = writer;
+            this.messages = messages;
+            this.recordBuffer = messages != null ? new ByteArrayOutputStream(4096) : null;
+            for (int i = 0; i < slotCount; i++) {
+                slots[i] = new Fragment();
+            }
+        }
+        
+        int run(XMLStreamReader reader) throws XMLStreamException {
+            int depth = 0;
+            int documentDepth = -1;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        depth++;
+                        String name = reader.getLocalName();
+                        SourceNode node;
+                        if (documentDepth < 0) {
+                            node = DOCUMENT.equals(name) ? sourceRoot : null;
+                            if (node != null) {
+                                documentDepth = depth;
+                            }
+                        } else {
+                            SourceNode parent = nodes[depth - 1];
+                            node = parent != null ? parent.children.get(name) : null;
+                        }
+                        if (depth == nodes.length) {
+                            nodes = Arrays.copyOf(nodes, depth * 2);
+                        }
+                        nodes[depth] = node;
+                        startElement(reader, name, node);
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        SourceNode node = nodes[depth];
+                        endElement(node);
+                        if (depth == documentDepth) {
+                            finish();
+                            return records;
+                        }
+                        depth--;
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> {
+                        if (recordingCount > 0 && !reader.isWhiteSpace()) {
+                            String text = reader.getText();
+                            for (int i = 0; i < recordingCount; i++) {
+                                recording[i].text(text);
+                            }
+                        }
+                    }
+                    default -> {
+                        // whitespace, comments, PIs carry nothing to map
+                    }
+                }
+            }
+            throw new XMLStreamException("No " + DOCUMENT + " element found");
+        }
+        
+        private void startElement(XMLStreamReader reader, String name, SourceNode node) {
+            for (int i = 0; i < recordingCount; i++) {
+                recording[i].startElement(name);
+                attributes(reader, recording[i]);
+            }
+            if (node == null) {
+                return;
+            }
+            for (int slot = node.firstSlot; slot < node.endSlot; slot++) {
+                slots[slot].clear();
+            }
+            if (node.slot >= 0) {
+                Fragment fragment = slots[node.slot];
+                fragment.open();
+                attributes(reader, fragment);
+                if (recordingCount == recording.length) {
+                    recording = Arrays.copyOf(recording, recordingCount * 2);
+                }
+                recording[recordingCount++] = fragment;
+            }
+        }
+        
+        private void endElement(SourceNode node) throws XMLStreamException {
+            if (node != null && node.slot >= 0) {
+                recording[--recordingCount] = null;
+            }
+            for (int i = 0; i < recordingCount; i++) {
+                recording[i].endElement();
+            }
+            if (node != null && node.record) {
+                records++;
+                if (messages != null) {
+                    writeMessage();
+                } else {
+                    if (!started) {
+                        writePrologue();
+                    }
+                    writeNode(recordPath[recordPath.length - 1]);
+                }
+            }
+        }
+        
+        private void attributes(XMLStreamReader reader, Fragment fragment) {
+            for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+                String namespace = reader.getAttributeNamespace(i);
+                if (namespace == null || namespace.isEmpty()) {
+                    fragment.attribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                }
+            }
+        }
+        
+        /**
+         * Open the target down to the record's parent, with the elements before the record
+         */
+        private void writePrologue() throws XMLStreamException {
+            started = true;
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement(DOCUMENT);
+            writer.writeDefaultNamespace(targetNamespace);
+            for (int level = 0; level < recordPath.length - 1; level++) {
+                if (level > 0) {
+                    writer.writeStartElement(recordPath[level].name);
+                }
+                for (TargetNode child : recordPath[level].children) {
+                    if (child == recordPath[level + 1]) {
+                        break;
+                    }
+                    writeNode(child);
+                }
+            }
+        }
+        
+        /**
+         * Split: the current record as a complete target message
+         */
+        private void writeMessage() throws XMLStreamException {
+            recordBuffer.reset();
+            writer = OUTPUT_FACTORY.createXMLStreamWriter(recordBuffer, "UTF-8");
+            try {
+                writePrologue();
+                writeNode(recordPath[recordPath.length - 1]);
+                writeEpilogue();
+            } finally {
+                writer.close();
+            }
+            messages.accept(recordBuffer.toByteArray());
+        }
+        
+        /**
+         * Write what follows the last record (or the whole target without a record) and close
+         */
+        private void finish() throws XMLStreamException {
+            if (messages != null) {
+                return;
+            }
+            if (recordPath == null) {
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeStartElement(DOCUMENT);
+                writer.writeDefaultNamespace(targetNamespace);
+                for (TargetNode child : targetRoot.children) {
+                    writeNode(child);
+                }
+                writer.writeEndElement();
+                writer.writeEndDocument();
+            } else {
+                if (!started) {
+                    writePrologue();
+                }
+                writeEpilogue();
+            }
+            writer.flush();
+        }
+        
+        /**
+         * The elements after the record at each level, closing the levels up to the Document
+         */
+        private void writeEpilogue() throws XMLStreamException {
+            for (int level = recordPath.length - 2; level >= 0; level--) {
+                boolean after = false;
+                for (TargetNode child : recordPath[level].children) {
+                    if (after) {
+                        writeNode(child);
+                    }
+                    after |= child == recordPath[level + 1];
+                }
+                writer.writeEndElement();
+            }
+            writer.writeEndDocument();
+        }
+        
+        private void writeNode(TargetNode node) throws XMLStreamException {
+            for (int slot : node.slots) {
+                if (slots[slot].isPresent()) {
+                    slots[slot].writeTo(writer, node.name,
+                        node.recordSuffix && messages != null ? "-" + records : null);
+                    return;
+                }
+            }
+            if (node.constant != null || node.generated != null) {
+                writer.writeStartElement(node.name);
+                writer.writeCharacters(node.constant != null ? node.constant : node.generated.get());
+                writer.writeEndElement();
+            } else if (node.children.length > 0 && hasValue(node)) {
+                writer.writeStartElement(node.name);
+                for (TargetNode child : node.children) {
+                    writeNode(child);
+                }
+                writer.writeEndElement();
+            }
+        }
+        
+        private boolean hasValue(TargetNode node) {
+            for (int slot : node.slots) {
+                if (slots[slot].isPresent()) {
+                    return true;
+                }
+            }
+            if (node.constant != null || node.generated != null) {
+                return true;
+            }
+            for (TargetNode child : node.children) {
+                if (hasValue(child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.fintech.mapping.messaging;
+
+import com.fintech.mapping.model.SanitizedField;
+import com.fintech.mapping.model.SchemaType;
+import com.fintech.mapping.model.ValidationError;
+import com.fintech.mapping.model.ValidationResult;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Session;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A result written by {@link ResultMessages#resultMessage} is read back unchanged by
+ * {@link ResultMessages#readResult}, in both body formats
+ */
+class ResultMessagesTest {
+    
+    // Quotes, backslashes, control characters and characters outside the BMP
+    private static final String AWKWARD = "A\"B\\C\u0000\u0001\b\f\n\r\t\u001f\u007f é 😀 </x>";
+    
+    @ParameterizedTest
+    @EnumSource(ResultMessages.ResultFormat.class)
+    void readsBackAFullResult(ResultMessages.ResultFormat format) throws Exception {
+        ValidationResult result = ValidationResult.builder()
+            .valid(false)
+            .detectedSchemaType(SchemaType.CBPR_PLUS)
+            .validatedAgainstSchema(SchemaType.ISO_STANDARD)
+            .messageType("pain.001.001.09")
+            .messageId("MSG-" + AWKWARD)
+            .errors(List.of(
+                ValidationError.builder()
+                    .message("cvc-pattern-valid: Value '" + AWKWARD + "' is not facet-valid")
+                    .lineNumber(15)
+                    .columnNumber(26)
+                    .errorType("ERROR")
+                    .build(),
+                ValidationError.builder()
+                    .message("\"quoted\" \\ header error")
+                    .lineNumber(17)
+                    .columnNumber(Integer.MAX_VALUE)
+                    .errorType("FATAL")
+                    .xpath("/AppHdr")
+                    .build()))
+            .validatedAt(LocalDateTime.of(2025, 10, 16, 14, 30, 0, 123_456_789))
+            .processingTimeMs(42)
+            .cached(true)
+            .additionalInfo(AWKWARD)
+            .sanitizedFields(List.of(new SanitizedField("Nm", 1, 2), new SanitizedField(AWKWARD, 0, 7)))
+            .duplicate(true)
+            .build();
+        
+        assertEquals(result, roundTrip(format, result));
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ResultMessages.ResultFormat.class)
+    void readsBackNullFields(ResultMessages.ResultFormat format) throws Exception {
+        ValidationResult result = ValidationResult.builder()
+            .valid(true)
+            .validatedAt(null)
+            .build();
+        
+        assertEquals(result, roundTrip(format, result));
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ResultMessages.ResultFormat.class)
+    void readsAMissingErrorListAsEmpty(ResultMessages.ResultFormat format) throws Exception {
+        ValidationResult result = ValidationResult.builder()
+            .valid(true)
+            .detectedSchemaType(SchemaType.UNKNOWN)
+            .messageId("")
+            .errors(null)
+            .build();
+        
+        assertEquals(result.toBuilder().errors(List.of()).build(), roundTrip(format, result));
+    }
+    
+    private static ValidationResult roundTrip(ResultMessages.ResultFormat format, ValidationResult result)
+            throws Exception {
+        ResultMessages resultMessages = new ResultMessages();
+        ReflectionTestUtils.setField(resultMessages, "resultFormat", format);
+        resultMessages.init();
+        
+        return resultMessages.readResult(resultMessages.resultMessage(session(), result, "correlation-1"));
+    }
+    
+    /**
+     * Session whose bytes messages keep their body and properties in memory
+     */
+    private static Session session() {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] {Session.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("createBytesMessage")) {
+                    return bytesMessage();
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+    
+    private static BytesMessage bytesMessage() {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        Map<String, Object> properties = new HashMap<>();
+        int[] readPosition = new int[1];
+        
+        return (BytesMessage) Proxy.newProxyInstance(BytesMessage.class.getClassLoader(),
+            new Class<?>[] {BytesMessage.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "writeByte" -> {
+                    body.write((Byte) args[0]);
+                    yield null;
+                }
+                case "writeBytes" -> {
+                    byte[] bytes = (byte[]) args[0];
+                    body.write(bytes, args.length > 1 ? (Integer) args[1] : 0,
+                        args.length > 1 ? (Integer) args[2] : bytes.length);
+                    yield null;
+                }
+                case "readBytes" -> {
+                    byte[] written = body.toByteArray();
+                    byte[] buffer = (byte[]) args[0];
+                    int count = Math.min(buffer.length, written.length - readPosition[0]);
+                    if (count <= 0) {
+                        yield -1;
+                    }
+                    System.arraycopy(written, readPosition[0], buffer, 0, count);
+                    readPosition[0] += count;
+                    yield count;
+                }
+                case "setStringProperty", "setBooleanProperty" -> {
+                    properties.put((String) args[0], args[1]);
+                    yield null;
+                }
+                case "getStringProperty" -> (String) properties.get((String) args[0]);
+                case "setJMSCorrelationID" -> null;
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
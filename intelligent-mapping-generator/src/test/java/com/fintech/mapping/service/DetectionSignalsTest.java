@@ -0,0 +1,181 @@
+package com.fintech.mapping.service;
+
+import com.fintech.mapping.model.SchemaType;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The early CBPR+/ISO decision of {@link DetectionSignals#settledType()} is the one
+ * {@link SchemaDetectionService#score} gives once the whole message has been read,
+ * whatever order the signals come in
+ */
+class DetectionSignalsTest {
+    
+    private final SchemaDetectionService detection = new SchemaDetectionService();
+    
+    @Test
+    void settlesOnTheFullScoreForEverySignalOrder() {
+        // One option per signal: absent or one of its values (up to two PmtInf)
+        List<List<Signal>> options = List.of(
+            List.of(Signal.NONE, new Signal("AppHdr", s -> element(s, "AppHdr", null))),
+            List.of(Signal.NONE, new Signal("NbOfTxs=1", s -> element(s, "NbOfTxs", "1")),
+                new Signal("NbOfTxs=3", s -> element(s, "NbOfTxs", "3"))),
+            List.of(Signal.NONE, new Signal("UETR", s -> element(s, "UETR", "eb6305c9-1f7f-49de-aed0-16487c27b42d"))),
+            List.of(Signal.NONE, new Signal("PmtInf", s -> element(s, "PmtInf", null))),
+            List.of(Signal.NONE, new Signal("second PmtInf", s -> element(s, "PmtInf", null))),
+            List.of(Signal.NONE, new Signal("MsgId=FIN-X", s -> element(s, "MsgId", "CORP2025101600001")),
+                new Signal("MsgId=non-FIN-X", s -> element(s, "MsgId", "MSG_2025#1"))),
+            List.of(Signal.NONE, new Signal("FwdgAgt/BICFI", DetectionSignalsTest::forwardingAgentBic)));
+        
+        int sequences = assertAllOrders(options, 0, new ArrayList<>());
+        assertTrue(sequences > 10_000, "sequences checked: " + sequences);
+    }
+    
+    @Test
+    void plainIsoMessageWithLateSignals() {
+        // No AppHdr, NbOfTxs after the first PmtInf, a second PmtInf, FwdgAgt/BICFI at the end
+        assertSameDecision("""
+            <Document><CstmrCdtTrfInitn><GrpHdr><MsgId>MSG-2025-10-16-BATCH-001</MsgId></GrpHdr>
+            <PmtInf><PmtInfId>1</PmtInfId></PmtInf><NbOfTxs>1</NbOfTxs><PmtInf><PmtInfId>2</PmtInfId></PmtInf>
+            <FwdgAgt><FinInstnId><BICFI>DEUTDEFF</BICFI></FinInstnId></FwdgAgt></CstmrCdtTrfInitn></Document>""");
+    }
+    
+    @Test
+    void envelopeWithNonFinXMsgId() {
+        assertSameDecision("""
+            <Envelope><AppHdr><BizMsgIdr>CBPR2025101600001</BizMsgIdr></AppHdr>
+            <Document><CstmrCdtTrfInitn><GrpHdr><MsgId>CORP_2025#1</MsgId><NbOfTxs>2</NbOfTxs></GrpHdr>
+            <PmtInf><CdtTrfTxInf><PmtId><UETR>eb6305c9-1f7f-49de-aed0-16487c27b42d</UETR></PmtId></CdtTrfTxInf></PmtInf>
+            <PmtInf/><FwdgAgt><FinInstnId><BICFI>BNPAFRPP</BICFI></FinInstnId></FwdgAgt>
+            </CstmrCdtTrfInitn></Document></Envelope>""");
+    }
+    
+    @Test
+    void undecidedUntilTheDecidingSignal() {
+        DetectionSignals signals = new DetectionSignals();
+        signals.startElement("Document");
+        element(signals, "NbOfTxs", "1");
+        element(signals, "MsgId", "CORP2025101600001");
+        assertNull(signals.settledType());
+        
+        element(signals, "UETR", "eb6305c9-1f7f-49de-aed0-16487c27b42d");
+        assertEquals(SchemaType.CBPR_PLUS, signals.settledType());
+    }
+    
+    /**
+     * Choose an option per signal, then check every order of the chosen signals
+     *
+     * @return number of sequences checked
+     */
+    private int assertAllOrders(List<List<Signal>> options, int index, List<Signal> chosen) {
+        if (index == options.size()) {
+            return permute(chosen, new ArrayList<>(), new boolean[chosen.size()]);
+        }
+        int sequences = 0;
+        for (Signal option : options.get(index)) {
+            List<Signal> next = new ArrayList<>(chosen);
+            if (option != Signal.NONE) {
+                next.add(option);
+            }
+            sequences += assertAllOrders(options, index + 1, next);
+        }
+        return sequences;
+    }
+    
+    private int permute(List<Signal> signals, List<Signal> order, boolean[] used) {
+        if (order.size() == signals.size()) {
+            assertSameDecision(order);
+            return 1;
+        }
+        int sequences = 0;
+        for (int i = 0; i < signals.size(); i++) {
+            if (!used[i]) {
+                used[i] = true;
+                order.add(signals.get(i));
+                sequences += permute(signals, order, used);
+                order.remove(order.size() - 1);
+                used[i] = false;
+            }
+        }
+        return sequences;
+    }
+    
+    /**
+     * Once settled, the decision never changes and is the score of the full signal set
+     */
+    private void assertSameDecision(List<Signal> order) {
+        DetectionSignals signals = new DetectionSignals();
+        SchemaType settled = null;
+        signals.startElement("Document");
+        for (Signal signal : order) {
+            signal.events().accept(signals);
+            SchemaType now = signals.settledType();
+            if (settled != null) {
+                assertEquals(settled, now, order::toString);
+            }
+            settled = now;
+        }
+        signals.endElement("Document");
+        
+        if (settled != null) {
+            assertEquals(detection.score(signals, false), settled, order::toString);
+        }
+    }
+    
+    /**
+     * The streaming detection (stops once settled) agrees with the walk over the parsed message
+     */
+    private void assertSameDecision(String xml) {
+        SchemaType streamed = detection.detectSchemaType(xml);
+        assertNotNull(streamed);
+        assertEquals(detection.detectSchemaType(parse(xml)), streamed);
+    }
+    
+    private static void element(DetectionSignals signals, String name, String text) {
+        signals.startElement(name);
+        if (text != null) {
+            signals.characters(text);
+        }
+        signals.endElement(name);
+    }
+    
+    private static void forwardingAgentBic(DetectionSignals signals) {
+        signals.startElement("FwdgAgt");
+        signals.startElement("FinInstnId");
+        element(signals, "BICFI", "DEUTDEFF");
+        signals.endElement("FinInstnId");
+        signals.endElement("FwdgAgt");
+    }
+    
+    private static Document parse(String xml) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private record Signal(String name, Consumer<DetectionSignals> events) {
+        
+        static final Signal NONE = new Signal("none", signals -> { });
+        
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
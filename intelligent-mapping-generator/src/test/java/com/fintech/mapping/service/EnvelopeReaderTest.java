@@ -0,0 +1,89 @@
+package com.fintech.mapping.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * AppHdr and Document are found by their tags only: markup that looks like them in
+ * comments, CDATA or quoted attribute values is not taken for them
+ */
+class EnvelopeReaderTest {
+    
+    private static final String HEAD = "urn:iso:std:iso:20022:tech:xsd:head.001.001.02";
+    private static final String PAIN = "urn:iso:std:iso:20022:tech:xsd:pain.001.001.09";
+    
+    private static final String APP_HDR = "<AppHdr xmlns=\"" + HEAD + "\" note='x > y'>"
+        + "<!-- </AppHdr> --><Fr><![CDATA[</AppHdr><Document>]]></Fr></AppHdr>";
+    private static final String DOCUMENT = "<Document xmlns=\"" + PAIN + "\" info=\"a>b\">"
+        + "<CstmrCdtTrfInitn/></Document>";
+    
+    @Test
+    void skipsCommentsAndQuotedGreaterThanBeforeTheDocument() throws IOException {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!-- <AppHdr> and <Document> only in a comment -->\n"
+            + APP_HDR + "\n"
+            + "<!-- <Document xmlns=\"urn:wrong\"> -->" + DOCUMENT;
+        byte[] bytes = bytes(xml);
+        
+        EnvelopeReader.Envelope envelope = EnvelopeReader.read(bytes, bytes.length);
+        
+        assertSection(APP_HDR, HEAD, 3, 1, envelope.appHdr(), xml);
+        int column = "<!-- <Document xmlns=\"urn:wrong\"> -->".length() + 1;
+        assertSection(DOCUMENT, PAIN, 4, column, envelope.document(), xml);
+    }
+    
+    @Test
+    void readsTopLevelElementsWithTheirPrefixedNamespace() throws IOException {
+        String appHdr = "<h:AppHdr xmlns:h=\"" + HEAD + "\"><h:Fr/></h:AppHdr>";
+        String document = "<p:Document xmlns:p=\"" + PAIN + "\" xmlns=\"urn:other\"><p:CstmrCdtTrfInitn/></p:Document>";
+        String xml = appHdr + "\n" + document;
+        byte[] bytes = bytes(xml);
+        
+        EnvelopeReader.Envelope envelope = EnvelopeReader.read(bytes, bytes.length);
+        
+        assertSection(appHdr, HEAD, 1, 1, envelope.appHdr(), xml);
+        assertSection(document, PAIN, 2, 1, envelope.document(), xml);
+    }
+    
+    @Test
+    void returnsNullForMessageWithoutHeader() {
+        byte[] bytes = bytes("<!-- <AppHdr/> -->" + DOCUMENT);
+        assertNull(EnvelopeReader.read(bytes, bytes.length));
+    }
+    
+    @Test
+    void leavesDocumentOpenWhenItEndsBeyondTheScannedBytes() throws IOException {
+        String xml = APP_HDR + DOCUMENT;
+        byte[] bytes = bytes(xml);
+        int length = xml.indexOf("<CstmrCdtTrfInitn/>");
+        
+        EnvelopeReader.Envelope envelope = EnvelopeReader.read(bytes, length);
+        
+        assertEquals(-1, envelope.document().end());
+        assertFalse(envelope.document().isComplete());
+        assertEquals(xml.substring(APP_HDR.length(), length), text(envelope.document(), bytes, length));
+    }
+    
+    private static void assertSection(String expected, String namespace, int line, int column,
+                                      EnvelopeReader.Section section, String xml) throws IOException {
+        byte[] bytes = bytes(xml);
+        assertEquals(expected, text(section, bytes, bytes.length));
+        assertEquals(namespace, section.namespace());
+        assertEquals(line, section.line(), "line");
+        assertEquals(column, section.column(), "column");
+    }
+    
+    private static String text(EnvelopeReader.Section section, byte[] xml, int length) throws IOException {
+        return new String(section.open(xml, length).readAllBytes(), StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] bytes(String xml) {
+        return xml.getBytes(StandardCharsets.UTF_8);
+    }
+}
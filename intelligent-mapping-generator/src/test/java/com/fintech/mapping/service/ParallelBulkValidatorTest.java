@@ -0,0 +1,138 @@
+package com.fintech.mapping.service;
+
+import com.fintech.mapping.model.SchemaType;
+import com.fintech.mapping.model.ValidationError;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * The fork/join validation of a bulk message reports the same errors, at the same
+ * line and column, as one sequential pass over the whole message
+ */
+class ParallelBulkValidatorTest {
+    
+    private static final Path SAMPLE = Path.of("../schemas/iso20022/sample_iso_pain.001.001.09.xml");
+    private static final String ISO_SCHEMA = "/schemas/pain.001.001.09.xsd.xml";
+    private static final String PAIN_001 = "urn:iso:std:iso:20022:tech:xsd:pain.001.001.09";
+    private static final String XSI = "http://www.w3.org/2001/XMLSchema-instance";
+    private static final int MAX_ERRORS = 1000;
+    
+    private static Schema isoSchema;
+    private static ForkJoinPool forkJoinPool;
+    private static ParallelBulkValidator validator;
+    private static String sample;
+    
+    @BeforeAll
+    static void setUp() throws Exception {
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        isoSchema = factory.newSchema(ParallelBulkValidatorTest.class.getResource(ISO_SCHEMA));
+        FragmentSchemas fragmentSchemas;
+        try (InputStream xsd = ParallelBulkValidatorTest.class.getResourceAsStream(ISO_SCHEMA)) {
+            fragmentSchemas = FragmentSchemas.derive(xsd);
+        }
+        
+        forkJoinPool = new ForkJoinPool(4);
+        validator = new ParallelBulkValidator(forkJoinPool,
+            new XmlPool<>("sax-parser", 4, ParallelBulkValidatorTest::newSaxParser, SAXParser::reset),
+            handlers(fragmentSchemas.skeletonSchema()), handlers(fragmentSchemas.transactionSchema()),
+            2, 1, MAX_ERRORS);
+        
+        // The sample has an unescaped '&' in a name
+        sample = Files.readString(SAMPLE).replace(" & ", " &amp; ");
+    }
+    
+    @AfterAll
+    static void tearDown() {
+        forkJoinPool.shutdownNow();
+    }
+    
+    @Test
+    void reportsTheSameErrorsForTheSample() throws Exception {
+        assertSameErrors(sample);
+    }
+    
+    @Test
+    void reportsTheSameErrorsForInvalidTransactions() throws Exception {
+        String xml = sample
+            .replace("<InstdAmt Ccy=\"EUR\">125000.00</InstdAmt>", "<InstdAmt Ccy=\"EURO\">12x</InstdAmt>")
+            .replace("<ChrgBr>SHAR</ChrgBr>", "<ChrgBr>SHAR</ChrgBr><Unknown/>");
+        assertFalse(sequentialErrors(xml).isEmpty());
+        assertSameErrors(xml);
+    }
+    
+    @Test
+    void appliesNamespacesDeclaredOnTheTransactionItself() throws Exception {
+        // The second transaction binds a prefix of its own, used by an xsi:type value
+        String declared = sample.replaceFirst("<CdtTrfTxInf>\\s*<PmtId>\\s*<InstrId>INSTR-2025-10-16-002",
+                "<CdtTrfTxInf xmlns:p=\"" + PAIN_001 + "\" xmlns:xsi=\"" + XSI + "\"><PmtId><InstrId>INSTR-2025-10-16-002")
+            .replace("<InstdAmt Ccy=\"EUR\">125000.00</InstdAmt>",
+                "<InstdAmt xsi:type=\"p:ActiveOrHistoricCurrencyAndAmount\" Ccy=\"EUR\">125000.00</InstdAmt>");
+        assertSameErrors(declared);
+        
+        // An undeclared prefix is an error in both
+        String undeclared = declared.replace("xsi:type=\"p:", "xsi:type=\"q:");
+        assertFalse(sequentialErrors(undeclared).isEmpty());
+        assertSameErrors(undeclared);
+    }
+    
+    private static void assertSameErrors(String xml) throws Exception {
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        BulkMessageSplitter.Split split = validator.split(bytes);
+        assertNotNull(split, "message not split");
+        List<String> parallel = describe(validator.validate(bytes, split).errors());
+        assertEquals(sequentialErrors(xml), parallel);
+    }
+    
+    /**
+     * Errors of one pass over the whole message, as ValidationService runs it
+     */
+    private static List<String> sequentialErrors(String xml) throws Exception {
+        MessagePass pass = new MessagePass(MAX_ERRORS);
+        pass.validateDocument(SchemaType.ISO_STANDARD, isoSchema.newValidatorHandler());
+        newSaxParser().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), pass);
+        return describe(pass.errorsFor(SchemaType.ISO_STANDARD));
+    }
+    
+    private static List<String> describe(List<ValidationError> errors) {
+        return errors.stream()
+            .map(error -> error.getLineNumber() + ":" + error.getColumnNumber() + " " + error.getMessage())
+            .toList();
+    }
+    
+    private static XmlPool<ValidatorHandler> handlers(Schema schema) {
+        return new XmlPool<>("validator-handler", 4, schema::newValidatorHandler, handler -> {
+            handler.setErrorHandler(null);
+            handler.setContentHandler(null);
+            handler.setDocumentLocator(null);
+        });
+    }
+    
+    private static SAXParser newSaxParser() {
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            return factory.newSAXParser();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.fintech.mapping.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Expiry and removal in a cluster of keys that wraps from the last slot of the table
+ * to the first: keys are picked by their home slot so that the probe runs past the end
+ */
+class RecentIdIndexTest {
+    
+    private static final long HIGH = 0x0123456789abcdefL;
+    private static final long BUCKET_MILLIS = 1000;
+    
+    private RecentIdIndex index;
+    private int last;
+    
+    @BeforeEach
+    void createIndex() {
+        // 6 IDs: 9 slots; 8 buckets of a second
+        index = new RecentIdIndex(6, Duration.ofSeconds(8), 8);
+        last = (int) (index.memoryBytes() / (2 * Long.BYTES + Short.BYTES)) - 1;
+    }
+    
+    @Test
+    void expiresKeysBeforeTheWrapAndShiftsTheRestBack() {
+        long endA = keyAt(last, 0);
+        long endB = keyAt(last, endA);
+        long start = keyAt(0, 0);
+        
+        // endA in the last slot; endB and start wrap round to slots 0 and 1
+        assertTrue(index.add(HIGH, endA, 0));
+        assertTrue(index.add(HIGH, endB, BUCKET_MILLIS));
+        assertTrue(index.add(HIGH, start, BUCKET_MILLIS));
+        
+        // First bucket leaves the window: endA goes, endB and start move back
+        long now = 8 * BUCKET_MILLIS;
+        assertFalse(index.contains(HIGH, endA, now));
+        assertTrue(index.contains(HIGH, endB, now));
+        assertTrue(index.contains(HIGH, start, now));
+        assertEquals(2, index.size());
+        
+        now += BUCKET_MILLIS;
+        assertFalse(index.contains(HIGH, endB, now));
+        assertFalse(index.contains(HIGH, start, now));
+        assertEquals(0, index.size());
+    }
+    
+    @Test
+    void expiresKeysPastTheWrapAndKeepsTheirNeighbours() {
+        long endA = keyAt(last, 0);
+        long endB = keyAt(last, endA);
+        long start = keyAt(0, 0);
+        
+        // endA and endB (wrapped to slot 0) expire together; start, in slot 1, stays
+        assertTrue(index.add(HIGH, endA, 0));
+        assertTrue(index.add(HIGH, endB, 0));
+        assertTrue(index.add(HIGH, start, BUCKET_MILLIS));
+        
+        long now = 8 * BUCKET_MILLIS;
+        assertTrue(index.contains(HIGH, start, now));
+        assertFalse(index.contains(HIGH, endA, now));
+        assertFalse(index.contains(HIGH, endB, now));
+        assertEquals(1, index.size());
+        
+        // The slots are free again
+        assertTrue(index.add(HIGH, endB, now));
+        assertTrue(index.contains(HIGH, start, now));
+        assertEquals(2, index.size());
+    }
+    
+    @Test
+    void removesKeyAndKeepsTheWrappedKeysFindable() {
+        long endA = keyAt(last, 0);
+        long endB = keyAt(last, endA);
+        long start = keyAt(0, 0);
+        assertTrue(index.add(HIGH, endA, 0));
+        assertTrue(index.add(HIGH, endB, 0));
+        assertTrue(index.add(HIGH, start, 0));
+        
+        assertTrue(index.remove(HIGH, endA));
+        assertFalse(index.remove(HIGH, endA));
+        assertFalse(index.contains(HIGH, endA, 0));
+        assertTrue(index.contains(HIGH, endB, 0));
+        assertTrue(index.contains(HIGH, start, 0));
+        assertEquals(2, index.size());
+        
+        // Added again, it is new
+        assertTrue(index.add(HIGH, endA, 0));
+        assertFalse(index.add(HIGH, endA, 0));
+    }
+    
+    /**
+     * A low half, after {@code after}, whose key has its home in {@code slot}
+     */
+    private long keyAt(int slot, long after) {
+        long low = after + 1;
+        while (index.home(HIGH, low) != slot) {
+            low++;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,139 @@
+package com.fintech.mapping.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fintech.mapping.model.MappingDefinition;
+import com.fintech.mapping.transform.MappingCompiler;
+import com.fintech.mapping.transform.MappingPlan;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The mappings in resources/mappings turn the CBPR+ sample pain.001 into pacs.008
+ * messages that are valid against the registered pacs.008.001.08 (CBPR+) schema
+ */
+class ShippedMappingsTest {
+    
+    private static final Path SAMPLE = Path.of("../schemas/iso20022/sample_cbpr_pain.001.001.09.xml");
+    
+    private static Schema pacs008;
+    
+    @BeforeAll
+    static void loadSchema() throws Exception {
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        pacs008 = factory.newSchema(ShippedMappingsTest.class.getResource("/schemas/pacs.008.001.08.xsd"));
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {"pain001-to-pacs008", "pain001-to-pacs008-per-transaction"})
+    void mapsCbprSampleToValidPacs008(String mappingId) throws Exception {
+        MappingPlan plan = MappingCompiler.compile(definition(mappingId));
+        byte[] sample = Files.readAllBytes(SAMPLE);
+        
+        List<byte[]> messages = new ArrayList<>();
+        if (plan.getDefinition().isSplitRecords()) {
+            plan.split(document(sample), messages::add);
+        } else {
+            ByteArrayOutputStream target = new ByteArrayOutputStream();
+            plan.transform(document(sample), target);
+            messages.add(target.toByteArray());
+        }
+        
+        assertFalse(messages.isEmpty());
+        for (byte[] message : messages) {
+            assertEquals(List.of(), errors(message), new String(message, StandardCharsets.UTF_8));
+        }
+    }
+    
+    @Test
+    void splitMessagesTakeTheSourceMsgIdWithTheirRecordNumber() throws Exception {
+        MappingPlan plan = MappingCompiler.compile(definition("pain001-to-pacs008-per-transaction"));
+        List<byte[]> messages = new ArrayList<>();
+        plan.split(document(Files.readAllBytes(SAMPLE)), messages::add);
+        
+        assertFalse(messages.isEmpty());
+        for (int i = 0; i < messages.size(); i++) {
+            String message = new String(messages.get(i), StandardCharsets.UTF_8);
+            assertTrue(message.contains("<MsgId>CORP2025101600001-" + (i + 1) + "</MsgId>"), message);
+        }
+    }
+    
+    @Test
+    void splitMessagesOfAMaxLengthMsgIdStayWithin35Characters() throws Exception {
+        MappingPlan plan = MappingCompiler.compile(definition("pain001-to-pacs008-per-transaction"));
+        List<String> msgIds = new ArrayList<>();
+        List<String> sourceMsgIds = List.of("CORP2025101600001-BATCH-0123456789A", "CORP2025101600001-BATCH-0123456789B");
+        for (String sourceMsgId : sourceMsgIds) {
+            assertEquals(35, sourceMsgId.length());
+            byte[] sample = Files.readString(SAMPLE).replace("CORP2025101600001", sourceMsgId)
+                .getBytes(StandardCharsets.UTF_8);
+            List<byte[]> messages = new ArrayList<>();
+            plan.split(document(sample), messages::add);
+            
+            assertFalse(messages.isEmpty());
+            for (byte[] message : messages) {
+                String xml = new String(message, StandardCharsets.UTF_8);
+                assertEquals(List.of(), errors(message), xml);
+                String msgId = xml.substring(xml.indexOf("<MsgId>") + "<MsgId>".length(), xml.indexOf("</MsgId>"));
+                assertTrue(msgId.length() <= 35, msgId);
+                msgIds.add(msgId);
+            }
+        }
+        // Source IDs that differ only in their last character still give distinct IDs
+        assertEquals(msgIds.size(), Set.copyOf(msgIds).size(), msgIds::toString);
+    }
+    
+    private static MappingDefinition definition(String mappingId) throws Exception {
+        try (InputStream in = ShippedMappingsTest.class.getResourceAsStream("/mappings/" + mappingId + ".json")) {
+            return new ObjectMapper().readValue(in, MappingDefinition.class);
+        }
+    }
+    
+    /**
+     * The Document of the sample envelope, as MappingService reads it
+     */
+    private static InputStream document(byte[] xml) {
+        EnvelopeReader.Envelope envelope = EnvelopeReader.read(xml, xml.length);
+        return envelope.document().open(xml, xml.length);
+    }
+    
+    private static List<String> errors(byte[] message) throws Exception {
+        List<String> errors = new ArrayList<>();
+        Validator validator = pacs008.newValidator();
+        validator.setErrorHandler(new DefaultHandler() {
+            @Override
+            public void error(SAXParseException e) {
+                errors.add(e.getMessage());
+            }
+            
+            @Override
+            public void fatalError(SAXParseException e) {
+                errors.add(e.getMessage());
+            }
+        });
+        validator.validate(new StreamSource(new ByteArrayInputStream(message)));
+        return errors;
+    }
+}
@@ -0,0 +1,268 @@
+package com.fintech.mapping.service;
+
+import com.fintech.mapping.messaging.BrokerQueues;
+import com.fintech.mapping.metrics.ValidationMetrics;
+import com.fintech.mapping.model.SchemaType;
+import com.fintech.mapping.model.ValidationError;
+import com.fintech.mapping.model.ValidationResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The single SAX pass of ValidationService (detection, MsgId and the XSD validation
+ * of both candidates at once) gives the same result as detecting on the whole parsed
+ * message and validating it on its own against the detected schema
+ *
+ * The Document of an envelope is validated as if extracted into its own file behind an
+ * XML declaration line; its AppHdr against head.001 at its position in the payload.
+ */
+class SinglePassValidationTest {
+    
+    private static final Path ISO_SAMPLE = Path.of("../schemas/iso20022/sample_iso_pain.001.001.09.xml");
+    private static final Path CBPR_SAMPLE = Path.of("../schemas/iso20022/sample_cbpr_pain.001.001.09.xml");
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+    
+    /**
+     * Valid and invalid variants of each message
+     */
+    private static final Map<String, UnaryOperator<String>> MUTATIONS = Map.of(
+        "as is", xml -> xml,
+        "no CreDtTm", xml -> xml.replaceFirst("<CreDtTm>[^<]*</CreDtTm>", ""),
+        "NbOfTxs not a number", xml -> xml.replaceFirst("<NbOfTxs>[^<]*</NbOfTxs>", "<NbOfTxs>abc</NbOfTxs>"),
+        "country name", xml -> xml.replaceFirst("<Ctry>[^<]*</Ctry>", "<Ctry>Germany</Ctry>"),
+        "unknown address line", xml -> xml.replaceFirst("<TwnNm>", "<Foo/><TwnNm>"),
+        "bad BIC and currency", xml -> xml.replaceFirst("<BICFI>[^<]*</BICFI>", "<BICFI>bad</BICFI>")
+            .replaceAll("<InstdAmt Ccy=\"\\w+\">", "<InstdAmt Ccy=\"xx\">"),
+        "comment after Document", xml -> xml.replace("</Document>", "</Document><!--t-->"),
+        "element after GrpHdr", xml -> xml.replaceFirst("</GrpHdr>", "</GrpHdr><Bad>1</Bad>"));
+    
+    private static ConfigurableApplicationContext context;
+    private static ValidationService validationService;
+    private static SchemaDetectionService schemaDetectionService;
+    private static Map<SchemaType, Schema> schemas;
+    private static Schema headerSchema;
+    private static String isoSample;
+    private static String cbprSample;
+    
+    @BeforeAll
+    static void setUp() throws Exception {
+        context = new SpringApplicationBuilder(ValidationContext.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "app.schemas.cbpr-path=classpath:schemas/CBPR_pain.001.001.09.xsd",
+                "app.schemas.iso-path=classpath:schemas/pain.001.001.09.xsd.xml",
+                "app.schemas.headers=classpath:schemas/head.001.001.02.xsd")
+            .run();
+        validationService = context.getBean(ValidationService.class);
+        schemaDetectionService = context.getBean(SchemaDetectionService.class);
+        
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        schemas = Map.of(
+            SchemaType.CBPR_PLUS, factory.newSchema(SinglePassValidationTest.class.getResource("/schemas/CBPR_pain.001.001.09.xsd")),
+            SchemaType.ISO_STANDARD, factory.newSchema(SinglePassValidationTest.class.getResource("/schemas/pain.001.001.09.xsd.xml")));
+        headerSchema = factory.newSchema(SinglePassValidationTest.class.getResource("/schemas/head.001.001.02.xsd"));
+        
+        // The ISO sample has an unescaped '&' in a name
+        isoSample = Files.readString(ISO_SAMPLE).replace(" & ", " &amp; ");
+        cbprSample = Files.readString(CBPR_SAMPLE);
+    }
+    
+    @AfterAll
+    static void tearDown() {
+        context.close();
+    }
+    
+    @Test
+    void plainIsoMessages() throws Exception {
+        assertSameResults(isoSample);
+        assertSameResults(isoSample.replace("\n", ""));
+    }
+    
+    @Test
+    void plainCbprDocuments() throws Exception {
+        String document = cbprSample.substring(cbprSample.indexOf("<Document"));
+        assertSameResults(document);
+        assertSameResults(XML_DECLARATION + "<!-- x -->" + document.replace("\n", "\r\n"));
+    }
+    
+    @Test
+    void envelopes() throws Exception {
+        assertTrue(validationService.validate(cbprSample).isValid());
+        assertSameResults(cbprSample);
+        assertSameResults(cbprSample.replace("\n", ""));
+        assertSameResults(cbprSample.replace("\n", "\r\n"));
+        // Scored ISO despite the AppHdr: the Document is validated against the ISO schema
+        assertSameResults(cbprSample.replaceFirst("<NbOfTxs>1</NbOfTxs>", "<NbOfTxs>2</NbOfTxs>")
+            .replace("CORP2025101600001", "CORP_1"));
+    }
+    
+    @Test
+    void envelopeWithInvalidHeader() throws Exception {
+        String xml = cbprSample.replace("<BizMsgIdr>CBPR2025101600001</BizMsgIdr>",
+            "<BizMsgIdr>CBPR2025101600001-0123456789-0123456789</BizMsgIdr>");
+        ValidationResult result = validationService.validate(xml);
+        assertFalse(result.isValid());
+        assertEquals("/AppHdr", result.getErrors().get(0).getXpath());
+        assertSameResults(xml);
+    }
+    
+    private static void assertSameResults(String base) {
+        MUTATIONS.forEach((name, mutation) -> {
+            String xml = mutation.apply(base);
+            ValidationResult expected;
+            try {
+                expected = reference(xml);
+            } catch (Exception e) {
+                throw new IllegalStateException(name, e);
+            }
+            ValidationResult actual = validationService.validate(xml);
+            
+            assertEquals(expected.getDetectedSchemaType(), actual.getDetectedSchemaType(), name);
+            assertEquals(expected.getMessageId(), actual.getMessageId(), name);
+            assertEquals(expected.isValid(), actual.isValid(), name);
+            assertEquals(describe(expected.getErrors()), describe(actual.getErrors()), name);
+        });
+    }
+    
+    /**
+     * Detection over the whole parsed message, then one validation per part
+     */
+    private static ValidationResult reference(String xml) throws Exception {
+        int documentStart = xml.indexOf("<Document");
+        int headerStart = xml.indexOf("<AppHdr");
+        boolean envelope = headerStart >= 0 && headerStart < documentStart;
+        
+        // An envelope has two top-level elements: parse them under a common root
+        String body = xml.startsWith("<?xml") ? xml.substring(xml.indexOf("?>") + 2) : xml;
+        Document parsed = parse(envelope ? "<Envelope>" + body + "</Envelope>" : body);
+        SchemaType detectedType = schemaDetectionService.detectSchemaType(parsed);
+        NodeList msgIds = parsed.getElementsByTagNameNS("*", "MsgId");
+        String messageId = msgIds.getLength() > 0 ? msgIds.item(0).getTextContent() : "UNKNOWN";
+        
+        List<ValidationError> errors = new ArrayList<>();
+        if (envelope) {
+            // Everything before the AppHdr blanked out, so positions stay those in the payload
+            int headerEnd = xml.indexOf("</AppHdr>") + "</AppHdr>".length();
+            String header = xml.substring(0, headerStart).replaceAll("[^\r\n]", " ") + xml.substring(headerStart, headerEnd);
+            List<ValidationError> headerErrors = validate(headerSchema, header);
+            headerErrors.forEach(error -> error.setXpath("/AppHdr"));
+            errors.addAll(headerErrors);
+            
+            int documentEnd = xml.indexOf("</Document>") + "</Document>".length();
+            xml = XML_DECLARATION + xml.substring(documentStart, documentEnd);
+        }
+        List<ValidationError> documentErrors = validate(schemas.get(detectedType), xml);
+        errors.addAll(detectedType == SchemaType.CBPR_PLUS
+            ? documentErrors.stream().filter(SinglePassValidationTest::isCritical).toList()
+            : documentErrors);
+        
+        return ValidationResult.builder()
+            .valid(errors.isEmpty())
+            .detectedSchemaType(detectedType)
+            .messageId(messageId)
+            .errors(errors)
+            .build();
+    }
+    
+    /**
+     * The CBPR+ errors that lenient validation keeps (not address or element order issues)
+     */
+    private static boolean isCritical(ValidationError error) {
+        String message = error.getMessage().toLowerCase();
+        boolean addressOrder = message.contains("invalid content was found")
+            && (message.contains("adrline") || message.contains("postal") || message.contains("address"));
+        return !addressOrder && !message.contains("no child element is expected");
+    }
+    
+    private static List<ValidationError> validate(Schema schema, String xml) throws Exception {
+        List<ValidationError> errors = new ArrayList<>();
+        Validator validator = schema.newValidator();
+        validator.setErrorHandler(new ErrorHandler() {
+            @Override
+            public void warning(SAXParseException e) {
+                errors.add(toError(e, "WARNING"));
+            }
+            
+            @Override
+            public void error(SAXParseException e) {
+                errors.add(toError(e, "ERROR"));
+            }
+            
+            @Override
+            public void fatalError(SAXParseException e) throws SAXException {
+                throw e;
+            }
+        });
+        validator.validate(new StreamSource(new StringReader(xml)));
+        return errors;
+    }
+    
+    private static ValidationError toError(SAXParseException e, String errorType) {
+        return ValidationError.builder()
+            .message(e.getMessage())
+            .lineNumber(e.getLineNumber())
+            .columnNumber(e.getColumnNumber())
+            .errorType(errorType)
+            .build();
+    }
+    
+    private static Document parse(String xml) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+    }
+    
+    private static List<String> describe(List<ValidationError> errors) {
+        return errors.stream()
+            .map(error -> error.getLineNumber() + ":" + error.getColumnNumber() + " " + error.getErrorType()
+                + " " + error.getXpath() + " " + error.getMessage())
+            .toList();
+    }
+    
+    /**
+     * The validation services and their metrics only (no broker, no web server)
+     */
+    @Configuration
+    @Import({ValidationService.class, SchemaDetectionService.class, SchemaRegistry.class,
+             ValidationMetrics.class, BrokerQueues.class, LogSampler.class})
+    static class ValidationContext {
+        
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
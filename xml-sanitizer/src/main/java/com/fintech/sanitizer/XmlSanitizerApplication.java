@@ -0,0 +1,20 @@
+package com.fintech.sanitizer;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Main application class for the XML Sanitizer
+ * 
+ * Features:
+ * - Removes characters that are not allowed in XML 1.0
+ * - Restricts character data to the SWIFT FIN-X set, transliterating where possible
+ * - Streams request bodies of any size through a byte-level filter
+ */
+@SpringBootApplication
+public class XmlSanitizerApplication {
+    
+    public static void main(String[] args) {
+        SpringApplication.run(XmlSanitizerApplication.class, args);
+    }
+}
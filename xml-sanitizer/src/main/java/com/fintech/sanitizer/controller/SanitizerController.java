@@ -0,0 +1,84 @@
+package com.fintech.sanitizer.controller;
+
+import com.fintech.sanitizer.filter.CharPolicy;
+import com.fintech.sanitizer.service.SanitizerService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * REST Controller for character sanitization
+ *
+ * The request body is streamed through the filter straight into the response, so
+ * large payloads are never held in memory and are never decoded to a String.
+ */
+@RestController
+@Slf4j
+public class SanitizerController {
+    
+    @Autowired
+    private SanitizerService sanitizerService;
+    
+    @Value("${app.sanitizer.policy:finx}")
+    private String defaultPolicy;
+    
+    @Value("${app.sanitizer.mode:strip}")
+    private String defaultMode;
+    
+    /**
+     * Remove (or transliterate) characters outside XML 1.0 and, with policy=finx, outside
+     * the FIN-X set in character data
+     *
+     * policy: xml | finx (default app.sanitizer.policy)
+     * mode: strip | transliterate (default app.sanitizer.mode)
+     *
+     * Example:
+     * curl -X POST "http://localhost:8080/sanitize-chars?mode=transliterate" \
+     *   -H "Content-Type: application/xml" \
+     *   --data-binary @pain001.xml
+     */
+    @PostMapping(value = "/sanitize-chars",
+                 consumes = {MediaType.APPLICATION_XML_VALUE, MediaType.TEXT_XML_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE},
+                 produces = MediaType.APPLICATION_XML_VALUE)
+    public void sanitize(@RequestParam(required = false) String policy,
+                         @RequestParam(required = false) String mode,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        CharPolicy charPolicy;
+        Mode sanitizeMode;
+        try {
+            charPolicy = CharPolicy.valueOf(upperCase(policy != null ? policy : defaultPolicy));
+            sanitizeMode = Mode.valueOf(upperCase(mode != null ? mode : defaultMode));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                "policy must be xml or finx, mode must be strip or transliterate");
+            return;
+        }
+        
+        response.setContentType(MediaType.APPLICATION_XML_VALUE);
+        SanitizerService.Report report = sanitizerService.sanitize(request.getInputStream(),
+            response.getOutputStream(), charPolicy, sanitizeMode == Mode.TRANSLITERATE);
+        if (report.removed() > 0 || report.transliterated() > 0) {
+            log.debug("Sanitized payload ({}): {} characters removed, {} transliterated",
+                charPolicy, report.removed(), report.transliterated());
+        }
+    }
+    
+    private static String upperCase(String value) {
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+    
+    enum Mode {
+        STRIP,
+        TRANSLITERATE
+    }
+}
@@ -0,0 +1,609 @@
+package com.fintech.sanitizer.filter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Removes (or transliterates) unwanted characters from UTF-8 encoded XML, byte by byte
+ *
+ * Works on the encoded bytes: there is no decoding to String and no regex. Each byte
+ * is classified with a lookup table, and runs of plain bytes (the vast majority) are
+ * copied in a tight loop. Multi-byte UTF-8 sequences are decoded only far enough to
+ * check them. With {@link CharPolicy#FINX} a small state machine follows the markup,
+ * since only character data is restricted to FIN-X.
+ *
+ * The input may be fed in chunks of any size: a UTF-8 sequence, entity reference or
+ * markup delimiter split across chunks is carried over. Nothing is allocated per call.
+ * An instance filters one stream at a time and is not thread-safe; {@link #reset}
+ * makes it ready for the next one.
+ *
+ * Output never exceeds the input by more than {@link #MAX_PENDING} bytes (what was
+ * held back from the previous chunk), since replacements are never longer than what
+ * they replace. A whole stream filtered in one call may therefore be filtered in place
+ * ({@code out == in}, same offset).
+ */
+public final class ByteSanitizer {
+    
+    /**
+     * Bytes that can be carried over from one chunk to the next
+     */
+    public static final int MAX_PENDING = 16;
+    
+    // Longest entity reference kept, without '&' and ';' (e.g. #x10FFFF)
+    private static final int MAX_ENTITY = 10;
+    
+    // Markup states (FIN-X only)
+    private static final int TEXT = 0;
+    private static final int LT = 1;          // after '<'
+    private static final int TAG = 2;         // start or end tag
+    private static final int BANG = 3;        // after "<!"
+    private static final int BANG_DASH = 4;   // after "<!-"
+    private static final int COMMENT = 5;
+    private static final int CDATA_OPEN = 6;  // after "<![", up to the second '['
+    private static final int CDATA = 7;
+    private static final int PI = 8;
+    private static final int DECL = 9;        // DOCTYPE and other declarations
+    private static final int ENTITY = 10;     // after '&' in text
+    
+    // Bytes copied as they are, per state kind
+    private static final boolean[] XML_PLAIN = new boolean[256];
+    private static final boolean[] FINX_TEXT_PLAIN = new boolean[256];
+    private static final boolean[] TAG_PLAIN = new boolean[256];
+    private static final boolean[] QUOTED_PLAIN = new boolean[256];
+    private static final boolean[] MARKUP_PLAIN = new boolean[256];
+    private static final boolean[] NONE = new boolean[256];
+    
+    static {
+        for (int b = 0x20; b < 0x80; b++) {
+            XML_PLAIN[b] = true;
+            TAG_PLAIN[b] = b != '>' && b != '"' && b != '\'';
+            QUOTED_PLAIN[b] = b != '"' && b != '\'';
+            MARKUP_PLAIN[b] = b != '>' && b != '-' && b != '?' && b != '[' && b != ']';
+            FINX_TEXT_PLAIN[b] = Transliteration.isFinX(b);
+        }
+        for (int b : new int[] {'\t', '\n', '\r'}) {
+            XML_PLAIN[b] = true;
+            TAG_PLAIN[b] = true;
+            QUOTED_PLAIN[b] = true;
+            MARKUP_PLAIN[b] = true;
+            FINX_TEXT_PLAIN[b] = true;
+        }
+    }
+    
+    private final boolean finX;
+    private final boolean transliterate;
+    
+    private int state = TEXT;
+    // Open quote in a tag (0 when none), delimiter progress in comments, PIs, CDATA, declarations
+    private int quote;
+    private int delimiter;
+    private int declarationDepth;
+    
+    // Multi-byte UTF-8 sequence being collected
+    private final byte[] sequence = new byte[4];
+    private int sequenceLength;
+    private int sequenceNeeded;
+    
+    // Entity reference being collected (FIN-X text)
+    private final byte[] entity = new byte[MAX_ENTITY];
+    private int entityLength;
+    
+    private long bytesIn;
+    private long bytesOut;
+    private long removed;
+    private long transliterated;
+    
+    // Scratch windows for direct buffers, allocated on first use
+    private byte[] inWindow;
+    private byte[] outWindow;
+    
+    private ChangeListener changeListener;
+    // Stream position of out[0] in the current call
+    private long outBase;
+    
+    /**
+     * @param transliterate replace characters outside the policy with a FIN-X equivalent
+     *                      where there is one (FIN-X policy only) instead of removing them
+     */
+    public ByteSanitizer(CharPolicy policy, boolean transliterate) {
+        this.finX = policy == CharPolicy.FINX;
+        this.transliterate = transliterate;
+    }
+    
+    /**
+     * Told about every character removed or transliterated (null: none)
+     */
+    public void setChangeListener(ChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+    
+    /**
+     * Filter {@code in[offset, offset + length)} into {@code out} from {@code outOffset}
+     *
+     * @param out needs room for length + {@link #MAX_PENDING} bytes
+     * @return number of bytes written
+     */
+    public int filter(byte[] in, int offset, int length, byte[] out, int outOffset) {
+        outBase = bytesOut - outOffset;
+        boolean[] plain = plainTable();
+        int o = outOffset;
+        int i = offset;
+        int end = offset + length;
+        while (i < end) {
+            if (sequenceNeeded == 0) {
+                // Fast path: copy the run of plain bytes
+                int run = i;
+                while (i < end && plain[in[i] & 0xFF]) {
+                    out[o++] = in[i++];
+                }
+                if (i > run) {
+                    delimiter = 0;
+                }
+                if (i == end) {
+                    break;
+                }
+            }
+            int b = in[i++] & 0xFF;
+            if (b < 0x80) {
+                if (sequenceNeeded > 0) {
+                    dropSequence(o);
+                }
+                o = ascii(b, out, o);
+            } else {
+                o = multiByte(b, out, o);
+            }
+            plain = plainTable();
+        }
+        bytesIn += length;
+        bytesOut += o - outOffset;
+        return o - outOffset;
+    }
+    
+    /**
+     * Filter the remaining bytes of {@code in} into {@code out} (heap or direct buffers)
+     *
+     * @param out needs room for in.remaining() + {@link #MAX_PENDING} bytes
+     * @return number of bytes written
+     */
+    public int filter(ByteBuffer in, ByteBuffer out) {
+        int length = in.remaining();
+        if (in.hasArray() && out.hasArray()) {
+            int written = filter(in.array(), in.arrayOffset() + in.position(), length,
+                out.array(), out.arrayOffset() + out.position());
+            in.position(in.limit());
+            out.position(out.position() + written);
+            return written;
+        }
+        // Direct buffers: bulk-copied through scratch windows
+        if (inWindow == null) {
+            inWindow = new byte[8192];
+            outWindow = new byte[inWindow.length + MAX_PENDING];
+        }
+        int written = 0;
+        while (in.hasRemaining()) {
+            int chunk = Math.min(in.remaining(), inWindow.length);
+            in.get(inWindow, 0, chunk);
+            int n = filter(inWindow, 0, chunk, outWindow, 0);
+            out.put(outWindow, 0, n);
+            written += n;
+        }
+        return written;
+    }
+    
+    /**
+     * End of input: a truncated UTF-8 sequence is removed, an unfinished entity reference written out
+     *
+     * @param out needs room for {@link #MAX_PENDING} bytes
+     * @return number of bytes written
+     */
+    public int finish(byte[] out, int outOffset) {
+        outBase = bytesOut - outOffset;
+        int o = outOffset;
+        if (sequenceNeeded > 0) {
+            dropSequence(o);
+        }
+        if (state == ENTITY) {
+            o = abortEntity(out, o);
+        }
+        bytesOut += o - outOffset;
+        return o - outOffset;
+    }
+    
+    /**
+     * Ready for a new stream (counters are kept)
+     */
+    public void reset() {
+        state = TEXT;
+        quote = 0;
+        delimiter = 0;
+        declarationDepth = 0;
+        sequenceLength = 0;
+        sequenceNeeded = 0;
+        entityLength = 0;
+    }
+    
+    public long getBytesIn() {
+        return bytesIn;
+    }
+    
+    public long getBytesOut() {
+        return bytesOut;
+    }
+    
+    /**
+     * Characters (or malformed sequences) removed
+     */
+    public long getRemoved() {
+        return removed;
+    }
+    
+    /**
+     * Characters replaced by a FIN-X equivalent
+     */
+    public long getTransliterated() {
+        return transliterated;
+    }
+    
+    private boolean[] plainTable() {
+        if (!finX) {
+            return XML_PLAIN;
+        }
+        return switch (state) {
+            case TEXT, CDATA -> FINX_TEXT_PLAIN;
+            case TAG -> quote == 0 ? TAG_PLAIN : QUOTED_PLAIN;
+            case COMMENT, PI, DECL -> MARKUP_PLAIN;
+            default -> NONE;
+        };
+    }
+    
+    /**
+     * An ASCII byte that is not plain in the current state
+     */
+    private int ascii(int b, byte[] out, int o) {
+        if (b < 0x20 && b != '\t' && b != '\n' && b != '\r') {
+            removed(o);
+            return o;
+        }
+        if (!finX) {
+            out[o++] = (byte) b;
+            return o;
+        }
+        switch (state) {
+            case TEXT -> {
+                if (b == '<') {
+                    out[o++] = (byte) b;
+                    state = LT;
+                } else if (b == '&') {
+                    state = ENTITY;
+                    entityLength = 0;
+                } else {
+                    o = outsideFinX(b, out, o);
+                }
+            }
+            case ENTITY -> {
+                if (b == ';') {
+                    o = endEntity(out, o);
+                } else if (entityLength < MAX_ENTITY && (isNameByte(b) || b == '#' && entityLength == 0)) {
+                    entity[entityLength++] = (byte) b;
+                } else {
+                    o = abortEntity(out, o);
+                    o = ascii(b, out, o);
+                }
+            }
+            case LT -> {
+                out[o++] = (byte) b;
+                state = b == '?' ? PI : b == '!' ? BANG : TAG;
+                delimiter = 0;
+                if (state == TAG) {
+                    tag(b);
+                }
+            }
+            case TAG -> {
+                out[o++] = (byte) b;
+                tag(b);
+            }
+            case BANG -> {
+                out[o++] = (byte) b;
+                state = b == '-' ? BANG_DASH : b == '[' ? CDATA_OPEN : DECL;
+                if (state == DECL) {
+                    declaration(b);
+                }
+            }
+            case BANG_DASH -> {
+                out[o++] = (byte) b;
+                state = b == '-' ? COMMENT : DECL;
+                delimiter = 0;
+            }
+            case CDATA_OPEN -> {
+                out[o++] = (byte) b;
+                if (b == '[') {
+                    state = CDATA;
+                    delimiter = 0;
+                } else if (b == '>') {
+                    state = TEXT;
+                }
+            }
+            case COMMENT -> {
+                out[o++] = (byte) b;
+                if (b == '>' && delimiter >= 2) {
+                    state = TEXT;
+                }
+                delimiter = b == '-' ? delimiter + 1 : 0;
+            }
+            case PI -> {
+                out[o++] = (byte) b;
+                if (b == '>' && delimiter > 0) {
+                    state = TEXT;
+                }
+                delimiter = b == '?' ? 1 : 0;
+            }
+            case DECL -> {
+                out[o++] = (byte) b;
+                declaration(b);
+            }
+            case CDATA -> {
+                if (b == ']') {
+                    out[o++] = (byte) b;
+                    delimiter++;
+                    return o;
+                }
+                if (b == '>' && delimiter >= 2) {
+                    out[o++] = (byte) b;
+                    state = TEXT;
+                } else {
+                    o = outsideFinX(b, out, o);
+                }
+                delimiter = 0;
+            }
+            default -> throw new IllegalStateException("Unknown state " + state);
+        }
+        return o;
+    }
+    
+    private void tag(int b) {
+        if (quote != 0) {
+            if (b == quote) {
+                quote = 0;
+            }
+        } else if (b == '"' || b == '\'') {
+            quote = b;
+        } else if (b == '>') {
+            state = TEXT;
+        }
+    }
+    
+    private void declaration(int b) {
+        if (b == '[') {
+            declarationDepth++;
+        } else if (b == ']') {
+            declarationDepth--;
+        } else if (b == '>' && declarationDepth <= 0) {
+            declarationDepth = 0;
+            state = TEXT;
+        }
+    }
+    
+    /**
+     * Character data outside FIN-X (ASCII, or a code point from a multi-byte sequence or reference)
+     */
+    private int outsideFinX(int codePoint, byte[] out, int o) {
+        byte[] replacement = transliterate ? Transliteration.replacement(codePoint) : null;
+        if (replacement == null) {
+            removed(o);
+            return o;
+        }
+        transliterated++;
+        if (changeListener != null) {
+            changeListener.changed(outBase + o, true);
+        }
+        for (byte r : replacement) {
+            out[o++] = r;
+        }
+        return o;
+    }
+    
+    private int multiByte(int b, byte[] out, int o) {
+        if (sequenceNeeded > 0) {
+            if ((b & 0xC0) == 0x80 && (sequenceLength > 1 || validSecondByte(sequence[0] & 0xFF, b))) {
+                sequence[sequenceLength++] = (byte) b;
+                if (sequenceLength == sequenceNeeded) {
+                    o = completeSequence(out, o);
+                }
+                return o;
+            }
+            dropSequence(o);
+        }
+        int needed = b >= 0xF0 ? (b <= 0xF4 ? 4 : 0) : b >= 0xE0 ? 3 : b >= 0xC2 ? 2 : 0;
+        if (needed == 0) {
+            // Stray continuation byte, overlong lead (C0, C1) or beyond U+10FFFF
+            removed(o);
+            return o;
+        }
+        if (state == ENTITY) {
+            o = abortEntity(out, o);
+        }
+        sequence[0] = (byte) b;
+        sequenceLength = 1;
+        sequenceNeeded = needed;
+        return o;
+    }
+    
+    /**
+     * Second byte ranges that rule out overlong forms, surrogates and code points above U+10FFFF
+     */
+    private static boolean validSecondByte(int lead, int second) {
+        return switch (lead) {
+            case 0xE0 -> second >= 0xA0;
+            case 0xED -> second <= 0x9F;
+            case 0xF0 -> second >= 0x90;
+            case 0xF4 -> second <= 0x8F;
+            default -> true;
+        };
+    }
+    
+    private int completeSequence(byte[] out, int o) {
+        int length = sequenceLength;
+        sequenceLength = 0;
+        sequenceNeeded = 0;
+        int codePoint = switch (length) {
+            case 2 -> (sequence[0] & 0x1F) << 6 | sequence[1] & 0x3F;
+            case 3 -> (sequence[0] & 0x0F) << 12 | (sequence[1] & 0x3F) << 6 | sequence[2] & 0x3F;
+            default -> (sequence[0] & 0x07) << 18 | (sequence[1] & 0x3F) << 12 | (sequence[2] & 0x3F) << 6
+                | sequence[3] & 0x3F;
+        };
+        if (codePoint == 0xFFFE || codePoint == 0xFFFF) {
+            removed(o);
+            return o;
+        }
+        if (finX && (state == TEXT || state == CDATA)) {
+            delimiter = 0;
+            return outsideFinX(codePoint, out, o);
+        }
+        if (finX) {
+            leaveOpening();
+        }
+        for (int k = 0; k < length; k++) {
+            out[o++] = sequence[k];
+        }
+        return o;
+    }
+    
+    /**
+     * A non-ASCII character in markup: it cannot be part of a delimiter
+     */
+    private void leaveOpening() {
+        switch (state) {
+            case LT -> state = TAG;
+            case BANG, BANG_DASH -> state = DECL;
+            default -> {
+            }
+        }
+        delimiter = 0;
+    }
+    
+    private void dropSequence(int o) {
+        sequenceLength = 0;
+        sequenceNeeded = 0;
+        removed(o);
+    }
+    
+    private void removed(int o) {
+        removed++;
+        if (changeListener != null) {
+            changeListener.changed(outBase + o, false);
+        }
+    }
+    
+    /**
+     * ';' after an entity name: decode it and treat the character as text
+     */
+    private int endEntity(byte[] out, int o) {
+        int codePoint = entityCodePoint();
+        if (codePoint < 0) {
+            o = abortEntity(out, o);
+            return outsideFinX(';', out, o);
+        }
+        state = TEXT;
+        entityLength = 0;
+        boolean xmlChar = codePoint == '\t' || codePoint == '\n' || codePoint == '\r'
+            || codePoint >= 0x20 && codePoint <= 0xD7FF
+            || codePoint >= 0xE000 && codePoint <= 0xFFFD
+            || codePoint >= 0x10000 && codePoint <= 0x10FFFF;
+        if (!xmlChar) {
+            removed(o);
+        } else if (codePoint < 0x80 && FINX_TEXT_PLAIN[codePoint]) {
+            out[o++] = (byte) codePoint;
+        } else {
+            o = outsideFinX(codePoint, out, o);
+        }
+        return o;
+    }
+    
+    /**
+     * Not an entity reference after all: the '&' is removed, the name bytes are text again
+     */
+    private int abortEntity(byte[] out, int o) {
+        removed(o);
+        state = TEXT;
+        int length = entityLength;
+        entityLength = 0;
+        for (int k = 0; k < length; k++) {
+            int b = entity[k];
+            if (FINX_TEXT_PLAIN[b]) {
+                out[o++] = (byte) b;
+            } else {
+                o = outsideFinX(b, out, o);
+            }
+        }
+        return o;
+    }
+    
+    /**
+     * Code point of the collected reference (predefined or numeric), or -1
+     */
+    private int entityCodePoint() {
+        if (entityLength == 0) {
+            return -1;
+        }
+        if (entity[0] == '#') {
+            boolean hex = entityLength > 1 && entity[1] == 'x';
+            int start = hex ? 2 : 1;
+            if (start == entityLength) {
+                return -1;
+            }
+            int value = 0;
+            for (int k = start; k < entityLength; k++) {
+                int digit = Character.digit(entity[k], hex ? 16 : 10);
+                if (digit < 0) {
+                    return -1;
+                }
+                value = value * (hex ? 16 : 10) + digit;
+            }
+            return value;
+        }
+        // The five predefined names, compared without building a String
+        if (isEntity("amp")) {
+            return '&';
+        }
+        if (isEntity("lt")) {
+            return '<';
+        }
+        if (isEntity("gt")) {
+            return '>';
+        }
+        if (isEntity("quot")) {
+            return '"';
+        }
+        return isEntity("apos") ? '\'' : -1;
+    }
+    
+    private boolean isEntity(String name) {
+        if (name.length() != entityLength) {
+            return false;
+        }
+        for (int k = 0; k < entityLength; k++) {
+            if (entity[k] != name.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isNameByte(int b) {
+        return b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9';
+    }
+    
+    /**
+     * Callback for {@link #setChangeListener}
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+        
+        /**
+         * @param position       output position (from the start of the stream) where the
+         *                       character was removed or its replacement starts; all output
+         *                       before it has been written
+         * @param transliterated whether the character was replaced rather than removed
+         */
+        void changed(long position, boolean transliterated);
+    }
+}
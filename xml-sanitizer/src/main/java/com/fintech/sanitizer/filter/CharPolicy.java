@@ -0,0 +1,21 @@
+package com.fintech.sanitizer.filter;
+
+/**
+ * Which characters a {@link ByteSanitizer} lets through
+ */
+public enum CharPolicy {
+    
+    /**
+     * Characters allowed by XML 1.0 (Char production): tab, LF, CR, U+0020-U+D7FF,
+     * U+E000-U+FFFD and U+10000-U+10FFFF; anything else, and malformed UTF-8, is removed
+     */
+    XML,
+    
+    /**
+     * XML 1.0, and in character data (text and CDATA) only the SWIFT FIN-X set
+     * [0-9a-zA-Z/-?:().,'+ ] plus whitespace; markup (tags, attribute values, comments,
+     * PIs) is left as it is. Character references are decoded and checked like the
+     * characters they stand for.
+     */
+    FINX
+}
@@ -0,0 +1,132 @@
+package com.fintech.sanitizer.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+
+/**
+ * Lookup tables of the FIN-X character set and of FIN-X replacements for other characters
+ *
+ * Built once at class initialisation; lookups are array reads. Latin letters with
+ * diacritics lose them (é -> e, Ł -> L, ß -> ss), typographic quotes and dashes become
+ * their FIN-X counterparts, and a few ASCII symbols are mapped to the nearest FIN-X one.
+ * A replacement is never longer in UTF-8 than the character it replaces, so
+ * transliterating cannot grow the output. Everything else has no replacement.
+ */
+final class Transliteration {
+    
+    /**
+     * Code points below this are looked up in the replacement table
+     */
+    static final int TABLE_SIZE = 0x2040;
+    
+    private static final String FINX = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ/-?:().,'+ ";
+    
+    // FIN-X bytes (ASCII only)
+    private static final boolean[] FINX_BYTES = new boolean[256];
+    
+    // FIN-X replacement per code point (null: none)
+    private static final byte[][] REPLACEMENTS = new byte[TABLE_SIZE][];
+    
+    static {
+        for (int i = 0; i < FINX.length(); i++) {
+            FINX_BYTES[FINX.charAt(i)] = true;
+        }
+        
+        // ASCII symbols outside FIN-X
+        replace('"', "'");
+        replace('`', "'");
+        replace('_', "-");
+        replace('~', "-");
+        replace('[', "(");
+        replace(']', ")");
+        replace('{', "(");
+        replace('}', ")");
+        replace(';', ",");
+        replace('\\', "/");
+        replace('|', "/");
+        
+        // Letters that do not decompose
+        replace('ß', "ss");
+        replace('Æ', "AE");
+        replace('æ', "ae");
+        replace('Ø', "O");
+        replace('ø', "o");
+        replace('Đ', "D");
+        replace('đ', "d");
+        replace('Ð', "D");
+        replace('ð', "d");
+        replace('Ł', "L");
+        replace('ł', "l");
+        replace('Œ', "OE");
+        replace('œ', "oe");
+        replace('Þ', "TH");
+        replace('þ', "th");
+        replace('Ħ', "H");
+        replace('ħ', "h");
+        replace('ı', "i");
+        
+        // Spaces, quotes and dashes
+        replace(' ', " ");
+        for (char c : "‘’‚‛′".toCharArray()) {
+            replace(c, "'");
+        }
+        for (char c : "“”„‟″".toCharArray()) {
+            replace(c, "'");
+        }
+        for (char c = '‐'; c <= '―'; c++) {
+            replace(c, "-");
+        }
+        replace('…', "...");
+        
+        // Letters with diacritics: the compatibility decomposition without its combining marks
+        for (int codePoint = 0xC0; codePoint < 0x250; codePoint++) {
+            if (REPLACEMENTS[codePoint] == null) {
+                String base = decomposed(codePoint);
+                if (base != null) {
+                    replace((char) codePoint, base);
+                }
+            }
+        }
+    }
+    
+    private Transliteration() {
+    }
+    
+    static boolean isFinX(int b) {
+        return FINX_BYTES[b & 0xFF];
+    }
+    
+    /**
+     * FIN-X replacement of a code point (ASCII bytes), or null
+     */
+    static byte[] replacement(int codePoint) {
+        return codePoint < TABLE_SIZE ? REPLACEMENTS[codePoint] : null;
+    }
+    
+    private static void replace(char c, String replacement) {
+        byte[] bytes = replacement.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > String.valueOf(c).getBytes(StandardCharsets.UTF_8).length) {
+            throw new IllegalStateException("Replacement of U+" + Integer.toHexString(c) + " is longer than it");
+        }
+        REPLACEMENTS[c] = bytes;
+    }
+    
+    /**
+     * The FIN-X letters a character decomposes to, when it is such a letter plus combining marks
+     */
+    private static String decomposed(int codePoint) {
+        String decomposed = Normalizer.normalize(new String(Character.toChars(codePoint)), Normalizer.Form.NFKD);
+        StringBuilder base = new StringBuilder();
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (c >= 128 || !Character.isLetterOrDigit(c)) {
+                return null;
+            }
+            base.append(c);
+        }
+        return base.length() > 0 && base.length() <= 2 ? base.toString() : null;
+    }
+}
@@ -0,0 +1,71 @@
+package com.fintech.sanitizer.service;
+
+import com.fintech.sanitizer.filter.ByteSanitizer;
+import com.fintech.sanitizer.filter.CharPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Streams XML through a {@link ByteSanitizer}
+ *
+ * The body is read and written in chunks of app.sanitizer.buffer-size bytes, so a
+ * payload of any size is sanitized in constant memory and the first bytes go out
+ * before the last ones have arrived.
+ */
+@Service
+@Slf4j
+public class SanitizerService {
+    
+    @Value("${app.sanitizer.buffer-size:65536}")
+    private int bufferSize;
+    
+    /**
+     * Sanitize {@code in} into {@code out} (neither is closed)
+     *
+     * @param transliterate replace characters outside FIN-X with an equivalent where there is one
+     */
+    public Report sanitize(InputStream in, OutputStream out, CharPolicy policy, boolean transliterate) throws IOException {
+        long startTime = System.nanoTime();
+        ByteSanitizer sanitizer = new ByteSanitizer(policy, transliterate);
+        byte[] input = new byte[bufferSize];
+        byte[] output = new byte[bufferSize + ByteSanitizer.MAX_PENDING];
+        
+        int read;
+        while ((read = in.read(input)) > 0) {
+            out.write(output, 0, sanitizer.filter(input, 0, read, output, 0));
+        }
+        out.write(output, 0, sanitizer.finish(output, 0));
+        out.flush();
+        
+        Report report = new Report(sanitizer.getBytesIn(), sanitizer.getBytesOut(), sanitizer.getRemoved(),
+            sanitizer.getTransliterated(), (System.nanoTime() - startTime) / 1000);
+        log.debug("Sanitized {} -> {} bytes ({} removed, {} transliterated) in {} us", report.bytesIn(),
+            report.bytesOut(), report.removed(), report.transliterated(), report.durationMicros());
+        return report;
+    }
+    
+    /**
+     * Sanitize an in-memory payload
+     */
+    public byte[] sanitize(byte[] xml, CharPolicy policy, boolean transliterate) {
+        ByteSanitizer sanitizer = new ByteSanitizer(policy, transliterate);
+        byte[] output = new byte[xml.length + ByteSanitizer.MAX_PENDING];
+        int length = sanitizer.filter(xml, 0, xml.length, output, 0);
+        length += sanitizer.finish(output, length);
+        return Arrays.copyOf(output, length);
+    }
+    
+    public record Report(
+        long bytesIn,
+        long bytesOut,
+        long removed,
+        long transliterated,
+        long durationMicros
+    ) {}
+}
@@ -0,0 +1,127 @@
+package com.fintech.sanitizer.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The filter gives the same output however its input is cut into chunks: every test
+ * feeds the message split in two at each byte position, and one byte at a time
+ */
+class ByteSanitizerTest {
+    
+    @Test
+    void keepsUtf8SequencesSplitAcrossChunks() {
+        assertEverySplit("<a>é€😀</a>", "<a>é€😀</a>", CharPolicy.XML, false);
+    }
+    
+    @Test
+    void transliteratesUtf8SequencesSplitAcrossChunks() {
+        assertEverySplit("<a>Cafe Muller</a>", "<a>Café Müller</a>", CharPolicy.FINX, true);
+        assertEverySplit("<a>Caf Mller</a>", "<a>Café Müller😀</a>", CharPolicy.FINX, false);
+    }
+    
+    @Test
+    void removesMalformedSequenceSplitAcrossChunks() {
+        // Lead byte of a two-byte sequence followed by ASCII
+        byte[] xml = concat(ascii("<a>"), new byte[] {(byte) 0xC3}, ascii("x</a>"));
+        for (int split = 0; split <= xml.length; split++) {
+            assertEquals("<a>x</a>", sanitize(xml, split, CharPolicy.XML, false));
+        }
+        // Truncated at the end of the input
+        byte[] truncated = concat(ascii("<a>x"), new byte[] {(byte) 0xE2, (byte) 0x82});
+        assertEquals("<a>x", sanitize(truncated, 4, CharPolicy.XML, false));
+    }
+    
+    @Test
+    void decodesEntitiesSplitAcrossChunks() {
+        assertEverySplit("<a>AAB'</a>", "<a>A&#x41;&#66;&apos;</a>", CharPolicy.FINX, false);
+    }
+    
+    @Test
+    void neverTurnsEscapedMarkupIntoRawCharacters() {
+        String xml = "<a>R&amp;D &lt;1&gt; &#38;&#x3C;&#60;&quot;</a><b>&lt;/a&gt;</b>";
+        for (boolean transliterate : new boolean[] {false, true}) {
+            String expected = transliterate ? "<a>RD 1 '</a><b>/a</b>" : "<a>RD 1 </a><b>/a</b>";
+            assertEverySplit(expected, xml, CharPolicy.FINX, transliterate);
+        }
+        
+        String text = sanitize(bytes(xml), 0, CharPolicy.FINX, true).replaceAll("</?[ab]>", "");
+        assertFalse(text.contains("&"), text);
+        assertFalse(text.contains("<"), text);
+    }
+    
+    @Test
+    void writesUnfinishedEntityWithoutItsAmpersand() {
+        assertEverySplit("<a>am</a>", "<a>&am</a>", CharPolicy.FINX, false);
+        assertEverySplit("<a>1amp", "<a>1&amp", CharPolicy.FINX, false);
+    }
+    
+    @Test
+    void endsCdataOnlyAtTwoBracketsAndGreaterThan() {
+        assertEverySplit("<a><![CDATA[x]]]>y</a>", "<a><![CDATA[x]]]>y</a>", CharPolicy.FINX, false);
+        // "]>" does not end the section: its '>' is character data outside FIN-X
+        assertEverySplit("<a><![CDATA[a]e]]>e</a>", "<a><![CDATA[a]>é]]>é</a>", CharPolicy.FINX, true);
+        // After "]]>" the text is filtered again
+        assertEverySplit("<a><![CDATA[x]]></a>", "<a><![CDATA[x]]>&lt;</a>", CharPolicy.FINX, false);
+    }
+    
+    @Test
+    void endsCommentOnlyAtTwoDashesAndGreaterThan() {
+        // Comment content is markup and left as it is, "--" inside included
+        assertEverySplit("<a><!-- é & < -- x ---->ez</a>", "<a><!-- é & < -- x ---->éz</a>", CharPolicy.FINX, true);
+        // "<!--->" is not a complete comment
+        assertEverySplit("<a><!--->é-->e</a>", "<a><!--->é-->é</a>", CharPolicy.FINX, true);
+    }
+    
+    /**
+     * Filter {@code xml} split in two at every byte position, and one byte at a time
+     */
+    private static void assertEverySplit(String expected, String xml, CharPolicy policy, boolean transliterate) {
+        byte[] in = bytes(xml);
+        for (int split = 0; split <= in.length; split++) {
+            assertEquals(expected, sanitize(in, split, policy, transliterate), "split at byte " + split);
+        }
+        assertEquals(expected, sanitizeBytewise(in, policy, transliterate), "one byte at a time");
+    }
+    
+    private static String sanitize(byte[] in, int split, CharPolicy policy, boolean transliterate) {
+        ByteSanitizer sanitizer = new ByteSanitizer(policy, transliterate);
+        byte[] out = new byte[in.length + 2 * ByteSanitizer.MAX_PENDING];
+        int length = sanitizer.filter(in, 0, split, out, 0);
+        length += sanitizer.filter(in, split, in.length - split, out, length);
+        length += sanitizer.finish(out, length);
+        return new String(out, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    private static String sanitizeBytewise(byte[] in, CharPolicy policy, boolean transliterate) {
+        ByteSanitizer sanitizer = new ByteSanitizer(policy, transliterate);
+        byte[] out = new byte[1 + ByteSanitizer.MAX_PENDING];
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        for (int i = 0; i < in.length; i++) {
+            result.write(out, 0, sanitizer.filter(in, i, 1, out, 0));
+        }
+        result.write(out, 0, sanitizer.finish(out, 0));
+        return result.toString(StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] bytes(String xml) {
+        return xml.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+    
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            all.writeBytes(part);
+        }
+        return all.toByteArray();
+    }
+}